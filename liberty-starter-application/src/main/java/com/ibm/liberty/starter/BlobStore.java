@@ -0,0 +1,282 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.ibm.liberty.starter;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.zip.CRC32;
+
+/**
+ * Shares the content of files that are the same in many projects, such as the templates and samples the providers
+ * put in every workspace, so that concurrent requests hold one copy rather than one each. Content is keyed by its
+ * SHA-256 hash and each blob carries its CRC and, once a request has deflated it, its deflated data, so the same
+ * file is only compressed once.
+ *
+ * Blobs are held softly, so the garbage collector can reclaim those no request is using when memory runs low. A
+ * request retains the blobs it is writing, and once the blobs take up more than the limit the least recently used
+ * of those that aren't retained are dropped. Content larger than the largest blob, or that doesn't fit once nothing
+ * else can be dropped, is returned in a blob of its own that isn't shared.
+ *
+ * The limit and the largest blob can be set with the environment variables
+ * <code>com_ibm_liberty_starter_blobStoreBytes</code> and <code>com_ibm_liberty_starter_blobMaxBytes</code>.
+ */
+public class BlobStore {
+
+    private static final String MAX_BYTES_ENV = "com_ibm_liberty_starter_blobStoreBytes";
+    private static final String MAX_BLOB_ENV = "com_ibm_liberty_starter_blobMaxBytes";
+
+    private static final BlobStore instance = new BlobStore(StarterUtil.getEnvLong(MAX_BYTES_ENV, 64 * 1024 * 1024),
+                                                            StarterUtil.getEnvLong(MAX_BLOB_ENV, 1024 * 1024));
+
+    private final long maxBytes;
+    private final long maxBlobBytes;
+    // Guarded by the store, in access order so the first entry is the least recently used blob
+    private final LinkedHashMap<ByteBuffer, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final ReferenceQueue<Blob> collected = new ReferenceQueue<>();
+    private long bytes;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * @param maxBytes The most bytes of content and deflated data to share
+     * @param maxBlobBytes The largest content to share
+     */
+    public BlobStore(long maxBytes, long maxBlobBytes) {
+        this.maxBytes = maxBytes;
+        this.maxBlobBytes = maxBlobBytes;
+    }
+
+    public static BlobStore getInstance() {
+        return instance;
+    }
+
+    /**
+     * Returns the shared blob with the same content, adding one if there isn't one. The caller must not modify the
+     * content once it has been given to the store.
+     */
+    public Blob intern(byte[] content) {
+        if (content.length > maxBlobBytes) {
+            return new Blob(content, null);
+        }
+        ByteBuffer key = ByteBuffer.wrap(sha256(content));
+        synchronized (this) {
+            purge();
+            Entry entry = entries.get(key);
+            Blob blob = entry == null ? null : entry.get();
+            if (blob != null) {
+                hits.incrementAndGet();
+                return blob;
+            }
+            misses.incrementAndGet();
+            if (entry != null) {
+                remove(entry);
+            }
+            if (!makeRoom(content.length)) {
+                return new Blob(content, null);
+            }
+            blob = new Blob(content, new Share(key, content.length));
+            entries.put(key, new Entry(blob, collected));
+            bytes += content.length;
+            return blob;
+        }
+    }
+
+    public Stats getStats() {
+        synchronized (this) {
+            purge();
+            return new Stats(hits.get(), misses.get(), evictions.get(), entries.size(), bytes);
+        }
+    }
+
+    // Drops the least recently used blobs that aren't retained until the bytes fit, returning false if they can't
+    private boolean makeRoom(long needed) {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (bytes + needed > maxBytes && iterator.hasNext()) {
+            Entry entry = iterator.next();
+            if (entry.share.retained.get() == 0) {
+                iterator.remove();
+                entry.clear();
+                entry.share.removed = true;
+                bytes -= entry.share.bytes;
+                evictions.incrementAndGet();
+            }
+        }
+        return bytes + needed <= maxBytes;
+    }
+
+    // Removes the entries of blobs the garbage collector has reclaimed
+    private void purge() {
+        Entry entry;
+        while ((entry = (Entry) collected.poll()) != null) {
+            remove(entry);
+        }
+    }
+
+    private void remove(Entry entry) {
+        if (entries.remove(entry.share.key, entry)) {
+            entry.share.removed = true;
+            bytes -= entry.share.bytes;
+        }
+    }
+
+    private static byte[] sha256(byte[] content) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(content);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // What the store knows of a shared blob, which outlives the blob once it has been reclaimed
+    private static class Share {
+        private final ByteBuffer key;
+        private final AtomicLong retained = new AtomicLong();
+        // Guarded by the store
+        private long bytes;
+        private boolean removed;
+
+        private Share(ByteBuffer key, long bytes) {
+            this.key = key;
+            this.bytes = bytes;
+        }
+    }
+
+    private static class Entry extends SoftReference<Blob> {
+        private final Share share;
+
+        private Entry(Blob blob, ReferenceQueue<Blob> queue) {
+            super(blob, queue);
+            this.share = blob.share;
+        }
+    }
+
+    /**
+     * The content of a file, shared with every request that has the same content.
+     */
+    public final class Blob {
+        private final byte[] content;
+        private final Share share;
+        private final int crc;
+        private final Map<Integer, byte[]> deflated = new ConcurrentHashMap<>();
+
+        private Blob(byte[] content, Share share) {
+            this.content = content;
+            this.share = share;
+            CRC32 crc = new CRC32();
+            crc.update(content);
+            this.crc = (int) crc.getValue();
+        }
+
+        /**
+         * Returns the content, which must not be modified.
+         */
+        public byte[] getContent() {
+            return content;
+        }
+
+        public int getCrc() {
+            return crc;
+        }
+
+        /**
+         * Returns true if the blob is shared through the store, false if it is only the caller's.
+         */
+        public boolean isShared() {
+            return share != null;
+        }
+
+        /**
+         * Returns the content deflated at the level, deflating it with the given function the first time. The data
+         * must not be modified.
+         */
+        public byte[] getDeflated(int level, Supplier<byte[]> deflate) {
+            byte[] data = deflated.get(level);
+            if (data == null) {
+                data = deflate.get();
+                if (share != null && deflated.putIfAbsent(level, data) == null) {
+                    synchronized (BlobStore.this) {
+                        if (!share.removed) {
+                            share.bytes += data.length;
+                            BlobStore.this.bytes += data.length;
+                        }
+                    }
+                }
+            }
+            return data;
+        }
+
+        /**
+         * Stops the blob being dropped to make room for others until it is released.
+         */
+        public void retain() {
+            if (share != null) {
+                share.retained.incrementAndGet();
+            }
+        }
+
+        public void release() {
+            if (share != null) {
+                share.retained.decrementAndGet();
+            }
+        }
+    }
+
+    public static class Stats {
+        private final long hits;
+        private final long misses;
+        private final long evictions;
+        private final int blobs;
+        private final long bytes;
+
+        private Stats(long hits, long misses, long evictions, int blobs, long bytes) {
+            this.hits = hits;
+            this.misses = misses;
+            this.evictions = evictions;
+            this.blobs = blobs;
+            this.bytes = bytes;
+        }
+
+        public long getHits() {
+            return hits;
+        }
+
+        public long getMisses() {
+            return misses;
+        }
+
+        public long getEvictions() {
+            return evictions;
+        }
+
+        public int getBlobs() {
+            return blobs;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+    }
+}
@@ -0,0 +1,182 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.ibm.liberty.starter;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Logger;
+import java.util.zip.Deflater;
+
+/**
+ * Decides how each file written to a project zip is compressed. Files that are already compressed, such as jars,
+ * images and fonts, are stored as deflating them again costs CPU for no gain. Other files are deflated at the level
+ * of the profile, with a faster level for large files, unless a level has been set for their extension.
+ *
+ * The policy is configured with the environment variables:
+ * <ul>
+ * <li><code>com_ibm_liberty_starter_compressionProfile</code> - <code>throughput</code>, <code>balanced</code>
+ * (the default) or <code>size</code></li>
+ * <li><code>com_ibm_liberty_starter_compressionLevels</code> - levels for extensions, such as
+ * <code>json=9,svg=9,dat=0</code>, where level 0 stores the file</li>
+ * <li><code>com_ibm_liberty_starter_compressionLargeFileBytes</code> - the size from which a file is large, 1MB by
+ * default</li>
+ * </ul>
+ */
+public class CompressionPolicy {
+
+    private static final Logger log = Logger.getLogger(CompressionPolicy.class.getName());
+    private static final String PROFILE_ENV = "com_ibm_liberty_starter_compressionProfile";
+    private static final String LEVELS_ENV = "com_ibm_liberty_starter_compressionLevels";
+    private static final String LARGE_FILE_ENV = "com_ibm_liberty_starter_compressionLargeFileBytes";
+
+    /** The level at which a file is stored rather than deflated */
+    public static final int STORED = Deflater.NO_COMPRESSION;
+
+    private static final Set<String> COMPRESSED_EXTENSIONS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            "jar", "war", "ear", "zip", "gz", "tgz", "bz2", "xz", "7z",
+            "png", "jpg", "jpeg", "gif", "webp", "ico",
+            "woff", "woff2", "eot", "mp3", "mp4")));
+
+    public enum Profile {
+        THROUGHPUT(Deflater.BEST_SPEED, Deflater.BEST_SPEED),
+        BALANCED(6, Deflater.BEST_SPEED),
+        SIZE(Deflater.BEST_COMPRESSION, 6);
+
+        private final int level;
+        private final int largeFileLevel;
+
+        Profile(int level, int largeFileLevel) {
+            this.level = level;
+            this.largeFileLevel = largeFileLevel;
+        }
+    }
+
+    private static CompressionPolicy instance;
+
+    private final Profile profile;
+    private final Map<String, Integer> levels;
+    private final long largeFileBytes;
+
+    /**
+     * @param profile The levels for files without a level of their own
+     * @param levels The levels for extensions, without the dot
+     * @param largeFileBytes The size from which a file is deflated at the profile's level for large files
+     */
+    public CompressionPolicy(Profile profile, Map<String, Integer> levels, long largeFileBytes) {
+        this.profile = profile;
+        this.levels = new HashMap<>(levels);
+        this.largeFileBytes = largeFileBytes;
+    }
+
+    public static synchronized CompressionPolicy getInstance() {
+        if (instance == null) {
+            instance = new CompressionPolicy(parseProfile(System.getenv(PROFILE_ENV)), parseLevels(System.getenv(LEVELS_ENV)),
+                                             StarterUtil.getEnvLong(LARGE_FILE_ENV, 1024 * 1024));
+            log.fine("Compressing projects with the " + instance.profile + " profile");
+        }
+        return instance;
+    }
+
+    /**
+     * Returns the level to deflate the file at, or {@link #STORED} if it should be stored.
+     * 
+     * @param path The path of the file in the zip
+     * @param content The file, or null if only the path is known
+     */
+    public int getLevel(String path, byte[] content) {
+        return getLevel(path, content, content == null ? -1 : content.length);
+    }
+
+    /**
+     * Returns the level for a file that is streamed rather than read into memory.
+     *
+     * @param start The start of the file, or null if only the path is known
+     * @param size The size of the file, or -1 if it isn't known
+     */
+    public int getLevel(String path, byte[] start, long size) {
+        String extension = getExtension(path);
+        Integer level = levels.get(extension);
+        if (level != null) {
+            return level;
+        }
+        if (COMPRESSED_EXTENSIONS.contains(extension) || (start != null && isCompressed(start))) {
+            return STORED;
+        }
+        return size >= largeFileBytes ? profile.largeFileLevel : profile.level;
+    }
+
+    // Recognises compressed formats from their signature, for files whose name doesn't say what they are
+    private static boolean isCompressed(byte[] content) {
+        return startsWith(content, 0x50, 0x4B, 0x03, 0x04) // zip and jar
+                || startsWith(content, 0x1F, 0x8B) // gzip
+                || startsWith(content, 0x89, 0x50, 0x4E, 0x47) // png
+                || startsWith(content, 0xFF, 0xD8, 0xFF); // jpeg
+    }
+
+    private static boolean startsWith(byte[] content, int... signature) {
+        if (content.length < signature.length) {
+            return false;
+        }
+        for (int i = 0; i < signature.length; i++) {
+            if ((content[i] & 0xFF) != signature[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String getExtension(String path) {
+        int slash = path.lastIndexOf('/');
+        int dot = path.lastIndexOf('.');
+        return dot > slash ? path.substring(dot + 1).toLowerCase(Locale.ROOT) : "";
+    }
+
+    private static Profile parseProfile(String value) {
+        if (value != null && !value.trim().isEmpty()) {
+            try {
+                return Profile.valueOf(value.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                log.warning("Invalid value " + value + " for " + PROFILE_ENV + ", using " + Profile.BALANCED);
+            }
+        }
+        return Profile.BALANCED;
+    }
+
+    private static Map<String, Integer> parseLevels(String value) {
+        Map<String, Integer> levels = new HashMap<>();
+        if (value == null) {
+            return levels;
+        }
+        for (String setting : value.split(",")) {
+            String[] pair = setting.split("=");
+            try {
+                int level = Integer.parseInt(pair[1].trim());
+                if (pair.length != 2 || level < Deflater.NO_COMPRESSION || level > Deflater.BEST_COMPRESSION) {
+                    throw new NumberFormatException();
+                }
+                levels.put(pair[0].trim().replaceFirst("^\\.", "").toLowerCase(Locale.ROOT), level);
+            } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+                log.warning("Ignoring invalid compression level " + setting + " in " + LEVELS_ENV);
+            }
+        }
+        return levels;
+    }
+}
@@ -0,0 +1,354 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.ibm.liberty.starter;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Keeps finished project zips on disk so that downloading the same project again only costs copying a file. Zips
+ * are stored by the SHA-256 hash of their content, which is also their ETag, so projects that come out the same
+ * share a file. Each request key refers to the hash of the zip built for it, and the refs are kept alongside the
+ * zips so the cache survives a restart. Once the zips take up more than the limit the least recently used are
+ * deleted, along with the refs to them.
+ *
+ * The directory and the limit can be set with the environment variables
+ * <code>com_ibm_liberty_starter_downloadCacheDir</code> and <code>com_ibm_liberty_starter_downloadCacheBytes</code>.
+ */
+public class DownloadCache {
+
+    private static final Logger log = Logger.getLogger(DownloadCache.class.getName());
+    private static final String DIR_ENV = "com_ibm_liberty_starter_downloadCacheDir";
+    private static final String MAX_BYTES_ENV = "com_ibm_liberty_starter_downloadCacheBytes";
+    private static final String ARCHIVE_SUFFIX = ".zip";
+    private static final String REF_SUFFIX = ".ref";
+
+    private static DownloadCache instance;
+
+    private final File dir;
+    private final long maxBytes;
+    // Keyed by the name of the ref file of each request key
+    private final Map<String, String> refs = new HashMap<>();
+    // In access order so the first entry is the least recently used zip
+    private final LinkedHashMap<String, Long> archives = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * @param dir The directory to keep the zips in, or null to keep nothing
+     * @param maxBytes The most bytes of zips to keep
+     */
+    public DownloadCache(File dir, long maxBytes) {
+        this.maxBytes = maxBytes;
+        this.dir = dir != null && (dir.isDirectory() || dir.mkdirs()) ? dir : null;
+        if (dir != null && this.dir == null) {
+            log.warning("Unable to create download cache directory " + dir + ", projects won't be cached");
+        }
+        load();
+    }
+
+    public static synchronized DownloadCache getInstance() {
+        if (instance == null) {
+            String dir = System.getenv(DIR_ENV);
+            instance = new DownloadCache(dir == null ? new File(System.getProperty("java.io.tmpdir"), "liberty-starter-downloads") : new File(dir),
+                                         StarterUtil.getEnvLong(MAX_BYTES_ENV, 1024L * 1024 * 1024));
+        }
+        return instance;
+    }
+
+    /**
+     * Returns the zip cached for the key, or null if there isn't one.
+     */
+    public Archive get(String key) {
+        if (dir == null) {
+            return null;
+        }
+        String refName = refName(key);
+        Archive archive = null;
+        synchronized (this) {
+            String hash = refs.get(refName);
+            Long length = hash == null ? null : archives.get(hash);
+            if (length != null) {
+                archive = new Archive(new File(dir, hash + ARCHIVE_SUFFIX), hash, length);
+            }
+        }
+        if (archive == null || !archive.file.isFile()) {
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return archive;
+    }
+
+    /**
+     * Writes a zip for the key and caches it, replacing any zip cached for the key before.
+     *
+     * @throws IOException if the zip couldn't be written or the cache has no directory
+     */
+    public Archive put(String key, ArchiveWriter writer) throws IOException {
+        if (dir == null) {
+            throw new IOException("The download cache has no directory");
+        }
+        File temp = File.createTempFile("download", ".tmp", dir);
+        String hash;
+        try {
+            MessageDigest digest = newDigest();
+            try (OutputStream os = new DigestOutputStream(new BufferedOutputStream(new FileOutputStream(temp)), digest)) {
+                writer.write(os);
+            }
+            hash = toHex(digest.digest());
+            File target = new File(dir, hash + ARCHIVE_SUFFIX);
+            // A project that came out the same as another one shares its file
+            if (target.isFile()) {
+                Files.delete(temp.toPath());
+            } else {
+                Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            }
+        } finally {
+            Files.deleteIfExists(temp.toPath());
+        }
+        String refName = refName(key);
+        File ref = new File(dir, refName);
+        File tempRef = File.createTempFile("ref", ".tmp", dir);
+        Files.write(tempRef.toPath(), hash.getBytes(StandardCharsets.UTF_8));
+        Files.move(tempRef.toPath(), ref.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        File file = new File(dir, hash + ARCHIVE_SUFFIX);
+        Archive archive = new Archive(file, hash, file.length());
+        add(refName, hash, archive.length);
+        return archive;
+    }
+
+    /**
+     * Stops the key referring to the zip cached for it, for example because the project has been generated again.
+     * The zip is kept for any other keys referring to it until it is evicted.
+     */
+    public void invalidate(String key) {
+        if (dir == null) {
+            return;
+        }
+        String refName = refName(key);
+        synchronized (this) {
+            if (refs.remove(refName) == null) {
+                return;
+            }
+        }
+        deleteFile(refName);
+    }
+
+    private void add(String refName, String hash, long length) {
+        List<String> removed = new ArrayList<>();
+        synchronized (this) {
+            refs.put(refName, hash);
+            Long previous = archives.put(hash, length);
+            bytes += length - (previous == null ? 0 : previous);
+            Iterator<Map.Entry<String, Long>> leastRecent = archives.entrySet().iterator();
+            // The zip just added is kept even if it is over the limit on its own, it is about to be sent
+            while (bytes > maxBytes && archives.size() > 1) {
+                Map.Entry<String, Long> oldest = leastRecent.next();
+                leastRecent.remove();
+                bytes -= oldest.getValue();
+                evictions.incrementAndGet();
+                removed.add(oldest.getKey() + ARCHIVE_SUFFIX);
+                Iterator<Map.Entry<String, String>> ref = refs.entrySet().iterator();
+                while (ref.hasNext()) {
+                    Map.Entry<String, String> entry = ref.next();
+                    if (entry.getValue().equals(oldest.getKey())) {
+                        ref.remove();
+                        removed.add(entry.getKey());
+                    }
+                }
+            }
+        }
+        removed.forEach(this::deleteFile);
+    }
+
+    private void deleteFile(String name) {
+        if (!new File(dir, name).delete()) {
+            log.fine("Unable to delete " + name + " from the download cache");
+        }
+    }
+
+    private void load() {
+        if (dir == null) {
+            return;
+        }
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+        Map<String, Long> found = new HashMap<>();
+        for (File file : files) {
+            String name = file.getName();
+            if (name.endsWith(ARCHIVE_SUFFIX)) {
+                found.put(name.substring(0, name.length() - ARCHIVE_SUFFIX.length()), file.length());
+            } else if (name.endsWith(".tmp") && !file.delete()) {
+                log.fine("Unable to delete " + name + " from the download cache");
+            }
+        }
+        for (File file : files) {
+            String name = file.getName();
+            if (!name.endsWith(REF_SUFFIX)) {
+                continue;
+            }
+            try {
+                String hash = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8).trim();
+                Long length = found.get(hash);
+                if (length != null) {
+                    add(name, hash, length);
+                } else {
+                    deleteFile(name);
+                }
+            } catch (IOException e) {
+                log.log(Level.FINE, "Unable to read " + name + " from the download cache", e);
+            }
+        }
+    }
+
+    private static String refName(String key) {
+        return toHex(newDigest().digest(key.getBytes(StandardCharsets.UTF_8))) + REF_SUFFIX;
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String toHex(byte[] digest) {
+        StringBuilder hex = new StringBuilder(digest.length * 2);
+        for (byte b : digest) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+
+    public Stats getStats() {
+        synchronized (this) {
+            return new Stats(hits.get(), misses.get(), evictions.get(), refs.size(), archives.size(), bytes);
+        }
+    }
+
+    /**
+     * Writes a zip to the cache.
+     */
+    @FunctionalInterface
+    public interface ArchiveWriter {
+        void write(OutputStream os) throws IOException;
+    }
+
+    /**
+     * A zip in the cache. The file may be evicted once it has been handed out, so it should be read straight away.
+     */
+    public static class Archive {
+        private final File file;
+        private final String hash;
+        private final long length;
+
+        public Archive(File file, String hash, long length) {
+            this.file = file;
+            this.hash = hash;
+            this.length = length;
+        }
+
+        public File getFile() {
+            return file;
+        }
+
+        /**
+         * Returns the SHA-256 hash of the zip in hex.
+         */
+        public String getHash() {
+            return hash;
+        }
+
+        public String getETag() {
+            return "\"" + hash + "\"";
+        }
+
+        public long getLength() {
+            return length;
+        }
+    }
+
+    public static class Stats {
+        private final long hits;
+        private final long misses;
+        private final long evictions;
+        private final int keys;
+        private final int archives;
+        private final long bytes;
+
+        private Stats(long hits, long misses, long evictions, int keys, int archives, long bytes) {
+            this.hits = hits;
+            this.misses = misses;
+            this.evictions = evictions;
+            this.keys = keys;
+            this.archives = archives;
+            this.bytes = bytes;
+        }
+
+        public long getHits() {
+            return hits;
+        }
+
+        public long getMisses() {
+            return misses;
+        }
+
+        public long getEvictions() {
+            return evictions;
+        }
+
+        public int getKeys() {
+            return keys;
+        }
+
+        public int getArchives() {
+            return archives;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+
+        public double getHitRate() {
+            long lookups = hits + misses;
+            return lookups == 0 ? 0 : (double) hits / lookups;
+        }
+    }
+}
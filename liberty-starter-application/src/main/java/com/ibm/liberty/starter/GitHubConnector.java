@@ -18,6 +18,7 @@ package com.ibm.liberty.starter;
 import org.apache.commons.io.FileUtils;
 import org.eclipse.egit.github.core.Repository;
 import org.eclipse.egit.github.core.User;
+import org.eclipse.egit.github.core.client.GitHubClient;
 import org.eclipse.egit.github.core.service.RepositoryService;
 import org.eclipse.egit.github.core.service.UserService;
 import org.eclipse.jgit.api.CloneCommand;
@@ -32,9 +33,16 @@ import java.io.IOException;
 
 /**
  * This class connects to GitHub to create repositories (using eGit) and push changes (using jGit)
+ *
+ * GitHub can be replaced, for example by a stand-in server for testing, by setting the environment variables
+ * <code>com_ibm_liberty_starter_gitHubUrl</code> for the OAuth pages and <code>com_ibm_liberty_starter_gitHubApiUrl</code>
+ * for the API.
  */
 public class GitHubConnector {
 
+    private static final String GITHUB_URL = System.getenv("com_ibm_liberty_starter_gitHubUrl");
+    private static final String GITHUB_API_URL = System.getenv("com_ibm_liberty_starter_gitHubApiUrl");
+
     private final String oAuthToken;
     private final File localGitDirectory;
     private Git localRepository;
@@ -45,13 +53,25 @@ public class GitHubConnector {
         this.localGitDirectory = new File(StarterUtil.getWorkspaceDir(StarterUtil.createCleanWorkspace()) + "/gitHubProject");
     }
 
+    /**
+     * Returns the base URL for the GitHub OAuth pages, with no trailing slash.
+     */
+    public static String getGitHubUrl() {
+        return GITHUB_URL == null ? "https://github.com" : GITHUB_URL.replaceAll("/+$", "");
+    }
+
+    private GitHubClient createClient() {
+        GitHubClient client = GITHUB_API_URL == null ? new GitHubClient() : GitHubClient.createClient(GITHUB_API_URL);
+        client.setOAuth2Token(oAuthToken);
+        return client;
+    }
+
     /**
      * Creates a repository on GitHub and in a local temporary directory. This is a one time operation as
      * once it is created on GitHub and locally it cannot be recreated.
      */
     public File createGitRepository(String repositoryName) throws IOException {
-        RepositoryService service = new RepositoryService();
-        service.getClient().setOAuth2Token(oAuthToken);
+        RepositoryService service = new RepositoryService(createClient());
         Repository repository = new Repository();
         repository.setName(repositoryName);
         repository = service.createRepository(repository);
@@ -77,8 +97,7 @@ public class GitHubConnector {
             throw new IOException("Git has not been created, call createGitRepositoryFirst");
         }
         try {
-            UserService userService = new UserService();
-            userService.getClient().setOAuth2Token(oAuthToken);
+            UserService userService = new UserService(createClient());
             User user = userService.getUser();
             String name = user.getLogin();
             String email = user.getEmail();
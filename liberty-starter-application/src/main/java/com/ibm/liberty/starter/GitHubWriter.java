@@ -17,7 +17,9 @@ package com.ibm.liberty.starter;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -25,11 +27,11 @@ import java.util.logging.Logger;
 public class GitHubWriter {
 
     private static final Logger log = Logger.getLogger(GitHubWriter.class.getName());
-    private final Map<String, byte[]> fileMap;
+    private final Map<String, ProjectFile> fileMap;
     private final GitHubConnector gitHubConnector;
     private final String projectName;
 
-    public GitHubWriter(Map<String, byte[]> fileMap, String projectName, GitHubConnector gitHubConnector) {
+    public GitHubWriter(Map<String, ProjectFile> fileMap, String projectName, GitHubConnector gitHubConnector) {
         this.fileMap = fileMap;
         this.gitHubConnector = gitHubConnector;
         this.projectName = projectName;
@@ -44,12 +46,14 @@ public class GitHubWriter {
 
     private void writeFilesToLocalRepository(File localRepository) throws IOException {
         log.log(Level.INFO, "Entering method GitHubWriter.writeFilesToLocalRepository()");
-        for (Map.Entry<String, byte[]> fileEntry : fileMap.entrySet()) {
-            byte[] bytes = fileEntry.getValue();
-            if (bytes.length > 0) {
+        for (Map.Entry<String, ProjectFile> fileEntry : fileMap.entrySet()) {
+            ProjectFile file = fileEntry.getValue();
+            if (file.getSize() > 0) {
                 File fileToWrite = new File(localRepository, fileEntry.getKey());
                 fileToWrite.getParentFile().mkdirs();
-                Files.write(fileToWrite.toPath(), bytes);
+                try (InputStream content = file.open()) {
+                    Files.copy(content, fileToWrite.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                }
             }
         }
     }
@@ -0,0 +1,199 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.ibm.liberty.starter;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * Limits how much of a project is held in memory while it is written out. Each request gets its own budget, and
+ * all of the budgets draw on a shared pool, so a burst of large projects can't use up the heap between them. Work
+ * that doesn't fit in the budget is written to spill files instead, which are deleted when the budget is closed
+ * along with any bytes still reserved.
+ *
+ * The budget for each request, the size of the pool and the directory for spill files can be set with the
+ * environment variables <code>com_ibm_liberty_starter_requestMemoryBytes</code>,
+ * <code>com_ibm_liberty_starter_memoryBytes</code> and <code>com_ibm_liberty_starter_spillDir</code>. The pool
+ * defaults to a quarter of the maximum heap.
+ */
+public class MemoryBudget implements Closeable {
+
+    private static final Logger log = Logger.getLogger(MemoryBudget.class.getName());
+    private static final String REQUEST_BYTES_ENV = "com_ibm_liberty_starter_requestMemoryBytes";
+    private static final String POOL_BYTES_ENV = "com_ibm_liberty_starter_memoryBytes";
+    private static final String SPILL_DIR_ENV = "com_ibm_liberty_starter_spillDir";
+
+    private static final Pool shared = new Pool(StarterUtil.getEnvLong(POOL_BYTES_ENV, Runtime.getRuntime().maxMemory() / 4));
+
+    private final long limit;
+    private final Pool pool;
+    private final File spillDir;
+    private final AtomicLong reserved = new AtomicLong();
+    private final List<File> spillFiles = new ArrayList<>();
+    private final List<BlobStore.Blob> blobs = new ArrayList<>();
+
+    /**
+     * @param limit The most bytes the request can hold in memory
+     * @param pool The pool shared with other requests
+     * @param spillDir The directory for spill files, or null for the default temporary directory
+     */
+    public MemoryBudget(long limit, Pool pool, File spillDir) {
+        this.limit = limit;
+        this.pool = pool;
+        this.spillDir = spillDir;
+    }
+
+    /**
+     * Returns a budget for a request drawing on the shared pool.
+     */
+    public static MemoryBudget forRequest() {
+        String spillDir = System.getenv(SPILL_DIR_ENV);
+        return new MemoryBudget(StarterUtil.getEnvLong(REQUEST_BYTES_ENV, 32 * 1024 * 1024), shared, spillDir == null ? null : new File(spillDir));
+    }
+
+    public static Pool getSharedPool() {
+        return shared;
+    }
+
+    /**
+     * Reserves the bytes if they fit both in this budget and in the pool.
+     *
+     * @return true if the bytes were reserved, false if they should be spilled
+     */
+    public boolean tryReserve(long bytes) {
+        long current;
+        do {
+            current = reserved.get();
+            if (current + bytes > limit) {
+                return false;
+            }
+        } while (!reserved.compareAndSet(current, current + bytes));
+        if (!pool.tryReserve(bytes)) {
+            reserved.addAndGet(-bytes);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Reserves the bytes whether or not they fit, for memory that is already in use.
+     */
+    public void reserve(long bytes) {
+        reserved.addAndGet(bytes);
+        pool.reserved.addAndGet(bytes);
+    }
+
+    public void release(long bytes) {
+        reserved.addAndGet(-bytes);
+        pool.reserved.addAndGet(-bytes);
+    }
+
+    public long getReserved() {
+        return reserved.get();
+    }
+
+    /**
+     * Creates a spill file that is deleted when the budget is closed.
+     */
+    public File createSpillFile() throws IOException {
+        File file = File.createTempFile("spill", ".tmp", spillDir);
+        synchronized (spillFiles) {
+            spillFiles.add(file);
+        }
+        pool.spills.incrementAndGet();
+        return file;
+    }
+
+    /**
+     * Records bytes written to a spill file.
+     */
+    public void spilled(long bytes) {
+        pool.spilledBytes.addAndGet(bytes);
+    }
+
+    /**
+     * Retains a shared blob the request is using until the budget is closed.
+     */
+    public void retain(BlobStore.Blob blob) {
+        blob.retain();
+        synchronized (blobs) {
+            blobs.add(blob);
+        }
+    }
+
+    @Override
+    public void close() {
+        pool.reserved.addAndGet(-reserved.getAndSet(0));
+        synchronized (spillFiles) {
+            for (File file : spillFiles) {
+                if (!file.delete() && file.exists()) {
+                    log.fine("Unable to delete spill file " + file);
+                }
+            }
+            spillFiles.clear();
+        }
+        synchronized (blobs) {
+            blobs.forEach(BlobStore.Blob::release);
+            blobs.clear();
+        }
+    }
+
+    /**
+     * The memory shared by the budgets of all requests.
+     */
+    public static class Pool {
+        private final long limit;
+        private final AtomicLong reserved = new AtomicLong();
+        private final AtomicLong spills = new AtomicLong();
+        private final AtomicLong spilledBytes = new AtomicLong();
+
+        public Pool(long limit) {
+            this.limit = limit;
+        }
+
+        private boolean tryReserve(long bytes) {
+            long current;
+            do {
+                current = reserved.get();
+                if (current + bytes > limit) {
+                    return false;
+                }
+            } while (!reserved.compareAndSet(current, current + bytes));
+            return true;
+        }
+
+        public long getLimit() {
+            return limit;
+        }
+
+        public long getReserved() {
+            return reserved.get();
+        }
+
+        public long getSpills() {
+            return spills.get();
+        }
+
+        public long getSpilledBytes() {
+            return spilledBytes.get();
+        }
+    }
+}
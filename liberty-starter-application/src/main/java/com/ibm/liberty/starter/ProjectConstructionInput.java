@@ -18,6 +18,7 @@ package com.ibm.liberty.starter;
 
 import com.ibm.liberty.starter.api.v1.model.internal.Services;
 import com.ibm.liberty.starter.api.v1.model.registration.Service;
+import com.ibm.liberty.starter.exception.ProjectGenerationException;
 import io.jsonwebtoken.*;
 
 import javax.naming.InitialContext;
@@ -26,6 +27,7 @@ import javax.validation.ValidationException;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.List;
+import java.util.Map;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 
@@ -55,9 +57,6 @@ public class ProjectConstructionInput {
                 Service service = serviceConnector.getServiceObjectFromId(tech);
                 if (service != null) {
                     serviceList.add(service);
-                    if (prepareDynamicPackages) {
-                        prepareDynamicPackages(service, workspaceId, getTechOptions(techOptions, tech), techs);
-                    }
                 }
             } else {
                 log.info("Invalid tech type: " + tech);
@@ -105,12 +104,31 @@ public class ProjectConstructionInput {
             log.severe("Invalid generationId.");
             throw new ValidationException();
         }
+        if (prepareDynamicPackages) {
+            prepareDynamicPackages(serviceList, workspaceId, techOptions, techs);
+        }
         return new ProjectConstructionInputData(services, serviceConnector, name, deployType, buildType, StarterUtil.getWorkspaceDir(workspaceId), techOptions, artifactId, groupId, generationId, beta);
     }
     
-    private void prepareDynamicPackages(Service service, String workspaceId, String techOptions, String[] techs) {
-        if (workspaceId != null && !workspaceId.trim().isEmpty()) {
-            serviceConnector.prepareDynamicPackages(service, StarterUtil.getWorkspaceDir(workspaceId) + "/" + service.getId(), techOptions, techs);
+    /**
+     * Has the providers prepare the packages for input that was processed without preparing them, so that
+     * validating the input and preparing the packages can be reported as separate steps.
+     */
+    public void prepareDynamicPackages(ProjectConstructionInputData inputData, String workspaceId, String[] techOptions, String[] techs) {
+        prepareDynamicPackages(inputData.services.getServices(), workspaceId, techOptions, techs);
+    }
+
+    // Each provider prepares its packages concurrently, after any of the selected technologies it builds on
+    private void prepareDynamicPackages(List<Service> serviceList, String workspaceId, String[] techOptions, String[] techs) {
+        if (workspaceId == null || workspaceId.trim().isEmpty()) {
+            return;
+        }
+        String workspaceDir = StarterUtil.getWorkspaceDir(workspaceId);
+        Map<String, Throwable> failures = new ServiceTaskRunner().run(serviceList, service ->
+            serviceConnector.prepareDynamicPackages(service, workspaceDir + "/" + service.getId(), getTechOptions(techOptions, service.getId()), techs));
+        if (!failures.isEmpty()) {
+            failures.forEach((id, failure) -> log.severe("Preparing dynamic packages for " + id + " failed: " + failure));
+            throw new ProjectGenerationException("Unable to prepare packages for " + String.join(", ", failures.keySet()));
         }
     }
 
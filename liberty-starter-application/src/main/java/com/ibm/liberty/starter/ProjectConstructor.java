@@ -17,10 +17,19 @@ package com.ibm.liberty.starter;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.List;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -37,8 +46,13 @@ import com.ibm.liberty.starter.exception.ProjectGenerationException;
 public class ProjectConstructor {
     
     private static final Logger log = Logger.getLogger(ProjectConstructor.class.getName());
-    private ConcurrentHashMap<String, byte[]> fileMap = new ConcurrentHashMap<>();
+    // Where the dynamic packages are moved to while the project is written, under the workspace
+    private static final String PACKAGED_DIR = ".packaged";
+    private static final String MAX_FILES_ENV = "com_ibm_liberty_starter_packageMaxFiles";
+    private static final String MAX_BYTES_ENV = "com_ibm_liberty_starter_packageMaxBytes";
+    private ConcurrentHashMap<String, ProjectFile> fileMap = new ConcurrentHashMap<>();
     private final ProjectConstructionInputData inputData;
+    private volatile File packagedDir;
 
     public ProjectConstructor(ProjectConstructionInputData inputData) {
         this.inputData = inputData;
@@ -56,38 +70,90 @@ public class ProjectConstructor {
         }
     }
     
-    public Map<String, byte[]> getFileMap() {
+    public Map<String, ProjectFile> getFileMap() {
         return fileMap;
     }
     
-    public Map<String, byte[]> buildFileMap() throws IOException, SAXException, ParserConfigurationException, TransformerException, ProjectGenerationException {
+    /**
+     * Builds the files for the project. Files from the workspace are only read when the project is written out,
+     * so {@link #cleanUp()} must be called once it has been.
+     */
+    public Map<String, ProjectFile> buildFileMap() throws IOException, SAXException, ParserConfigurationException, TransformerException, ProjectGenerationException {
         addBxCodegenFilesToMap();
         addDynamicPackages();
-        cleanUpDynamicPackages();
         return fileMap;
     }
     
-    private void addBxCodegenFilesToMap() throws ProjectGenerationException {
-        Map<String, byte[]> map = (new BxCodegenClient()).getFileMap(inputData);
-        fileMap.putAll(map);
+    /**
+     * Builds the files for the project without holding a thread while codegen runs. The codegen files are
+     * downloaded and the dynamic packages added on the given executor. {@link #cleanUp()} must be called once
+     * the files have been written out.
+     */
+    public CompletableFuture<Map<String, ProjectFile>> buildFileMapAsync(Executor executor) throws ProjectGenerationException {
+        CompletableFuture<Map<String, ProjectFile>> files = new BxCodegenClient().getFileMapAsync(inputData, executor).thenApplyAsync(map -> {
+            fileMap.putAll(map);
+            try {
+                addDynamicPackages();
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+            return fileMap;
+        }, executor);
+        files.whenComplete((map, failure) -> {
+            if (failure != null) {
+                cleanUp();
+            }
+        });
+        return files;
     }
     
-    private void cleanUpDynamicPackages() throws IOException{
-        // Delete dynamically generated packages as they were already packaged.
-        // ** Note **: Don't delete these packages prior to this stage as other operations may depend on the existence of these packages to perform certain tasks.
-        for (Service service : inputData.services.getServices()) {
-            String serviceId = service.getId();
-            
-            String packageLocation = inputData.workspaceDirectory + "/" + serviceId + "/" + StarterUtil.PACKAGE_DIR;
-            File packageDir = new File(packageLocation);
-            
-            if(packageDir.exists() && packageDir.isDirectory()){
-                FileUtils.deleteDirectory(packageDir);
-                log.log(Level.FINE, "Deleted package directory for " + serviceId + " technology. : " + packageLocation);
+    /**
+     * Prepares the zip of the project without holding a thread while codegen runs. Nothing is read into memory
+     * until the zip is written, the codegen zip is streamed into the project zip and the dynamic packages are read
+     * from the workspace, so {@link #cleanUp()} must be called once it has been. Cancelling the future cancels the
+     * codegen job, unless another request is waiting for the same project, and cleans up.
+     */
+    public CompletableFuture<ZipWriter> buildZipAsync(Executor executor) throws ProjectGenerationException {
+        CompletableFuture<byte[]> codegenZip = new BxCodegenClient().getProjectZipAsync(inputData, executor);
+        CompletableFuture<ZipWriter> writer = codegenZip.thenApplyAsync(zip -> {
+            try {
+                addDynamicPackages();
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+            return new ZipWriter(zip, fileMap);
+        }, executor);
+        writer.whenComplete((zipWriter, failure) -> {
+            if (failure != null) {
+                fileMap.clear();
+                cleanUp();
+            }
+        });
+        return StarterUtil.propagateCancellation(writer, codegenZip);
+    }
+    
+    /**
+     * Deletes the dynamic packages added to the project. Call once the project has been written out, it can be
+     * called more than once.
+     */
+    public void cleanUp() {
+        File packaged = packagedDir;
+        packagedDir = null;
+        if (packaged != null && packaged.exists()) {
+            try {
+                FileUtils.deleteDirectory(packaged);
+                log.log(Level.FINE, "Deleted packaged directory : " + packaged);
+            } catch (IOException e) {
+                log.log(Level.WARNING, "Unable to delete packaged directory " + packaged, e);
             }
         }
     }
     
+    private void addBxCodegenFilesToMap() throws ProjectGenerationException {
+        Map<String, ProjectFile> map = (new BxCodegenClient()).getFileMap(inputData);
+        fileMap.putAll(map);
+    }
+    
     private void addDynamicPackages() throws IOException {
         log.log(Level.FINE, "Entering method ProjectConstructor.addDynamicPackages()");
         if(inputData.workspaceDirectory == null || inputData.workspaceDirectory.isEmpty() || !(new File(inputData.workspaceDirectory).exists())){
@@ -95,6 +161,7 @@ public class ProjectConstructor {
             return;
         }
         
+        PackageLimits limits = new PackageLimits(StarterUtil.getEnvLong(MAX_FILES_ENV, 10000), StarterUtil.getEnvLong(MAX_BYTES_ENV, 256L * 1024 * 1024));
         for (Service service : inputData.services.getServices()) {
             String serviceId = service.getId();
             String packageLocation = inputData.workspaceDirectory + "/" + serviceId + "/" + StarterUtil.PACKAGE_DIR;
@@ -102,24 +169,103 @@ public class ProjectConstructor {
             
             if(packageDir.exists() && packageDir.isDirectory()){
                 log.log(Level.FINE, "Package directory for " + serviceId + " technology exists : " + packageLocation);
-                List<File> filesListInDir = new ArrayList<File>();
-                StarterUtil.populateFilesList(packageDir, filesListInDir);
-                
-                for(File aFile : filesListInDir){
-                    String path = aFile.getAbsolutePath().replace('\\', '/').replace(packageLocation, "");
-
-                    if(path.startsWith("/")){
-                        path = path.substring(1);
-                    }
-                    putFileInMap(path, FileUtils.readFileToByteArray(aFile));
-                    log.log(Level.FINE, "Packaged file " + aFile.getAbsolutePath() + " to " + path);
+                // The package is moved out of the way so that it's only packaged once, but its files are left on disk until the project is written
+                // ** Note **: Don't move these packages prior to this stage as other operations may depend on the existence of these packages to perform certain tasks.
+                File packaged = movePackage(packageDir, serviceId);
+                if (packaged != null) {
+                    Files.walkFileTree(packaged.toPath(), new PackageVisitor(packaged.toPath(), null, limits));
+                } else {
+                    // The files are copied instead, so that they can still be read when the project is written
+                    packaged = new File(packagedDir, serviceId);
+                    Files.walkFileTree(packageDir.toPath(), new PackageVisitor(packageDir.toPath(), packaged.toPath(), limits));
+                    FileUtils.deleteDirectory(packageDir);
+                    log.log(Level.FINE, "Deleted package directory for " + serviceId + " technology. : " + packageLocation);
                 }
             }
         }
         log.log(Level.FINE, "Exiting method ProjectConstructor.addDynamicPackages()");
     }
     
-    private void putFileInMap(String path, byte[] file) {
+    // Returns where the package was moved to, or null if it couldn't be moved and has to be copied
+    private File movePackage(File packageDir, String serviceId) throws IOException {
+        if (packagedDir == null) {
+            packagedDir = new File(inputData.workspaceDirectory, PACKAGED_DIR + "/" + UUID.randomUUID());
+        }
+        File packaged = new File(packagedDir, serviceId);
+        Files.createDirectories(packagedDir.toPath());
+        try {
+            Files.move(packageDir.toPath(), packaged.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            return packaged;
+        } catch (IOException e) {
+            log.log(Level.FINE, "Unable to move package directory " + packageDir + ", copying it", e);
+            return null;
+        }
+    }
+    
+    // The number of files and bytes the packages of a project can add, so a runaway package fails the request rather than the server
+    private static class PackageLimits {
+        private long files;
+        private long bytes;
+        
+        PackageLimits(long files, long bytes) {
+            this.files = files;
+            this.bytes = bytes;
+        }
+        
+        void add(Path file, long size) {
+            files--;
+            bytes -= size;
+            if (files < 0 || bytes < 0) {
+                throw new ProjectGenerationException("The packages for the project are too large, unable to add " + file);
+            }
+        }
+    }
+    
+    /*
+     * Adds the files of a package to the project, with their path relative to the package. Links aren't followed,
+     * so a package can't loop back on itself or add files from outside of the workspace. If a copy directory is
+     * given the files are copied there and added from the copy.
+     */
+    private class PackageVisitor extends SimpleFileVisitor<Path> {
+        private final Path dir;
+        private final Path copyDir;
+        private final PackageLimits limits;
+        
+        PackageVisitor(Path dir, Path copyDir, PackageLimits limits) {
+            this.dir = dir;
+            this.copyDir = copyDir;
+            this.limits = limits;
+        }
+        
+        @Override
+        public FileVisitResult preVisitDirectory(Path directory, BasicFileAttributes attrs) throws IOException {
+            if (copyDir != null) {
+                Files.createDirectories(copyDir.resolve(dir.relativize(directory)));
+            }
+            return FileVisitResult.CONTINUE;
+        }
+        
+        @Override
+        public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+            if (!attrs.isRegularFile()) {
+                log.log(Level.WARNING, "Skipping " + file + " in package as it isn't a regular file");
+                return FileVisitResult.CONTINUE;
+            }
+            limits.add(file, attrs.size());
+            Path relative = dir.relativize(file);
+            Path packagedFile = file;
+            if (copyDir != null) {
+                packagedFile = copyDir.resolve(relative);
+                Files.copy(file, packagedFile, LinkOption.NOFOLLOW_LINKS);
+            }
+            String path = relative.toString().replace(File.separatorChar, '/');
+            putFileInMap(path, ProjectFile.shared(packagedFile));
+            log.log(Level.FINE, "Packaged file " + file + " to " + path);
+            return FileVisitResult.CONTINUE;
+        }
+    }
+    
+    private void putFileInMap(String path, ProjectFile file) {
         log.log(Level.INFO, "Inserting file " + path + " into map.");
         fileMap.put(path, file);
     }
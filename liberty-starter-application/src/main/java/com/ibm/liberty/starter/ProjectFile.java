@@ -0,0 +1,158 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.ibm.liberty.starter;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.ZipException;
+
+/**
+ * A file of a project, whose content is only read when the project is written out. The content can come from a
+ * file in a workspace, an entry of the zip generated by codegen or an array already in memory, so a project waiting
+ * to be written only holds on to where each of its files is and how big it is.
+ */
+public final class ProjectFile {
+
+    /**
+     * Opens the content of a file. Each call returns a new stream that the caller closes.
+     */
+    @FunctionalInterface
+    public interface Source {
+        InputStream open() throws IOException;
+    }
+
+    private final long size;
+    private final Source source;
+    // Set for a file whose content is already in memory, so it can be handed out without copying
+    private final byte[] content;
+    // Set for a file whose content is shared with other projects
+    private final BlobStore.Blob blob;
+    // True if the content should be shared once it is read
+    private final boolean shared;
+
+    private ProjectFile(long size, Source source, byte[] content, BlobStore.Blob blob, boolean shared) {
+        this.size = size;
+        this.source = source;
+        this.content = content;
+        this.blob = blob;
+        this.shared = shared;
+    }
+
+    public static ProjectFile of(byte[] content) {
+        return new ProjectFile(content.length, () -> new ByteArrayInputStream(content), content, null, false);
+    }
+
+    public static ProjectFile of(BlobStore.Blob blob) {
+        byte[] content = blob.getContent();
+        return new ProjectFile(content.length, () -> new ByteArrayInputStream(content), content, blob, blob.isShared());
+    }
+
+    /**
+     * Returns a file whose content is shared through the {@link BlobStore} with other projects that have a file
+     * with the same content. The array must not be modified once it has been given.
+     */
+    public static ProjectFile shared(byte[] content) {
+        return of(BlobStore.getInstance().intern(content));
+    }
+
+    /**
+     * Returns a file read from the given path when it is written out, like {@link #of(Path)}, whose content is
+     * then shared through the {@link BlobStore} with other projects that have a file with the same content.
+     */
+    public static ProjectFile shared(Path file) throws IOException {
+        ProjectFile projectFile = of(file);
+        return new ProjectFile(projectFile.size, projectFile.source, null, null, true);
+    }
+
+    /**
+     * Returns a file read from the given path when it is written out. The file must not change size until then.
+     */
+    public static ProjectFile of(Path file) throws IOException {
+        return new ProjectFile(Files.size(file), () -> Files.newInputStream(file), null, null, false);
+    }
+
+    /**
+     * @param size The exact number of bytes the source gives
+     */
+    public static ProjectFile of(long size, Source source) {
+        return new ProjectFile(size, source, null, null, false);
+    }
+
+    /**
+     * Returns the files in a zip keyed by their path, in the order they are in the zip. Each file is inflated from
+     * the zip when it is read, so the zip must not be modified.
+     *
+     * @throws ZipException if the zip can't be read
+     */
+    public static Map<String, ProjectFile> fromZip(byte[] zip) throws ZipException {
+        return new ZipRepackager(zip).getFiles();
+    }
+
+    /**
+     * Returns the files in memory keyed by their path.
+     */
+    public static Map<String, ProjectFile> fromBytes(Map<String, byte[]> files) {
+        Map<String, ProjectFile> projectFiles = new LinkedHashMap<>();
+        files.forEach((path, content) -> projectFiles.put(path, of(content)));
+        return projectFiles;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public InputStream open() throws IOException {
+        return source.open();
+    }
+
+    /**
+     * Returns true if the content of the file is shared with other projects, see {@link #readBlob()}.
+     */
+    public boolean isShared() {
+        return shared;
+    }
+
+    /**
+     * Returns the content as the blob it is shared in, reading the file and adding it to the {@link BlobStore} if
+     * it hasn't been read yet.
+     */
+    public BlobStore.Blob readBlob() throws IOException {
+        return blob != null ? blob : BlobStore.getInstance().intern(read());
+    }
+
+    /**
+     * Returns the whole content of the file. The array must not be modified as it may be shared.
+     */
+    public byte[] read() throws IOException {
+        if (content != null) {
+            return content;
+        }
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException("File too large to read into memory: " + size + " bytes");
+        }
+        byte[] read = new byte[(int) size];
+        try (DataInputStream is = new DataInputStream(open())) {
+            is.readFully(read);
+        }
+        return read;
+    }
+}
@@ -0,0 +1,194 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.ibm.liberty.starter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.json.Json;
+import javax.json.JsonArrayBuilder;
+import javax.json.JsonObject;
+import javax.json.JsonObjectBuilder;
+
+import com.ibm.liberty.starter.api.v1.model.internal.Services;
+import com.ibm.liberty.starter.api.v1.model.registration.Service;
+
+/**
+ * The registered services merged with the details and samples published by each of their providers. The
+ * providers are called concurrently and the combined document is kept, already serialized, until the version of
+ * the registered services changes. If a provider can't be reached its entry is marked as unavailable and the
+ * catalog is built again after <code>com_ibm_liberty_starter_catalogRetryMillis</code> milliseconds. Only the
+ * first build holds up requests, later ones run in the background while the previous catalog is served.
+ */
+@ApplicationScoped
+public class ProviderCatalog {
+
+    private static final Logger log = Logger.getLogger(ProviderCatalog.class.getName());
+    private static final String TIMEOUT_ENV = "com_ibm_liberty_starter_catalogTimeout";
+    private static final String RETRY_MILLIS_ENV = "com_ibm_liberty_starter_catalogRetryMillis";
+
+    private final long timeoutMillis = StarterUtil.getEnvLong(TIMEOUT_ENV, 10000);
+    private final long retryMillis = StarterUtil.getEnvLong(RETRY_MILLIS_ENV, 30000);
+    private volatile Catalog catalog;
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+
+    /**
+     * Returns the catalog for the current services. The first call builds it, after that a catalog for services
+     * that have changed, or that is due to be retried, is built in the background and the previous one is
+     * returned until it is ready.
+     */
+    public Catalog getCatalog(ServiceConnector serviceConnector) {
+        String version = serviceConnector.getServicesVersion();
+        Catalog current = catalog;
+        if (current == null) {
+            synchronized (this) {
+                current = catalog;
+                if (current == null) {
+                    current = build(serviceConnector, version);
+                    catalog = current;
+                }
+            }
+        }
+        if (!current.isFor(version) && rebuilding.compareAndSet(false, true)) {
+            StarterUtil.createThreadFactory("ProviderCatalog").newThread(() -> {
+                try {
+                    catalog = build(serviceConnector, version);
+                } catch (RuntimeException e) {
+                    log.log(Level.WARNING, "Unable to build the catalog", e);
+                } finally {
+                    rebuilding.set(false);
+                }
+            }).start();
+        }
+        return current;
+    }
+
+    private Catalog build(ServiceConnector serviceConnector, String version) {
+        Services services = serviceConnector.getServices();
+        List<CompletableFuture<JsonObject>> entries = new ArrayList<>();
+        for (Service service : services.getServices()) {
+            try {
+                entries.add(CompletableFuture.supplyAsync(() -> fetchEntry(serviceConnector, service), ServiceTaskRunner.getExecutor()));
+            } catch (RejectedExecutionException e) {
+                log.warning("Unable to get the details of provider " + service.getId() + " as the pool is busy");
+                entries.add(CompletableFuture.completedFuture(toJson(service).add("available", false).build()));
+            }
+        }
+        try {
+            CompletableFuture.allOf(entries.toArray(new CompletableFuture<?>[entries.size()])).get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            log.warning("Not all providers responded within " + timeoutMillis + "ms");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            // fetchEntry handles its own failures
+        }
+
+        boolean complete = true;
+        JsonArrayBuilder technologies = Json.createArrayBuilder();
+        for (int i = 0; i < entries.size(); i++) {
+            CompletableFuture<JsonObject> entry = entries.get(i);
+            JsonObject json = entry.getNow(null);
+            if (json == null) {
+                entry.cancel(true);
+                json = toJson(services.getServices().get(i)).add("available", false).build();
+            }
+            complete &= json.getBoolean("available");
+            technologies.add(json);
+        }
+        JsonObject document = Json.createObjectBuilder().add("technologies", technologies).build();
+        return new Catalog(version, document, complete ? Long.MAX_VALUE : System.currentTimeMillis() + retryMillis);
+    }
+
+    private static JsonObject fetchEntry(ServiceConnector serviceConnector, Service service) {
+        JsonObjectBuilder entry = toJson(service);
+        try {
+            entry.add("provider", serviceConnector.getProviderDetails(service));
+            JsonObject samples = serviceConnector.getProviderSamples(service);
+            if (samples != null) {
+                entry.add("samples", samples);
+            }
+            return entry.add("available", true).build();
+        } catch (RuntimeException e) {
+            log.log(Level.WARNING, "Unable to get the details of provider " + service.getId(), e);
+            return toJson(service).add("available", false).build();
+        }
+    }
+
+    private static JsonObjectBuilder toJson(Service service) {
+        JsonObjectBuilder json = Json.createObjectBuilder();
+        addIfSet(json, "id", service.getId());
+        addIfSet(json, "name", service.getName());
+        addIfSet(json, "description", service.getDescription());
+        addIfSet(json, "endpoint", service.getEndpoint());
+        addIfSet(json, "configuration", service.getConfiguration());
+        json.add("options", service.getOptions());
+        addIfSet(json, "image", service.getImage());
+        addIfSet(json, "imageSelected", service.getImageSelected());
+        return json;
+    }
+
+    private static void addIfSet(JsonObjectBuilder json, String name, String value) {
+        if (value != null) {
+            json.add(name, value);
+        }
+    }
+
+    /**
+     * One build of the catalog, serialized once with a strong ETag.
+     */
+    public static class Catalog {
+        private final String version;
+        private final JsonObject json;
+        private final byte[] bytes;
+        private final String etag;
+        private final long expires;
+
+        private Catalog(String version, JsonObject json, long expires) {
+            this.version = version;
+            this.json = json;
+            this.expires = expires;
+            bytes = json.toString().getBytes(StandardCharsets.UTF_8);
+            etag = StarterUtil.createETag(bytes);
+        }
+
+        private boolean isFor(String currentVersion) {
+            return version.equals(currentVersion) && System.currentTimeMillis() < expires;
+        }
+
+        public JsonObject getJson() {
+            return json;
+        }
+
+        public byte[] getBytes() {
+            return bytes;
+        }
+
+        public String getETag() {
+            return etag;
+        }
+    }
+}
@@ -15,81 +15,101 @@
  *******************************************************************************/
 package com.ibm.liberty.starter;
 
+import java.io.ByteArrayInputStream;
 import java.io.InputStream;
 import java.net.URI;
+import java.util.Optional;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 import java.util.logging.Logger;
 
-import javax.ws.rs.client.Client;
-import javax.ws.rs.client.ClientBuilder;
-import javax.ws.rs.client.Invocation;
-import javax.ws.rs.client.WebTarget;
+import javax.json.JsonObject;
+import javax.validation.ValidationException;
+import javax.ws.rs.NotFoundException;
+import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
 
 import com.ibm.liberty.starter.api.v1.model.internal.Services;
 import com.ibm.liberty.starter.api.v1.model.registration.Service;
+import com.ibm.liberty.starter.client.CircuitBreaker;
+import com.ibm.liberty.starter.client.CircuitBreakers;
+import com.ibm.liberty.starter.client.LocalProviderDispatcher;
+import com.ibm.liberty.starter.client.OutboundClient;
+import com.ibm.liberty.starter.exception.ProjectGenerationException;
 
 public class ServiceConnector {
     
     private static final Logger log = Logger.getLogger(ServiceConnector.class.getName());
     
-    private final Services services;
+    private final ServiceRegistry serviceRegistry;
     private String serverHostPort;
     private final String internalServerHostPort;
     
-    public ServiceConnector(URI uri) {
+    public ServiceConnector(URI uri, ServiceRegistry serviceRegistry) {
         String scheme = uri.getScheme();
         String authority = uri.getAuthority();
         serverHostPort = scheme + "://" + authority;
         internalServerHostPort = "http://" + authority;
-        services = parseServicesJson();
+        this.serviceRegistry = serviceRegistry;
     }
 
-    public ServiceConnector(String hostPort, String internalHostPort) {
+    public ServiceConnector(String hostPort, String internalHostPort, ServiceRegistry serviceRegistry) {
         serverHostPort = hostPort;
         internalServerHostPort = internalHostPort;
-        services = parseServicesJson();
+        this.serviceRegistry = serviceRegistry;
     }
     
-    public Services parseServicesJson() {
-        log.fine("Parsing services json file. INTERNAL_SERVER_HOST_PORT=" + internalServerHostPort);
-        Services services = getObjectFromEndpoint(Services.class, 
-                internalServerHostPort + "/start/api/v1/services", 
-                                                  MediaType.APPLICATION_JSON_TYPE);
-        log.fine("Setting SERVICES object to " + services.getServices());
-        return services;
+    public Services getServices() {
+        return serviceRegistry.getServices();
     }
     
-    public Services getServices() {
-        return services;
+    /**
+     * Returns the version of the registered services, see {@link ServiceRegistry#getVersion()}.
+     */
+    public String getServicesVersion() {
+        return serviceRegistry.getVersion();
     }
     
     public String getServerHostPort() {
         return serverHostPort;
     }
     
-    // Returns the service object associated with the given id
+    // Returns the service object associated with the given id or alias
     public Service getServiceObjectFromId(String id) {
-        log.fine("Return service object for " + id);
-        Service service = null;
-        for (Service s : services.getServices()) {
-            if (id.equals(s.getId())) {
-                return s;
-            }
-        }
-        return service;
+        return serviceRegistry.getService(id);
     }
     
     public String processUploadedFiles(Service service, String uploadDirectory) {
         log.finer("service=" + service.getId() + " : uploadDirectory=" + uploadDirectory);
-        String url = urlConstructor("/api/v1/provider/uploads/process?path=" + uploadDirectory, service);
-        String response = getObjectFromEndpoint(String.class, url, MediaType.TEXT_PLAIN_TYPE);
+        String response = callProvider(service, () -> {
+            Optional<String> localResponse = LocalProviderDispatcher.getInstance().processUploads(service, uploadDirectory);
+            return localResponse.isPresent() ? localResponse.get()
+                    : getObjectFromEndpoint(String.class, urlConstructor("/api/v1/provider/uploads/process?path=" + uploadDirectory, service), MediaType.TEXT_PLAIN_TYPE);
+        }, result -> false);
         log.fine("Response of processing uploaded files from " + uploadDirectory + " : " + response);
         return response;
     }
     
     public void prepareDynamicPackages(Service service, String techWorkspaceDir, String options, String[] techs) {
         log.finer("service=" + service.getId() + " : options=" + options + " : techWorkspaceDir=" + techWorkspaceDir + " : techs=" + techs);
+        // A server error is counted against the provider but, as before, doesn't stop the project being generated
+        callProvider(service, () -> prepareDynamicPackagesStatus(service, techWorkspaceDir, options, techs), status -> status >= 500);
+    }
+    
+    private int prepareDynamicPackagesStatus(Service service, String techWorkspaceDir, String options, String[] techs) {
+        try {
+            Optional<String> localResponse = LocalProviderDispatcher.getInstance().prepareDynamicPackages(service, techWorkspaceDir, options, String.join(",", techs));
+            if (localResponse.isPresent()) {
+                log.fine("Response of preparing dynamic packages from " + techWorkspaceDir + " : " + localResponse.get());
+                return Status.OK.getStatusCode();
+            }
+        } catch (UnsupportedOperationException e) {
+            // The service doesn't offer this operation, the same as the 404 below
+            log.warning("Ignore expected failure : The service " + service.getId() + " doesn't offer packages/prepare");
+            return Status.NOT_FOUND.getStatusCode();
+        }
         String optionsParam = (options != null && !options.trim().isEmpty()) ? ("&options=" + options) : "";
         String techsParam = "&techs=" + String.join(",", techs);
         String url = urlConstructor("/api/v1/provider/packages/prepare?path=" + techWorkspaceDir + optionsParam + techsParam, service);
@@ -101,12 +121,70 @@ public class ServiceConnector {
         } else {
             log.fine("Response of preparing dynamic packages from " + techWorkspaceDir + " : " + responseString);
         }
+        return response.getStatus();
     }
     
     public InputStream getArtifactAsInputStream(Service service, String extension) {
-        extension = extension.startsWith("/") ? extension.substring(1) : extension;
-        String url = urlConstructor("/artifacts/" + extension, service);
-        return getObjectFromEndpoint(InputStream.class, url, MediaType.WILDCARD_TYPE);
+        String path = extension.startsWith("/") ? extension.substring(1) : extension;
+        return callProvider(service, () -> {
+            Optional<byte[]> localArtifact = LocalProviderDispatcher.getInstance().getArtifact(service, path);
+            if (localArtifact.isPresent()) {
+                return new ByteArrayInputStream(localArtifact.get());
+            }
+            return getObjectFromEndpoint(InputStream.class, urlConstructor("/artifacts/" + path, service), MediaType.WILDCARD_TYPE);
+        }, result -> false);
+    }
+    
+    /**
+     * Returns the details the provider publishes at v1/provider.
+     */
+    public JsonObject getProviderDetails(Service service) {
+        return callProvider(service, () -> getObjectFromEndpoint(JsonObject.class, urlConstructor("/api/v1/provider/", service), MediaType.APPLICATION_JSON_TYPE), result -> false);
+    }
+    
+    /**
+     * Returns the samples the provider publishes at v1/provider/samples, or null if it doesn't have any.
+     */
+    public JsonObject getProviderSamples(Service service) {
+        try {
+            return callProvider(service, () -> getObjectFromEndpoint(JsonObject.class, urlConstructor("/api/v1/provider/samples", service), MediaType.APPLICATION_JSON_TYPE), result -> false);
+        } catch (NotFoundException e) {
+            return null;
+        }
+    }
+    
+    /**
+     * Makes a call to the provider of the service through its circuit breaker. The call is refused with a
+     * ProjectGenerationException while the breaker is open. Connection failures, server errors and any result
+     * matching <code>failed</code> count against the provider; other errors, such as a 404, mean the provider
+     * is responding.
+     */
+    private <T> T callProvider(Service service, Supplier<T> call, Predicate<T> failed) {
+        CircuitBreaker breaker = CircuitBreakers.getInstance().get(service.getId());
+        CircuitBreaker.Permit permit = breaker.tryAcquire();
+        if (permit == null) {
+            throw new ProjectGenerationException("The " + service.getId() + " technology is currently unavailable, please try again later");
+        }
+        long start = System.currentTimeMillis();
+        boolean failure = true;
+        try {
+            T result = call.get();
+            failure = failed.test(result);
+            return result;
+        } catch (WebApplicationException e) {
+            failure = e.getResponse().getStatus() >= 500;
+            throw e;
+        } catch (UnsupportedOperationException | ValidationException e) {
+            failure = false;
+            throw e;
+        } finally {
+            long duration = System.currentTimeMillis() - start;
+            if (failure) {
+                permit.onFailure(duration);
+            } else {
+                permit.onSuccess(duration);
+            }
+        }
     }
     
     private String urlConstructor(String extension, Service service) {
@@ -117,22 +195,17 @@ public class ServiceConnector {
     
     public < E > E getObjectFromEndpoint(Class<E> klass, String url, MediaType mediaType) {
         System.out.println("Getting object from url " + url);
-        Client client = ClientBuilder.newClient();
-        WebTarget target = client.target(url);
-        Invocation.Builder invoBuild = target.request();
-        E object = invoBuild.accept(mediaType).get(klass);
-        client.close();
-        return object;
+        return OutboundClient.getInstance().invoke(url, request -> request.accept(mediaType).get(klass));
     }
     
     public Response getResponseFromEndpoint(String url, MediaType mediaType) {
         System.out.println("Getting object from url " + url);
-        Client client = ClientBuilder.newClient();
-        WebTarget target = client.target(url);
-        Invocation.Builder invoBuild = target.request();
-        Response response = invoBuild.accept(mediaType).get();
-        client.close();
-        return response;
+        return OutboundClient.getInstance().invoke(url, request -> {
+            Response response = request.accept(mediaType).get();
+            // Read the entity now so the connection can be reused
+            response.bufferEntity();
+            return response;
+        });
     }
 
 }
@@ -0,0 +1,206 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.ibm.liberty.starter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.json.JsonArray;
+import javax.json.JsonObject;
+import javax.json.JsonString;
+
+import com.ibm.liberty.starter.api.v1.model.internal.Services;
+import com.ibm.liberty.starter.api.v1.model.registration.Service;
+import com.ibm.liberty.starter.api.v1.temp.ServiceFinder;
+
+/**
+ * Holds the set of registered services for the whole application. The services are read once, kept as an
+ * immutable snapshot and refreshed in the background so that handling a request never has to fetch them.
+ * Each snapshot is indexed by service ID and by the aliases declared for a service in services.json, and is
+ * only replaced when the content of services.json has changed.
+ */
+@ApplicationScoped
+public class ServiceRegistry {
+
+    private static final Logger log = Logger.getLogger(ServiceRegistry.class.getName());
+    private static final String REFRESH_SECONDS_ENV = "com_ibm_liberty_starter_servicesRefreshSeconds";
+    private static final long DEFAULT_REFRESH_SECONDS = 60;
+
+    private volatile ServicesDocument document;
+    private volatile Snapshot snapshot;
+    private ScheduledExecutorService refresher;
+
+    @PostConstruct
+    public void startRefresh() {
+        long refreshSeconds = StarterUtil.getEnvLong(REFRESH_SECONDS_ENV, DEFAULT_REFRESH_SECONDS);
+        refresher = Executors.newSingleThreadScheduledExecutor(StarterUtil.createThreadFactory("ServiceRegistry-refresh"));
+        refresher.scheduleWithFixedDelay(this::refresh, refreshSeconds, refreshSeconds, TimeUnit.SECONDS);
+        log.fine("Refreshing services every " + refreshSeconds + " seconds");
+    }
+
+    @PreDestroy
+    public void stopRefresh() {
+        if (refresher != null) {
+            refresher.shutdownNow();
+        }
+    }
+
+    /**
+     * Returns the current snapshot of the registered services. The first call loads the services if the
+     * background refresh hasn't done so yet.
+     */
+    public Services getServices() {
+        return getSnapshot().services;
+    }
+
+    /**
+     * Returns the version of the current snapshot, which changes whenever the services do. Read it before
+     * {@link #getServices()} so that anything built from the services is built again after a change.
+     */
+    public String getVersion() {
+        return getSnapshot().version;
+    }
+
+    /**
+     * Returns the service registered with the given ID or alias, or null if there isn't one.
+     */
+    public Service getService(String idOrAlias) {
+        return idOrAlias == null ? null : getSnapshot().index.get(idOrAlias);
+    }
+
+    private Snapshot getSnapshot() {
+        Snapshot current = snapshot;
+        if (current == null) {
+            synchronized (this) {
+                if (snapshot == null) {
+                    snapshot = load();
+                }
+                current = snapshot;
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Reloads the services if they have changed, keeping the previous snapshot if they haven't or they can't be
+     * read.
+     */
+    public void refresh() {
+        try {
+            Snapshot current = snapshot;
+            if (current == null || !current.version.equals(loadVersion())) {
+                snapshot = load();
+            }
+        } catch (RuntimeException e) {
+            log.log(Level.WARNING, "Unable to refresh services, keeping the previous set", e);
+        }
+    }
+
+    private Snapshot load() {
+        // The version is read first so that a change while the services are loaded is picked up next time
+        String version = loadVersion();
+        Snapshot loaded = new Snapshot(version, loadServices());
+        log.fine("Setting SERVICES object to " + loaded.services.getServices());
+        return loaded;
+    }
+
+    /**
+     * Returns the version of the services {@link #loadServices()} would return, the ETag of services.json.
+     */
+    protected String loadVersion() {
+        return getServicesDocument().getETag();
+    }
+
+    /**
+     * Returns the services file the registry is built from, read again if it has changed.
+     */
+    public ServicesDocument.Content getServicesDocument() {
+        ServicesDocument current = document;
+        if (current == null) {
+            synchronized (this) {
+                if (document == null) {
+                    document = new ServicesDocument(ServiceFinder.getJsonLocation());
+                }
+                current = document;
+            }
+        }
+        return current.getContent();
+    }
+
+    protected List<Service> loadServices() {
+        return toServiceList(getServicesDocument().getJson());
+    }
+
+    private static List<Service> toServiceList(JsonObject json) {
+        JsonArray array = json.getJsonArray("services");
+        List<Service> serviceList = new ArrayList<>(array.size());
+        for (JsonObject object : array.getValuesAs(JsonObject.class)) {
+            Service service = new Service();
+            service.setId(object.getString("id", null));
+            service.setName(object.getString("name", null));
+            service.setDescription(object.getString("description", null));
+            service.setEndpoint(object.getString("endpoint", null));
+            service.setConfiguration(object.getString("configuration", null));
+            service.setOptions(object.getBoolean("options", false));
+            service.setImage(object.getString("image", null));
+            service.setImageSelected(object.getString("imageSelected", null));
+            JsonArray aliases = object.getJsonArray("aliases");
+            if (aliases != null) {
+                service.setAliases(aliases.getValuesAs(JsonString.class).stream().map(JsonString::getString).toArray(String[]::new));
+            }
+            serviceList.add(service);
+        }
+        return serviceList;
+    }
+
+    private static class Snapshot {
+        private final String version;
+        private final Services services;
+        private final Map<String, Service> index;
+
+        private Snapshot(String version, List<Service> serviceList) {
+            this.version = version;
+            services = new Services();
+            services.setServices(Collections.unmodifiableList(new ArrayList<>(serviceList)));
+            Map<String, Service> byId = new HashMap<>();
+            for (Service service : serviceList) {
+                byId.put(service.getId(), service);
+            }
+            for (Service service : serviceList) {
+                if (service.getAliases() != null) {
+                    for (String alias : service.getAliases()) {
+                        Service existing = byId.putIfAbsent(alias, service);
+                        if (existing != null && existing != service) {
+                            log.warning("Ignoring alias " + alias + " for " + service.getId() + " as it is already used by " + existing.getId());
+                        }
+                    }
+                }
+            }
+            index = Collections.unmodifiableMap(byId);
+        }
+    }
+}
@@ -0,0 +1,207 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.ibm.liberty.starter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+import com.ibm.liberty.starter.api.v1.model.registration.Service;
+
+/**
+ * Runs a task for each of a set of services concurrently on a shared, bounded pool of threads. A service whose
+ * configuration names other selected services is only started once those services have finished, for example
+ * swagger waits for rest. All of the tasks have to finish within an overall deadline. Any that haven't finished by
+ * then, or when the calling thread is interrupted, are cancelled: a task that is running is interrupted, and one
+ * that hasn't started never runs. Tasks only ever run on the pool, so when its queue is full a task fails rather
+ * than running on the calling thread outside of the deadline.
+ *
+ * The size of the pool and the deadline can be set with the environment variables
+ * <code>com_ibm_liberty_starter_serviceTaskThreads</code> and
+ * <code>com_ibm_liberty_starter_serviceTaskTimeout</code> (in milliseconds).
+ */
+public class ServiceTaskRunner {
+
+    private static final Logger log = Logger.getLogger(ServiceTaskRunner.class.getName());
+    private static final String THREADS_ENV = "com_ibm_liberty_starter_serviceTaskThreads";
+    private static final String TIMEOUT_ENV = "com_ibm_liberty_starter_serviceTaskTimeout";
+
+    private static ExecutorService executor;
+
+    private final long timeoutMillis;
+
+    public ServiceTaskRunner() {
+        this(StarterUtil.getEnvLong(TIMEOUT_ENV, 60000));
+    }
+
+    public ServiceTaskRunner(long timeoutMillis) {
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    static synchronized ExecutorService getExecutor() {
+        if (executor == null) {
+            int threads = (int) StarterUtil.getEnvLong(THREADS_ENV, 8);
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<>(threads * 16), StarterUtil.createThreadFactory("ServiceTaskRunner"),
+                    new ThreadPoolExecutor.AbortPolicy());
+            pool.allowCoreThreadTimeOut(true);
+            executor = pool;
+        }
+        return executor;
+    }
+
+    /**
+     * Stops the shared pool. Called when the application is stopped.
+     */
+    public static synchronized void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    /**
+     * Runs the task for every service and waits for them all to finish or for the deadline to pass.
+     *
+     * @return The failure for each service whose task threw an exception or didn't finish in time, keyed by
+     *         service ID. The map is empty if every task succeeded.
+     */
+    public Map<String, Throwable> run(List<Service> services, Consumer<Service> task) {
+        Map<String, Service> selected = new LinkedHashMap<>();
+        for (Service service : services) {
+            selected.put(service.getId(), service);
+        }
+        Map<String, CompletableFuture<Void>> futures = new HashMap<>();
+        Map<String, Future<?>> submitted = new ConcurrentHashMap<>();
+        for (Service service : selected.values()) {
+            schedule(service, selected, futures, submitted, new HashSet<>(), task);
+        }
+
+        boolean interrupted = false;
+        try {
+            CompletableFuture.allOf(futures.values().toArray(new CompletableFuture<?>[futures.size()])).get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            log.warning("Tasks for services " + selected.keySet() + " did not finish within " + timeoutMillis + "ms");
+        } catch (InterruptedException e) {
+            log.fine("Cancelling the tasks for services " + selected.keySet() + " as the request was interrupted");
+            interrupted = true;
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            // The failure of each task is collected below
+        }
+
+        Map<String, Throwable> failures = new LinkedHashMap<>();
+        for (Map.Entry<String, CompletableFuture<Void>> entry : futures.entrySet()) {
+            CompletableFuture<Void> future = entry.getValue();
+            if (!future.isDone()) {
+                // Cancelling the future stops a task that hasn't started, the task on the pool has to be interrupted
+                future.cancel(true);
+                Future<?> running = submitted.get(entry.getKey());
+                if (running != null) {
+                    running.cancel(true);
+                }
+                failures.put(entry.getKey(), interrupted ? new CancellationException("Interrupted") : new TimeoutException("Did not finish within " + timeoutMillis + "ms"));
+            } else if (future.isCompletedExceptionally()) {
+                try {
+                    future.join();
+                } catch (CompletionException e) {
+                    failures.put(entry.getKey(), e.getCause());
+                } catch (CancellationException e) {
+                    failures.put(entry.getKey(), e);
+                }
+            }
+        }
+        return failures;
+    }
+
+    private CompletableFuture<Void> schedule(Service service, Map<String, Service> selected, Map<String, CompletableFuture<Void>> futures,
+                                             Map<String, Future<?>> submitted, Set<String> visiting, Consumer<Service> task) {
+        CompletableFuture<Void> existing = futures.get(service.getId());
+        if (existing != null) {
+            return existing;
+        }
+        visiting.add(service.getId());
+        List<CompletableFuture<?>> dependencies = new ArrayList<>();
+        for (String dependencyId : getDependencyIds(service)) {
+            Service dependency = selected.get(dependencyId);
+            // Skip dependencies that weren't selected and break any cycles in the configuration
+            if (dependency != null && !visiting.contains(dependencyId)) {
+                // A dependency failing shouldn't stop this service's task from running
+                dependencies.add(schedule(dependency, selected, futures, submitted, visiting, task).handle((result, failure) -> null));
+            }
+        }
+        visiting.remove(service.getId());
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        CompletableFuture.allOf(dependencies.toArray(new CompletableFuture<?>[dependencies.size()])).whenComplete((result, failure) -> {
+            if (future.isDone()) {
+                return;
+            }
+            try {
+                Future<?> running = getExecutor().submit(() -> {
+                    try {
+                        task.accept(service);
+                        future.complete(null);
+                    } catch (Throwable t) {
+                        future.completeExceptionally(t);
+                    }
+                });
+                submitted.put(service.getId(), running);
+                // The deadline may have passed while the task was being submitted
+                if (future.isCancelled()) {
+                    running.cancel(true);
+                }
+            } catch (RejectedExecutionException e) {
+                future.completeExceptionally(e);
+            }
+        });
+        futures.put(service.getId(), future);
+        return future;
+    }
+
+    // The configuration is either 'yes' or a comma separated list of the technologies this one builds on
+    private static List<String> getDependencyIds(Service service) {
+        String configuration = service.getConfiguration();
+        if (configuration == null || configuration.trim().isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<String> ids = new ArrayList<>();
+        for (String id : configuration.split(",")) {
+            if (!id.trim().isEmpty()) {
+                ids.add(id.trim());
+            }
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,165 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.ibm.liberty.starter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.GZIPOutputStream;
+
+import javax.json.Json;
+import javax.json.JsonObject;
+import javax.json.JsonReader;
+
+/**
+ * The services file, read once and kept together with its serialized form so it can be served without being
+ * parsed or written again. When the file is on the file system its modification time is checked, at most once
+ * every <code>com_ibm_liberty_starter_servicesCheckMillis</code> milliseconds, and the file is read again if
+ * it has changed.
+ */
+public class ServicesDocument {
+
+    private static final Logger log = Logger.getLogger(ServicesDocument.class.getName());
+    private static final String CHECK_MILLIS_ENV = "com_ibm_liberty_starter_servicesCheckMillis";
+
+    private final String jsonLocation;
+    private final long checkMillis;
+    private volatile Content content;
+    private volatile long nextCheck;
+
+    public ServicesDocument(String jsonLocation) {
+        this(jsonLocation, StarterUtil.getEnvLong(CHECK_MILLIS_ENV, 1000));
+    }
+
+    public ServicesDocument(String jsonLocation, long checkMillis) {
+        this.jsonLocation = jsonLocation;
+        this.checkMillis = checkMillis;
+    }
+
+    /**
+     * Returns the current content of the file, reading it again first if it has changed.
+     *
+     * @throws IllegalStateException If the file can't be read the first time
+     */
+    public Content getContent() {
+        Content current = content;
+        long now = System.currentTimeMillis();
+        if (current != null && now < nextCheck) {
+            return current;
+        }
+        synchronized (this) {
+            current = content;
+            if (current == null) {
+                current = read();
+                content = current;
+            } else if (now >= nextCheck && current.hasChanged()) {
+                try {
+                    current = read();
+                    content = current;
+                } catch (RuntimeException e) {
+                    // The file may be part way through being written, keep serving the previous version
+                    log.log(Level.WARNING, "Unable to reload services file " + jsonLocation + ", keeping the previous version", e);
+                }
+            }
+            nextCheck = now + checkMillis;
+        }
+        return current;
+    }
+
+    private Content read() {
+        try {
+            URL url = ServicesDocument.class.getResource(new URI(jsonLocation).getPath());
+            if (url == null) {
+                throw new IllegalStateException("Services file " + jsonLocation + " not found");
+            }
+            Path file = "file".equals(url.getProtocol()) ? Paths.get(url.toURI()) : null;
+            long lastModified = file == null ? 0 : Files.getLastModifiedTime(file).toMillis();
+            try (InputStream is = url.openStream(); JsonReader reader = Json.createReader(is)) {
+                Content read = new Content(reader.readObject(), file, lastModified);
+                log.fine("Read services file " + url + " : ETag=" + read.getETag());
+                return read;
+            }
+        } catch (URISyntaxException | IOException e) {
+            throw new IllegalStateException("Error reading services file " + jsonLocation, e);
+        }
+    }
+
+    /**
+     * One version of the services file. The serialized forms and their strong ETags are computed up front.
+     */
+    public static class Content {
+        private final JsonObject json;
+        private final byte[] bytes;
+        private final byte[] gzippedBytes;
+        private final String etag;
+        private final Path file;
+        private final long lastModified;
+
+        private Content(JsonObject json, Path file, long lastModified) throws IOException {
+            this.json = json;
+            this.file = file;
+            this.lastModified = lastModified;
+            bytes = json.toString().getBytes(StandardCharsets.UTF_8);
+            ByteArrayOutputStream gzipped = new ByteArrayOutputStream();
+            try (GZIPOutputStream gzip = new GZIPOutputStream(gzipped)) {
+                gzip.write(bytes);
+            }
+            gzippedBytes = gzipped.toByteArray();
+            etag = StarterUtil.createETag(bytes);
+        }
+
+        private boolean hasChanged() {
+            try {
+                return file != null && Files.getLastModifiedTime(file).toMillis() != lastModified;
+            } catch (IOException e) {
+                log.fine("Unable to check services file " + file + " : " + e);
+                return false;
+            }
+        }
+
+        public JsonObject getJson() {
+            return json;
+        }
+
+        public byte[] getBytes() {
+            return bytes;
+        }
+
+        public byte[] getGzippedBytes() {
+            return gzippedBytes;
+        }
+
+        /**
+         * The ETag of the UTF-8 bytes. The gzipped bytes are a different representation so have their own tag.
+         */
+        public String getETag() {
+            return etag;
+        }
+
+        public String getGzippedETag() {
+            return etag.substring(0, etag.length() - 1) + "-gzip\"";
+        }
+    }
+}
@@ -23,8 +23,13 @@ import javax.naming.NamingException;
 import javax.validation.ValidationException;
 import java.io.File;
 import java.io.IOException;
-import java.util.List;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -66,20 +71,95 @@ public class StarterUtil {
 	}
 
 	/**
-	 * Generate the list of files in the directory and all of its sub-directories (recursive)
+	 * Read a positive numeric setting from an environment variable, falling back to the default value if
+	 * the variable isn't set or isn't valid.
 	 * 
-	 * @param dir - The directory
-	 * @param filesListInDir - List to store the files
+	 * @param name - The name of the environment variable
+	 * @param defaultValue - The value to use when the variable isn't set or isn't valid
 	 */
-	public static void populateFilesList(File dir, List<File> filesListInDir) {
-		File[] files = dir.listFiles();
-		for(File file : files){
-			if(file.isFile()){
-				filesListInDir.add(file);
-			}else{
-				populateFilesList(file, filesListInDir);
+	public static long getEnvLong(String name, long defaultValue) {
+		String value = System.getenv(name);
+		if(value != null){
+			try{
+				long parsed = Long.parseLong(value.trim());
+				if(parsed > 0){
+					return parsed;
+				}
+			}catch (NumberFormatException e){
+				// fall through to the warning below
+			}
+			log.warning("Invalid value " + value + " for " + name + ", using default " + defaultValue);
+		}
+		return defaultValue;
+	}
+
+	/**
+	 * Create a strong ETag for a representation from the SHA-256 digest of its bytes.
+	 * 
+	 * @param bytes - The bytes of the representation
+	 * @return The quoted ETag
+	 */
+	public static String createETag(byte[] bytes) {
+		try{
+			StringBuilder hex = new StringBuilder("\"");
+			for(byte b : MessageDigest.getInstance("SHA-256").digest(bytes)){
+				hex.append(String.format("%02x", b));
+			}
+			return hex.append('"').toString();
+		}catch (NoSuchAlgorithmException e){
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Check whether an If-None-Match header matches the ETag of the current representation.
+	 * 
+	 * @param ifNoneMatch - The value of the If-None-Match header, may be null
+	 * @param etag - The quoted ETag of the representation
+	 */
+	public static boolean matchesETag(String ifNoneMatch, String etag) {
+		if(ifNoneMatch == null){
+			return false;
+		}
+		for(String tag : ifNoneMatch.split(",")){
+			tag = tag.trim();
+			if(tag.equals("*") || tag.equals(etag) || tag.equals("W/" + etag)){
+				return true;
 			}
 		}
+		return false;
+	}
+
+	/**
+	 * Create a thread factory for the application's background executors. The threads are daemon threads so
+	 * they never hold up the server from stopping.
+	 * 
+	 * @param name - The prefix for the thread names
+	 */
+	public static ThreadFactory createThreadFactory(String name) {
+		AtomicInteger count = new AtomicInteger();
+		return runnable -> {
+			Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		};
+	}
+
+	/**
+	 * Cancel the future a stage depends on when the stage is cancelled. Cancelling a CompletableFuture only
+	 * completes that future, the work it is waiting for carries on unless it is cancelled too.
+	 * 
+	 * @param stage - The stage that callers may cancel
+	 * @param source - The future the stage is waiting for
+	 * @return The stage
+	 */
+	public static <T> CompletableFuture<T> propagateCancellation(CompletableFuture<T> stage, Future<?> source) {
+		stage.whenComplete((result, failure) -> {
+			if(stage.isCancelled()){
+				source.cancel(true);
+			}
+		});
+		return stage;
 	}
 
 	public static String createCleanWorkspace() throws IOException {
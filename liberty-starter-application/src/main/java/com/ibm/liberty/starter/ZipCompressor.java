@@ -0,0 +1,440 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.ibm.liberty.starter;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.ZipEntry;
+
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Compresses the files for a zip on a shared pool so that a large project uses all of the cores rather than only
+ * the request's thread. Each file is compressed by its own task, as the {@link CompressionPolicy} decides, and a
+ * file of at least two blocks is split into blocks that are deflated in parallel. Each block is primed with the
+ * end of the block before it, so a split file compresses almost as well as one deflated in one go. The results are
+ * returned in the order of the files with their CRCs and sizes, ready to be written to the zip.
+ *
+ * Files shared through the {@link BlobStore} take their CRC and deflated data from their blob, so a file that is
+ * the same in many projects is only deflated once.
+ *
+ * Deflaters and the buffers they deflate into are pooled, as they are costly to create for every file. Only as much
+ * as the request's {@link MemoryBudget} allows is held in memory, larger files are compressed into spill files.
+ *
+ * The size of the pool and the size of the blocks can be set with the environment variables
+ * <code>com_ibm_liberty_starter_zipThreads</code> and <code>com_ibm_liberty_starter_zipBlockBytes</code>.
+ */
+public class ZipCompressor {
+
+    private static final String THREADS_ENV = "com_ibm_liberty_starter_zipThreads";
+    private static final String BLOCK_ENV = "com_ibm_liberty_starter_zipBlockBytes";
+    // Compressing less than this on the pool costs more in hand offs than it saves
+    private static final int PARALLEL_BYTES = 64 * 1024;
+    private static final int DICTIONARY_BYTES = 32 * 1024;
+    private static final int BUFFER_BYTES = 64 * 1024;
+    private static final int MAX_POOLED = 64;
+    // The largest file that can be read into an array
+    private static final long MAX_IN_MEMORY = Integer.MAX_VALUE - 8;
+
+    private static ForkJoinPool pool;
+    private static final List<ConcurrentLinkedQueue<Deflater>> deflaters = new ArrayList<>();
+    private static final AtomicInteger[] pooledDeflaters = new AtomicInteger[Deflater.BEST_COMPRESSION + 1];
+    private static final ConcurrentLinkedQueue<byte[]> buffers = new ConcurrentLinkedQueue<>();
+
+    static {
+        for (int level = 0; level <= Deflater.BEST_COMPRESSION; level++) {
+            deflaters.add(new ConcurrentLinkedQueue<>());
+            pooledDeflaters[level] = new AtomicInteger();
+        }
+    }
+
+    private final CompressionPolicy policy;
+    private final int blockBytes;
+
+    public ZipCompressor(CompressionPolicy policy) {
+        this(policy, (int) StarterUtil.getEnvLong(BLOCK_ENV, 1024 * 1024));
+    }
+
+    /**
+     * @param blockBytes The size of the blocks a large file is split into
+     */
+    public ZipCompressor(CompressionPolicy policy, int blockBytes) {
+        this.policy = policy;
+        this.blockBytes = Math.max(blockBytes, DICTIONARY_BYTES);
+    }
+
+    private static synchronized ForkJoinPool getPool() {
+        if (pool == null) {
+            int threads = (int) StarterUtil.getEnvLong(THREADS_ENV, Runtime.getRuntime().availableProcessors());
+            pool = new ForkJoinPool(threads, ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, false);
+        }
+        return pool;
+    }
+
+    /**
+     * Stops the shared pool. Called when the application is stopped.
+     */
+    public static synchronized void shutdown() {
+        if (pool != null) {
+            pool.shutdownNow();
+            pool = null;
+        }
+    }
+
+    /**
+     * Reads and compresses the files, returning them in the order the map iterates over them. Files are read in
+     * parallel and compressed in memory while they fit in the budget, and the rest are compressed straight from their source into
+     * spill files. Each file compressed in memory keeps the size of its compressed data reserved in the budget, for
+     * the caller to release once it has written the file.
+     */
+    public List<Compressed> compress(Map<String, ProjectFile> files, MemoryBudget budget) throws IOException {
+        List<Compressed> results = new ArrayList<>(files.size());
+        List<Callable<Void>> tasks = new ArrayList<>();
+        List<Compressed> inMemory = new ArrayList<>();
+        List<Callable<Void>> reads = new ArrayList<>();
+        long totalBytes = 0;
+        long readBytes = 0;
+        for (Map.Entry<String, ProjectFile> file : files.entrySet()) {
+            ProjectFile projectFile = file.getValue();
+            Compressed compressed = new Compressed(file.getKey(), projectFile.getSize(), ZipEntry.DEFLATED);
+            results.add(compressed);
+            totalBytes += projectFile.getSize();
+            if (projectFile.getSize() > MAX_IN_MEMORY || !budget.tryReserve(projectFile.getSize())) {
+                tasks.add(() -> {
+                    spill(compressed, projectFile, budget);
+                    return null;
+                });
+            } else {
+                // The blocks hold the whole content until it is compressed
+                inMemory.add(compressed);
+                readBytes += projectFile.getSize();
+                reads.add(() -> {
+                    if (projectFile.isShared()) {
+                        // A file other projects have too is deflated once and its data shared
+                        compressed.blob = projectFile.readBlob();
+                        budget.retain(compressed.blob);
+                        compressed.blocks = new byte[][] { compressed.blob.getContent() };
+                    } else {
+                        compressed.blocks = new byte[][] { projectFile.read() };
+                    }
+                    return null;
+                });
+            }
+        }
+        // Reading from disk waits on IO, so the files are read in parallel before they are compressed
+        run(reads, readBytes);
+        for (Compressed compressed : inMemory) {
+            byte[] content = compressed.blocks[0];
+            BlobStore.Blob blob = compressed.blob;
+            int level = policy.getLevel(compressed.name, content);
+            compressed.method = level == CompressionPolicy.STORED ? ZipEntry.STORED : ZipEntry.DEFLATED;
+            if (blob != null) {
+                compressed.crc = blob.getCrc();
+            }
+            if (level == CompressionPolicy.STORED) {
+                if (blob == null) {
+                    tasks.add(() -> {
+                        compressed.crc = crc(content);
+                        return null;
+                    });
+                }
+            } else if (content.length >= 2L * blockBytes) {
+                int blocks = (content.length + blockBytes - 1) / blockBytes;
+                compressed.blocks = new byte[blocks][];
+                for (int i = 0; i < blocks; i++) {
+                    int block = i;
+                    tasks.add(() -> {
+                        int start = block * blockBytes;
+                        compressed.blocks[block] = deflate(content, start, Math.min(blockBytes, content.length - start), block == blocks - 1, level);
+                        return null;
+                    });
+                }
+                if (blob == null) {
+                    tasks.add(() -> {
+                        compressed.crc = crc(content);
+                        return null;
+                    });
+                }
+            } else if (blob != null) {
+                compressed.blocks = new byte[1][];
+                tasks.add(() -> {
+                    compressed.blocks[0] = blob.getDeflated(level, () -> deflate(content, 0, content.length, true, level));
+                    return null;
+                });
+            } else {
+                compressed.blocks = new byte[1][];
+                tasks.add(() -> {
+                    compressed.crc = crc(content);
+                    compressed.blocks[0] = deflate(content, 0, content.length, true, level);
+                    return null;
+                });
+            }
+        }
+        run(tasks, totalBytes);
+        for (Compressed compressed : results) {
+            if (compressed.spill == null) {
+                compressed.compressedSize = 0;
+                for (byte[] block : compressed.blocks) {
+                    compressed.compressedSize += block.length;
+                }
+                // Only the compressed data is still held, which deflating can make slightly larger than the file
+                long difference = compressed.size - compressed.compressedSize;
+                if (difference >= 0) {
+                    budget.release(difference);
+                } else {
+                    budget.reserve(-difference);
+                }
+            }
+        }
+        return results;
+    }
+
+    // Compresses a file that doesn't fit in memory from its source into a spill file
+    private void spill(Compressed compressed, ProjectFile file, MemoryBudget budget) throws IOException {
+        File spill = budget.createSpillFile();
+        byte[] buffer = acquireBuffer();
+        CRC32 crc = new CRC32();
+        long read = 0;
+        try (InputStream is = file.open()) {
+            int length = IOUtils.read(is, buffer);
+            int level = policy.getLevel(compressed.name, Arrays.copyOf(buffer, length), compressed.size);
+            Deflater deflater = level == CompressionPolicy.STORED ? null : acquireDeflater(level);
+            try (OutputStream os = deflater == null ? new BufferedOutputStream(new FileOutputStream(spill), BUFFER_BYTES)
+                                                    : new DeflaterOutputStream(new FileOutputStream(spill), deflater, BUFFER_BYTES)) {
+                while (length > 0) {
+                    crc.update(buffer, 0, length);
+                    os.write(buffer, 0, length);
+                    read += length;
+                    length = is.read(buffer);
+                }
+            } finally {
+                if (deflater != null) {
+                    releaseDeflater(deflater, level);
+                }
+            }
+            compressed.method = deflater == null ? ZipEntry.STORED : ZipEntry.DEFLATED;
+        } finally {
+            releaseBuffer(buffer);
+        }
+        if (read != compressed.size) {
+            throw new IOException("Expected " + compressed.size + " bytes of " + compressed.name + " but read " + read);
+        }
+        compressed.crc = (int) crc.getValue();
+        compressed.spill = spill;
+        compressed.compressedSize = spill.length();
+        budget.spilled(compressed.compressedSize);
+    }
+
+    // Runs the tasks on the pool, unless there is too little work for it to pay off
+    private static void run(List<Callable<Void>> tasks, long bytes) throws IOException {
+        if (bytes < PARALLEL_BYTES || tasks.size() <= 1) {
+            runAll(tasks);
+        } else {
+            invokeAll(tasks);
+        }
+    }
+
+    private static void runAll(List<Callable<Void>> tasks) throws IOException {
+        try {
+            for (Callable<Void> task : tasks) {
+                task.call();
+            }
+        } catch (IOException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException(e);
+        }
+    }
+
+    private static void invokeAll(List<Callable<Void>> tasks) throws IOException {
+        try {
+            for (Future<Void> done : getPool().invokeAll(tasks)) {
+                done.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while compressing", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    private static int crc(byte[] content) {
+        CRC32 crc = new CRC32();
+        crc.update(content);
+        return (int) crc.getValue();
+    }
+
+    // Deflates part of the content as a raw deflate block that the next part can carry on from
+    private static byte[] deflate(byte[] content, int start, int length, boolean last, int level) {
+        Deflater deflater = acquireDeflater(level);
+        byte[] buffer = acquireBuffer();
+        try {
+            if (start > 0) {
+                int dictionaryStart = Math.max(0, start - DICTIONARY_BYTES);
+                deflater.setDictionary(content, dictionaryStart, start - dictionaryStart);
+            }
+            deflater.setInput(content, start, length);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(length / 2 + 64);
+            if (last) {
+                deflater.finish();
+                while (!deflater.finished()) {
+                    out.write(buffer, 0, deflater.deflate(buffer));
+                }
+            } else {
+                // A sync flush ends the block on a byte boundary without marking it as the final block
+                int written;
+                do {
+                    written = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+                    out.write(buffer, 0, written);
+                } while (written == buffer.length);
+            }
+            return out.toByteArray();
+        } finally {
+            releaseBuffer(buffer);
+            releaseDeflater(deflater, level);
+        }
+    }
+
+    private static Deflater acquireDeflater(int level) {
+        Deflater deflater = deflaters.get(level).poll();
+        if (deflater == null) {
+            return new Deflater(level, true);
+        }
+        pooledDeflaters[level].decrementAndGet();
+        return deflater;
+    }
+
+    private static void releaseDeflater(Deflater deflater, int level) {
+        if (pooledDeflaters[level].incrementAndGet() <= MAX_POOLED) {
+            deflater.reset();
+            deflaters.get(level).offer(deflater);
+        } else {
+            pooledDeflaters[level].decrementAndGet();
+            deflater.end();
+        }
+    }
+
+    private static byte[] acquireBuffer() {
+        byte[] buffer = buffers.poll();
+        return buffer == null ? new byte[BUFFER_BYTES] : buffer;
+    }
+
+    private static void releaseBuffer(byte[] buffer) {
+        if (buffers.size() < MAX_POOLED) {
+            buffers.offer(buffer);
+        }
+    }
+
+    /**
+     * A file compressed for a zip.
+     */
+    public static class Compressed {
+        private final String name;
+        private final long size;
+        private int method;
+        private int crc;
+        private byte[][] blocks;
+        private BlobStore.Blob blob;
+        private File spill;
+        private long compressedSize;
+
+        private Compressed(String name, long size, int method) {
+            this.name = name;
+            this.size = size;
+            this.method = method;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        /**
+         * Returns {@link ZipEntry#STORED} or {@link ZipEntry#DEFLATED}.
+         */
+        public int getMethod() {
+            return method;
+        }
+
+        public int getCrc() {
+            return crc;
+        }
+
+        public long getCompressedSize() {
+            return compressedSize;
+        }
+
+        /**
+         * Returns true if the data was written to a spill file rather than held in memory.
+         */
+        public boolean isSpilled() {
+            return spill != null;
+        }
+
+        /**
+         * Returns the data as it is written to the zip, read back from the spill file if it was spilled.
+         */
+        public byte[] getData() {
+            ByteArrayOutputStream data = new ByteArrayOutputStream((int) compressedSize);
+            try {
+                writeTo(data);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return data.toByteArray();
+        }
+
+        /**
+         * Writes the data as it is written to the zip.
+         */
+        public void writeTo(OutputStream os) throws IOException {
+            if (spill != null) {
+                Files.copy(spill.toPath(), os);
+            } else {
+                for (byte[] block : blocks) {
+                    os.write(block);
+                }
+            }
+        }
+    }
+}
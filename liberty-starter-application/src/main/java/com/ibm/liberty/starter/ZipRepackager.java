@@ -0,0 +1,330 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.ibm.liberty.starter;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+
+/**
+ * Writes a zip made of the entries of an existing zip plus some new files without decompressing and recompressing
+ * the existing entries. Their compressed data is copied across byte for byte, with a new local header, and only the
+ * new files are compressed, in parallel by a {@link ZipCompressor}. Entries of the existing zip with the same path as
+ * a new file are left out. Without an existing zip only the new files are written.
+ *
+ * The zip written only depends on the entries and files given, so the same project always gives the same bytes:
+ * entries are written in name order, all stamped with {@link #DOS_TIME}, and without extra fields or comments.
+ *
+ * Only the plain zip format is handled. Zips that need zip64 or span disks are rejected by the constructor with a
+ * ZipException so that the caller can fall back to rewriting them.
+ */
+class ZipRepackager {
+
+    private static final int LOCAL_HEADER = 0x04034b50;
+    private static final int CENTRAL_HEADER = 0x02014b50;
+    private static final int END_OF_CENTRAL_DIRECTORY = 0x06054b50;
+    private static final int LOCAL_HEADER_SIZE = 30;
+    private static final int CENTRAL_HEADER_SIZE = 46;
+    private static final int END_SIZE = 22;
+    private static final int VERSION = 20;
+    private static final int FLAG_DATA_DESCRIPTOR = 0x08;
+    private static final int FLAG_UTF8 = 0x800;
+    private static final long MAX_32 = 0xFFFFFFFFL;
+    private static final int MAX_16 = 0xFFFF;
+    // A month into 1980 so that the time is still valid for unzip tools in any timezone
+    static final LocalDateTime ENTRY_TIME = LocalDateTime.of(1980, 2, 1, 0, 0);
+    static final int DOS_TIME = toDosTime(ENTRY_TIME);
+
+    private final ByteBuffer source;
+    private final List<Entry> sourceEntries;
+
+    /**
+     * @param zip The zip to copy the entries of, or null to write only the new files
+     * @throws ZipException if the zip can't be read or needs features this class doesn't support
+     */
+    ZipRepackager(byte[] zip) throws ZipException {
+        if (zip == null) {
+            source = null;
+            sourceEntries = new ArrayList<>();
+        } else {
+            source = ByteBuffer.wrap(zip).order(ByteOrder.LITTLE_ENDIAN);
+            sourceEntries = readCentralDirectory();
+        }
+    }
+
+    /**
+     * Writes the entries of the source zip, other than those replaced by a file in the map, and the files in the
+     * map, sorted by name. The memory the compressed files take up is released from the budget as each is written.
+     */
+    void write(OutputStream os, Map<String, ProjectFile> files, CompressionPolicy policy, MemoryBudget budget) throws IOException {
+        if (sourceEntries.size() + files.size() > MAX_16) {
+            throw new ZipException("Too many entries for a zip without zip64: " + (sourceEntries.size() + files.size()));
+        }
+        List<Entry> entries = new ArrayList<>(sourceEntries.size() + files.size());
+        for (Entry entry : sourceEntries) {
+            if (!files.containsKey(entry.name)) {
+                entry.data = source.array();
+                entry.dataStart = getDataStart(entry);
+                entries.add(entry);
+            }
+        }
+        for (ZipCompressor.Compressed file : new ZipCompressor(policy).compress(files, budget)) {
+            entries.add(toEntry(file));
+        }
+        entries.sort(Comparator.comparing(entry -> entry.name));
+        CountingOutputStream out = new CountingOutputStream(os);
+        List<Entry> written = new ArrayList<>(entries.size());
+        for (Entry entry : entries) {
+            written.add(writeEntry(out, entry));
+            if (entry.compressed != null && !entry.compressed.isSpilled()) {
+                budget.release(entry.compressedSize);
+            }
+            entry.compressed = null;
+        }
+        if (out.count > MAX_32) {
+            throw new ZipException("Zip too large without zip64");
+        }
+        long centralDirectoryOffset = out.count;
+        for (Entry entry : written) {
+            writeCentralHeader(out, entry);
+        }
+        writeEnd(out, written.size(), out.count - centralDirectoryOffset, centralDirectoryOffset);
+        out.flush();
+    }
+
+    /**
+     * Returns the entries of the source zip as files that are inflated from it when read.
+     */
+    Map<String, ProjectFile> getFiles() throws ZipException {
+        Map<String, ProjectFile> files = new LinkedHashMap<>();
+        for (Entry entry : sourceEntries) {
+            if (entry.method != ZipEntry.STORED && entry.method != ZipEntry.DEFLATED) {
+                throw new ZipException("Unsupported compression method " + entry.method + " for " + entry.name);
+            }
+            byte[] zip = source.array();
+            int dataStart = getDataStart(entry);
+            long size = entry.size;
+            int compressedSize = (int) entry.compressedSize;
+            if (entry.method == ZipEntry.STORED) {
+                files.put(entry.name, ProjectFile.of(size, () -> new ByteArrayInputStream(zip, dataStart, compressedSize)));
+            } else {
+                // The inflater may need a byte past the end of the data, and there's always a header after it
+                int available = Math.min(compressedSize + 1, zip.length - dataStart);
+                files.put(entry.name, ProjectFile.of(size, () -> new InflaterInputStream(new ByteArrayInputStream(zip, dataStart, available), new Inflater(true)) {
+                    @Override
+                    public void close() throws IOException {
+                        super.close();
+                        inf.end();
+                    }
+                }));
+            }
+        }
+        return files;
+    }
+
+    private int getDataStart(Entry entry) {
+        return entry.localHeaderOffset + LOCAL_HEADER_SIZE + getShort(entry.localHeaderOffset + 26) + getShort(entry.localHeaderOffset + 28);
+    }
+
+    private List<Entry> readCentralDirectory() throws ZipException {
+        int end = findEndOfCentralDirectory();
+        if (getShort(end + 4) != 0 || getShort(end + 6) != 0) {
+            throw new ZipException("Zips spanning disks are not supported");
+        }
+        int count = getShort(end + 10);
+        long offset = getInt(end + 16);
+        if (count == MAX_16 || offset == MAX_32) {
+            throw new ZipException("Zip64 is not supported");
+        }
+        List<Entry> entries = new ArrayList<>(count);
+        int position = (int) offset;
+        try {
+            for (int i = 0; i < count; i++) {
+                if (source.getInt(position) != CENTRAL_HEADER) {
+                    throw new ZipException("Bad central directory header at " + position);
+                }
+                int nameLength = getShort(position + 28);
+                int extraLength = getShort(position + 30);
+                int commentLength = getShort(position + 32);
+                Entry entry = new Entry();
+                entry.flags = getShort(position + 8) & ~FLAG_DATA_DESCRIPTOR;
+                entry.method = getShort(position + 10);
+                entry.crc = source.getInt(position + 16);
+                entry.compressedSize = getInt(position + 20);
+                entry.size = getInt(position + 24);
+                entry.externalAttributes = source.getInt(position + 38);
+                long localHeaderOffset = getInt(position + 42);
+                if (entry.compressedSize == MAX_32 || entry.size == MAX_32 || localHeaderOffset == MAX_32) {
+                    throw new ZipException("Zip64 is not supported");
+                }
+                entry.localHeaderOffset = (int) localHeaderOffset;
+                if (source.getInt(entry.localHeaderOffset) != LOCAL_HEADER) {
+                    throw new ZipException("Bad local header at " + localHeaderOffset);
+                }
+                entry.nameBytes = new byte[nameLength];
+                System.arraycopy(source.array(), position + CENTRAL_HEADER_SIZE, entry.nameBytes, 0, nameLength);
+                entry.name = new String(entry.nameBytes, (entry.flags & FLAG_UTF8) != 0 ? StandardCharsets.UTF_8 : StandardCharsets.ISO_8859_1);
+                entries.add(entry);
+                position += CENTRAL_HEADER_SIZE + nameLength + extraLength + commentLength;
+            }
+        } catch (IndexOutOfBoundsException e) {
+            throw new ZipException("Truncated zip");
+        }
+        return entries;
+    }
+
+    private int findEndOfCentralDirectory() throws ZipException {
+        // The end record is followed by a comment of up to 64k
+        int lowest = Math.max(0, source.limit() - END_SIZE - MAX_16);
+        for (int position = source.limit() - END_SIZE; position >= lowest; position--) {
+            if (source.getInt(position) == END_OF_CENTRAL_DIRECTORY) {
+                return position;
+            }
+        }
+        throw new ZipException("No end of central directory record found");
+    }
+
+    private static Entry toEntry(ZipCompressor.Compressed file) throws ZipException {
+        if (file.getSize() >= MAX_32 || file.getCompressedSize() >= MAX_32) {
+            throw new ZipException("File too large without zip64: " + file.getName());
+        }
+        Entry entry = new Entry();
+        entry.name = file.getName();
+        entry.nameBytes = file.getName().getBytes(StandardCharsets.UTF_8);
+        entry.flags = FLAG_UTF8;
+        entry.method = file.getMethod();
+        entry.crc = file.getCrc();
+        entry.compressed = file;
+        entry.compressedSize = file.getCompressedSize();
+        entry.size = file.getSize();
+        return entry;
+    }
+
+    private static Entry writeEntry(CountingOutputStream out, Entry entry) throws IOException {
+        if (out.count > MAX_32) {
+            throw new ZipException("Zip too large without zip64");
+        }
+        Entry written = entry.copy();
+        written.localHeaderOffset = (int) out.count;
+        ByteBuffer header = ByteBuffer.allocate(LOCAL_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(LOCAL_HEADER).putShort((short) VERSION).putShort((short) entry.flags).putShort((short) entry.method)
+              .putInt(DOS_TIME).putInt(entry.crc).putInt((int) entry.compressedSize).putInt((int) entry.size)
+              .putShort((short) entry.nameBytes.length).putShort((short) 0);
+        out.write(header.array());
+        out.write(entry.nameBytes);
+        if (entry.compressed != null) {
+            entry.compressed.writeTo(out);
+        } else {
+            out.write(entry.data, entry.dataStart, (int) entry.compressedSize);
+        }
+        return written;
+    }
+
+    private static void writeCentralHeader(OutputStream out, Entry entry) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(CENTRAL_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(CENTRAL_HEADER).putShort((short) VERSION).putShort((short) VERSION).putShort((short) entry.flags)
+              .putShort((short) entry.method).putInt(DOS_TIME).putInt(entry.crc).putInt((int) entry.compressedSize)
+              .putInt((int) entry.size).putShort((short) entry.nameBytes.length).putShort((short) 0).putShort((short) 0)
+              .putShort((short) 0).putShort((short) 0).putInt(entry.externalAttributes).putInt(entry.localHeaderOffset);
+        out.write(header.array());
+        out.write(entry.nameBytes);
+    }
+
+    private static void writeEnd(OutputStream out, int count, long centralDirectorySize, long centralDirectoryOffset) throws IOException {
+        ByteBuffer end = ByteBuffer.allocate(END_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        end.putInt(END_OF_CENTRAL_DIRECTORY).putShort((short) 0).putShort((short) 0).putShort((short) count).putShort((short) count)
+           .putInt((int) centralDirectorySize).putInt((int) centralDirectoryOffset).putShort((short) 0);
+        out.write(end.array());
+    }
+
+    static int toDosTime(LocalDateTime time) {
+        int year = Math.max(time.getYear(), 1980);
+        return (year - 1980) << 25 | time.getMonthValue() << 21 | time.getDayOfMonth() << 16
+               | time.getHour() << 11 | time.getMinute() << 5 | time.getSecond() >> 1;
+    }
+
+    private int getShort(int position) {
+        return source.getShort(position) & MAX_16;
+    }
+
+    private long getInt(int position) {
+        return source.getInt(position) & MAX_32;
+    }
+
+    private static class Entry {
+        private String name;
+        private byte[] nameBytes;
+        private int flags;
+        private int method;
+        private int crc;
+        private long compressedSize;
+        private long size;
+        private int externalAttributes;
+        private int localHeaderOffset;
+        // The compressed data of an entry copied from the source zip starts at dataStart in it
+        private byte[] data;
+        private int dataStart;
+        // The compressed data of a new file
+        private ZipCompressor.Compressed compressed;
+
+        private Entry copy() {
+            Entry copy = new Entry();
+            copy.name = name;
+            copy.nameBytes = nameBytes;
+            copy.flags = flags;
+            copy.method = method;
+            copy.crc = crc;
+            copy.compressedSize = compressedSize;
+            copy.size = size;
+            copy.externalAttributes = externalAttributes;
+            return copy;
+        }
+    }
+
+    private static class CountingOutputStream extends FilterOutputStream {
+        private long count;
+
+        private CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+}
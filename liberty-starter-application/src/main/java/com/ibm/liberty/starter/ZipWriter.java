@@ -15,37 +15,116 @@
  *******************************************************************************/
 package com.ibm.liberty.starter;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.time.ZoneId;
 import java.util.Map;
 import java.util.TreeMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.zip.CRC32;
 import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipInputStream;
 import java.util.zip.ZipOutputStream;
 
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Writes a project as a zip. The project can be based on the zip generated by codegen, in which case its entries
+ * are copied across still compressed, and only the files added on top of it, which replace any codegen entries
+ * with the same path, are read and compressed, in parallel across the cores. How each file is compressed
+ * is left to the {@link CompressionPolicy}, and how much of the project is held in memory at once to the
+ * {@link MemoryBudget}.
+ *
+ * The same project always gives the same bytes. Entries are written in name order with a fixed time and no extra
+ * fields, so a zip can be identified by a hash of its content and cached by the server, proxies and browsers.
+ */
 public class ZipWriter {
 
     private static final Logger log = Logger.getLogger(ZipWriter.class.getName());
-    private final Map<String, byte[]> fileMap;
+    private static final long ENTRY_TIME = ZipRepackager.ENTRY_TIME.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    private final byte[] baseZip;
+    private final Map<String, ProjectFile> fileMap;
+    private final CompressionPolicy policy;
+
+    public ZipWriter(Map<String, ProjectFile> fileMap) {
+        this(null, fileMap);
+    }
 
-    public ZipWriter(Map<String, byte[]> fileMap) {
+    /**
+     * @param baseZip The zip generated by codegen, or null if there isn't one
+     * @param fileMap The files to add to the zip
+     */
+    public ZipWriter(byte[] baseZip, Map<String, ProjectFile> fileMap) {
+        this(baseZip, fileMap, CompressionPolicy.getInstance());
+    }
+
+    public ZipWriter(byte[] baseZip, Map<String, ProjectFile> fileMap, CompressionPolicy policy) {
+        this.baseZip = baseZip;
         this.fileMap = new TreeMap<>(fileMap);
+        this.policy = policy;
     }
 
     public void buildZip(OutputStream os) throws IOException {
+        // The files are compressed in parallel unless the codegen zip has to be rewritten
+        ZipRepackager repackager = null;
+        try {
+            repackager = new ZipRepackager(baseZip);
+        } catch (ZipException e) {
+            log.log(Level.FINE, "Unable to copy the codegen zip without decompressing it : " + e.getMessage());
+        }
+        if (repackager != null) {
+            try (MemoryBudget budget = MemoryBudget.forRequest()) {
+                repackager.write(os, fileMap, policy, budget);
+            }
+            os.close();
+            return;
+        }
+        // The codegen zip can't be copied without decompressing it, so its files are sorted in with the others
+        Map<String, ProjectFile> files = new TreeMap<>(fileMap);
+        if (baseZip != null) {
+            readBaseZip(files);
+        }
         ZipOutputStream zos = new ZipOutputStream(os);
-        createZipFromMap(zos);
+        createZipFromMap(zos, files);
         zos.close();
     }
 
-    private void createZipFromMap(ZipOutputStream zos) throws IOException {
+    private void readBaseZip(Map<String, ProjectFile> files) throws IOException {
+        try (ZipInputStream zis = new ZipInputStream(new ByteArrayInputStream(baseZip))) {
+            ZipEntry baseEntry;
+            while ((baseEntry = zis.getNextEntry()) != null) {
+                if (fileMap.containsKey(baseEntry.getName())) {
+                    log.log(Level.FINE, "Replacing codegen file " + baseEntry.getName());
+                    continue;
+                }
+                files.put(baseEntry.getName(), ProjectFile.shared(IOUtils.toByteArray(zis)));
+            }
+        }
+    }
+
+    private void createZipFromMap(ZipOutputStream zos, Map<String, ProjectFile> files) throws IOException {
         log.log(Level.INFO, "Entering method ProjectConstructor.createZipFromMap()");
-        for (Map.Entry<String, byte[]> fileEntry : fileMap.entrySet()) {
-            byte[] byteArray = fileEntry.getValue();
+        for (Map.Entry<String, ProjectFile> fileEntry : files.entrySet()) {
+            byte[] byteArray = fileEntry.getValue().read();
             ZipEntry entry = new ZipEntry(fileEntry.getKey());
+            // A time the zip format can hold exactly, so that no extended timestamp field is added
+            entry.setTime(ENTRY_TIME);
             entry.setSize(byteArray.length);
-            entry.setCompressedSize(-1);
+            int level = policy.getLevel(fileEntry.getKey(), byteArray);
+            if (level == CompressionPolicy.STORED) {
+                CRC32 crc = new CRC32();
+                crc.update(byteArray);
+                entry.setMethod(ZipEntry.STORED);
+                entry.setCompressedSize(byteArray.length);
+                entry.setCrc(crc.getValue());
+            } else {
+                entry.setMethod(ZipEntry.DEFLATED);
+                entry.setCompressedSize(-1);
+                zos.setLevel(level);
+            }
             try {
                 zos.putNextEntry(entry);
                 zos.write(byteArray);
@@ -0,0 +1,219 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.ibm.liberty.starter.api;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.logging.Logger;
+
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.ConnectionCallback;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
+
+import com.ibm.liberty.starter.StarterUtil;
+import com.ibm.liberty.starter.client.BxCodegenClient;
+
+/**
+ * Support for endpoints that suspend their request while a project is generated. Blocking work is run on a
+ * dedicated pool rather than on the server's request threads, and waiting for codegen holds no thread at all,
+ * so the number of generations in flight isn't limited by the number of threads.
+ *
+ * The pool size, the number of tasks that can wait for it and the time a request can be suspended for can be
+ * set with the environment variables <code>com_ibm_liberty_starter_requestThreads</code>,
+ * <code>com_ibm_liberty_starter_requestQueueSize</code> and <code>com_ibm_liberty_starter_requestTimeout</code>
+ * (in milliseconds).
+ */
+public class AsyncRequests {
+
+    private static final Logger log = Logger.getLogger(AsyncRequests.class.getName());
+    private static final String THREADS_ENV = "com_ibm_liberty_starter_requestThreads";
+    private static final String QUEUE_SIZE_ENV = "com_ibm_liberty_starter_requestQueueSize";
+    private static final String TIMEOUT_ENV = "com_ibm_liberty_starter_requestTimeout";
+
+    /** The stages at which the work for a request is abandoned */
+    public static final String DISCONNECTED = "disconnected";
+    public static final String TIMED_OUT = "timedOut";
+    public static final String WRITE_FAILED = "writeFailed";
+
+    private static ExecutorService executor;
+
+    /**
+     * Returns the pool for the blocking parts of a request, such as preparing packages or reading a project.
+     * A task submitted when the pool and its queue are full is rejected with a RejectedExecutionException.
+     */
+    public static synchronized ExecutorService getExecutor() {
+        if (executor == null) {
+            int threads = (int) StarterUtil.getEnvLong(THREADS_ENV, 16);
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>((int) StarterUtil.getEnvLong(QUEUE_SIZE_ENV, 1000)),
+                    StarterUtil.createThreadFactory("AsyncRequests"));
+            pool.allowCoreThreadTimeOut(true);
+            executor = pool;
+        }
+        return executor;
+    }
+
+    /**
+     * Stops the shared pool. Called when the application is stopped.
+     */
+    public static synchronized void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+    }
+
+    /**
+     * Resumes the suspended request with the response once it is ready. Failures are turned into a response by
+     * <code>errorResponse</code>, which is passed the original exception rather than a CompletionException. If the
+     * response isn't ready within the timeout the request is resumed with <code>timeoutResponse</code>.
+     */
+    public static void resume(AsyncResponse asyncResponse, CompletableFuture<Response> response, Function<Throwable, Response> errorResponse, Response timeoutResponse) {
+        resume(asyncResponse, response, new RequestCancellation(), errorResponse, timeoutResponse);
+    }
+
+    /**
+     * Resumes the suspended request as above, abandoning the work tracked by <code>cancellation</code> if the client
+     * disconnects or the request times out before the response is ready.
+     */
+    public static void resume(AsyncResponse asyncResponse, CompletableFuture<Response> response, RequestCancellation cancellation,
+                              Function<Throwable, Response> errorResponse, Response timeoutResponse) {
+        cancellation.track(response);
+        asyncResponse.setTimeout(StarterUtil.getEnvLong(TIMEOUT_ENV, 120000), TimeUnit.MILLISECONDS);
+        asyncResponse.setTimeoutHandler(suspended -> {
+            log.warning("Request timed out before the response was ready");
+            suspended.resume(timeoutResponse);
+            cancellation.abandon(TIMED_OUT);
+        });
+        asyncResponse.register((ConnectionCallback) disconnected -> cancellation.abandon(DISCONNECTED));
+        response.whenComplete((result, failure) -> {
+            if (failure == null) {
+                asyncResponse.resume(result);
+            } else if (cancellation.isCancelled()) {
+                // Nobody is waiting for the response, or it has already been sent
+                asyncResponse.resume(Response.status(Status.SERVICE_UNAVAILABLE).build());
+            } else {
+                Throwable cause = unwrap(failure);
+                asyncResponse.resume(cause instanceof RejectedExecutionException ? busyResponse() : errorResponse.apply(cause));
+            }
+        });
+    }
+
+    /**
+     * Starts the first step of a request on the pool, or returns an already failed future if the pool is full.
+     */
+    public static <T> CompletableFuture<T> supply(CheckedSupplier<T> step) {
+        return supply(new RequestCancellation(), step);
+    }
+
+    /**
+     * Starts the first step of a request on the pool as above. The step is interrupted if the request is abandoned
+     * while it is running.
+     */
+    public static <T> CompletableFuture<T> supply(RequestCancellation cancellation, CheckedSupplier<T> step) {
+        try {
+            return cancellation.track(CompletableFuture.supplyAsync(() -> {
+                try {
+                    return cancellation.runInterruptibly(step);
+                } catch (RuntimeException e) {
+                    throw e;
+                } catch (Exception e) {
+                    throw new CompletionException(e);
+                }
+            }, getExecutor()));
+        } catch (RejectedExecutionException e) {
+            CompletableFuture<T> rejected = new CompletableFuture<>();
+            rejected.completeExceptionally(e);
+            return rejected;
+        }
+    }
+
+    /**
+     * Returns the statistics of the requests in progress and of the work abandoned.
+     */
+    public static synchronized Stats getStats() {
+        int active = 0;
+        int queued = 0;
+        if (executor instanceof ThreadPoolExecutor) {
+            active = ((ThreadPoolExecutor) executor).getActiveCount();
+            queued = ((ThreadPoolExecutor) executor).getQueue().size();
+        }
+        return new Stats(active, queued, RequestCancellation.getAbandoned(), BxCodegenClient.getCancelledJobs());
+    }
+
+    private static Throwable unwrap(Throwable failure) {
+        while ((failure instanceof CompletionException || failure instanceof ExecutionException) && failure.getCause() != null) {
+            failure = failure.getCause();
+        }
+        return failure;
+    }
+
+    private static Response busyResponse() {
+        log.warning("Rejecting request as there are too many in progress");
+        return Response.status(Status.SERVICE_UNAVAILABLE).entity("Too many projects are being generated at the moment. Try again later.").build();
+    }
+
+    public static class Stats {
+        private final int activeTasks;
+        private final int queuedTasks;
+        private final Map<String, Long> abandoned;
+        private final long cancelledCodegenJobs;
+
+        private Stats(int activeTasks, int queuedTasks, Map<String, Long> abandoned, long cancelledCodegenJobs) {
+            this.activeTasks = activeTasks;
+            this.queuedTasks = queuedTasks;
+            this.abandoned = abandoned;
+            this.cancelledCodegenJobs = cancelledCodegenJobs;
+        }
+
+        public int getActiveTasks() {
+            return activeTasks;
+        }
+
+        public int getQueuedTasks() {
+            return queuedTasks;
+        }
+
+        /**
+         * The number of requests whose work was abandoned, keyed by why: the client disconnected, the request timed
+         * out or writing the response failed.
+         */
+        public Map<String, Long> getAbandoned() {
+            return abandoned;
+        }
+
+        /**
+         * The number of codegen jobs that stopped being polled because no request was waiting for them.
+         */
+        public long getCancelledCodegenJobs() {
+            return cancelledCodegenJobs;
+        }
+    }
+
+    @FunctionalInterface
+    public interface CheckedSupplier<T> {
+        T get() throws Exception;
+    }
+}
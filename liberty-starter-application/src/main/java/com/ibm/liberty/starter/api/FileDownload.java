@@ -0,0 +1,163 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.ibm.liberty.starter.api;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.ResponseBuilder;
+import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.core.StreamingOutput;
+
+import com.ibm.liberty.starter.DownloadCache;
+import com.ibm.liberty.starter.StarterUtil;
+
+/**
+ * Builds the response for a download of a zip from the {@link DownloadCache}. The zip is identified by its ETag,
+ * so a client that already has it gets a 304, and a client that was cut off part way through can ask for the rest
+ * with a single HTTP Range. The file is sent with {@link FileChannel#transferTo} rather than read into memory.
+ * The file is opened as the response is built, so a zip that is evicted from the cache while it is being sent is
+ * still sent whole.
+ */
+public class FileDownload {
+
+    private static final String ACCEPT_RANGES = "Accept-Ranges";
+    private static final String CONTENT_RANGE = "Content-Range";
+    private static final String BYTES = "bytes";
+
+    private FileDownload() {
+    }
+
+    /**
+     * @param ifNoneMatch The If-None-Match header of the request, or null
+     * @param range The Range header of the request, or null
+     * @param ifRange The If-Range header of the request, or null. The range is only sent if this is the ETag.
+     * @throws IOException if the zip can't be opened, for example because it has been evicted from the cache
+     */
+    public static ResponseBuilder respond(DownloadCache.Archive archive, String contentType, String ifNoneMatch, String range, String ifRange)
+            throws IOException {
+        String etag = archive.getETag();
+        ResponseBuilder response;
+        if (StarterUtil.matchesETag(ifNoneMatch, etag)) {
+            response = Response.notModified();
+        } else {
+            ByteRange byteRange = ifRange == null || ifRange.trim().equals(etag) ? ByteRange.parse(range, archive.getLength()) : null;
+            if (byteRange == null) {
+                response = Response.ok(transfer(archive, 0, archive.getLength()), contentType)
+                                   .header(HttpHeaders.CONTENT_LENGTH, archive.getLength());
+            } else if (!byteRange.isSatisfiable()) {
+                response = Response.status(Status.REQUESTED_RANGE_NOT_SATISFIABLE).header(CONTENT_RANGE, BYTES + " */" + archive.getLength());
+            } else {
+                response = Response.status(Status.PARTIAL_CONTENT).type(contentType)
+                                   .entity(transfer(archive, byteRange.start, byteRange.getLength()))
+                                   .header(HttpHeaders.CONTENT_LENGTH, byteRange.getLength())
+                                   .header(CONTENT_RANGE, BYTES + " " + byteRange.start + "-" + byteRange.end + "/" + archive.getLength());
+            }
+        }
+        return response.header(HttpHeaders.ETAG, etag).header(ACCEPT_RANGES, BYTES).header(HttpHeaders.CACHE_CONTROL, "no-cache");
+    }
+
+    // Deleting the file once it is open doesn't stop it being read, the channel is closed once the body is written
+    private static StreamingOutput transfer(DownloadCache.Archive archive, long start, long count) throws IOException {
+        FileChannel channel = FileChannel.open(archive.getFile().toPath(), StandardOpenOption.READ);
+        return (OutputStream os) -> {
+            try {
+                WritableByteChannel target = Channels.newChannel(os);
+                long position = start;
+                long end = start + count;
+                while (position < end) {
+                    long sent = channel.transferTo(position, end - position, target);
+                    if (sent <= 0) {
+                        throw new EOFException("Only " + (position - start) + " of " + count + " bytes of " + archive.getFile() + " could be read");
+                    }
+                    position += sent;
+                }
+            } finally {
+                channel.close();
+            }
+        };
+    }
+
+    /**
+     * The range of bytes asked for by a Range header. Only a single range is supported, a header asking for more
+     * is ignored and the whole file sent, as HTTP allows.
+     */
+    public static class ByteRange {
+        private final long start;
+        // Inclusive, as in the headers
+        private final long end;
+
+        private ByteRange(long start, long end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        /**
+         * Returns the range the header asks for in a file of the given length, or null if the header is missing or
+         * is to be ignored.
+         */
+        public static ByteRange parse(String header, long length) {
+            if (header == null || !header.trim().startsWith(BYTES + "=")) {
+                return null;
+            }
+            String spec = header.trim().substring(BYTES.length() + 1).trim();
+            int dash = spec.indexOf('-');
+            if (spec.contains(",") || dash < 0) {
+                return null;
+            }
+            try {
+                String first = spec.substring(0, dash).trim();
+                String last = spec.substring(dash + 1).trim();
+                if (first.isEmpty()) {
+                    // The last so many bytes
+                    long suffix = Long.parseLong(last);
+                    return suffix <= 0 ? new ByteRange(0, -1) : new ByteRange(Math.max(0, length - suffix), length - 1);
+                }
+                long start = Long.parseLong(first);
+                long end = last.isEmpty() ? length - 1 : Math.min(Long.parseLong(last), length - 1);
+                if (start < 0 || (!last.isEmpty() && Long.parseLong(last) < start)) {
+                    return null;
+                }
+                return new ByteRange(start, end);
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+
+        public boolean isSatisfiable() {
+            return start <= end;
+        }
+
+        public long getStart() {
+            return start;
+        }
+
+        public long getEnd() {
+            return end;
+        }
+
+        public long getLength() {
+            return end - start + 1;
+        }
+    }
+}
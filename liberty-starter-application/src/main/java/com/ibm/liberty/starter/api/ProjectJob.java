@@ -0,0 +1,220 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.ibm.liberty.starter.api;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.LongSupplier;
+
+import javax.json.Json;
+import javax.json.JsonObjectBuilder;
+
+import com.ibm.liberty.starter.DownloadCache;
+
+/**
+ * A project generated in the background for the jobs API. The job records an event as it reaches each stage, so
+ * that its progress can be streamed to the client. The zip is written to the {@link DownloadCache} under the job's
+ * result key, so a finished job only holds on to where the zip is rather than its bytes.
+ */
+public class ProjectJob {
+
+    public enum Status {
+        RUNNING, SUCCEEDED, FAILED, CANCELLED
+    }
+
+    public static final String COMPLETE_EVENT = "complete";
+    public static final String ERROR_EVENT = "error";
+    public static final String CANCELLED = "cancelled";
+
+    private final String id = UUID.randomUUID().toString();
+    private final String name;
+    private final LongSupplier clock;
+    private final long startedAt;
+    private final RequestCancellation cancellation = new RequestCancellation();
+    private final List<Event> events = new ArrayList<>();
+    // Completed and replaced whenever an event is recorded
+    private CompletableFuture<Void> nextEvent = new CompletableFuture<>();
+    private Status status = Status.RUNNING;
+    private String stage;
+    private DownloadCache.Archive result;
+    private Throwable failure;
+    private long finishedAt;
+
+    public ProjectJob(String name, LongSupplier clock) {
+        this.name = name;
+        this.clock = clock;
+        startedAt = clock.getAsLong();
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the work to abandon if the job is cancelled.
+     */
+    public RequestCancellation getCancellation() {
+        return cancellation;
+    }
+
+    /**
+     * Records that the job has started the given stage.
+     */
+    public synchronized void stage(String stage) {
+        this.stage = stage;
+        addEvent(stage, Json.createObjectBuilder().add("stage", stage).add("elapsed", clock.getAsLong() - startedAt));
+    }
+
+    /**
+     * Returns the key the zip for the job is cached under.
+     */
+    public String getResultKey() {
+        return "job:" + id;
+    }
+
+    public synchronized void succeed(DownloadCache.Archive result) {
+        if (status != Status.RUNNING) {
+            return;
+        }
+        this.result = result;
+        finish(Status.SUCCEEDED);
+        addEvent(COMPLETE_EVENT, Json.createObjectBuilder().add("status", status.name()).add("size", result.getLength()).add("elapsed", finishedAt - startedAt));
+    }
+
+    /**
+     * Records that the job has failed, or was cancelled if its work had been abandoned.
+     * 
+     * @param message The reason to report to the client
+     */
+    public synchronized void fail(Throwable failure, String message) {
+        if (status != Status.RUNNING) {
+            return;
+        }
+        this.failure = failure;
+        if (cancellation.isCancelled()) {
+            finish(Status.CANCELLED);
+            addEvent(CANCELLED, Json.createObjectBuilder().add("status", status.name()).add("stage", stage == null ? "" : stage));
+        } else {
+            finish(Status.FAILED);
+            addEvent(ERROR_EVENT, Json.createObjectBuilder().add("status", status.name()).add("stage", stage == null ? "" : stage).add("message", message));
+        }
+    }
+
+    /**
+     * Abandons the work for the job. The job is marked as cancelled once the stage it is running has stopped.
+     */
+    public void cancel() {
+        cancellation.abandon(CANCELLED);
+    }
+
+    private void finish(Status status) {
+        this.status = status;
+        finishedAt = clock.getAsLong();
+    }
+
+    private void addEvent(String name, JsonObjectBuilder data) {
+        events.add(new Event(events.size() + 1, name, data.build().toString()));
+        CompletableFuture<Void> recorded = nextEvent;
+        nextEvent = new CompletableFuture<>();
+        recorded.complete(null);
+    }
+
+    public synchronized Status getStatus() {
+        return status;
+    }
+
+    /**
+     * Returns the stage the job has reached, or null if it hasn't started one yet.
+     */
+    public synchronized String getStage() {
+        return stage;
+    }
+
+    /**
+     * Returns the cached zip once the job has succeeded, otherwise null. The zip may since have been evicted from
+     * the cache.
+     */
+    public synchronized DownloadCache.Archive getResult() {
+        return result;
+    }
+
+    /**
+     * Returns why the job failed, or null if it hasn't.
+     */
+    public synchronized Throwable getFailure() {
+        return failure;
+    }
+
+    public synchronized long getFinishedAt() {
+        return finishedAt;
+    }
+
+    /**
+     * Returns the events after the one with the given id.
+     */
+    public synchronized List<Event> getEventsAfter(int afterId) {
+        return events.size() <= afterId ? new ArrayList<>() : new ArrayList<>(events.subList(Math.max(afterId, 0), events.size()));
+    }
+
+    /**
+     * Returns a future that completes once there are events after the one with the given id, straight away if
+     * there already are or the job has finished. Nothing waits on a thread in the meantime, and the future is
+     * completed while the job is locked, so dependent work should run asynchronously.
+     */
+    public synchronized CompletableFuture<Void> whenEventsAfter(int afterId) {
+        return events.size() > afterId || status != Status.RUNNING ? CompletableFuture.completedFuture(null) : nextEvent;
+    }
+
+    public static class Event {
+        private final int id;
+        private final String name;
+        private final String data;
+
+        private Event(int id, String name, String data) {
+            this.id = id;
+            this.name = name;
+            this.data = data;
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * The event's data as a JSON object.
+         */
+        public String getData() {
+            return data;
+        }
+
+        /**
+         * Returns the event in the text/event-stream format.
+         */
+        public String toServerSentEvent() {
+            return "id: " + id + "\nevent: " + name + "\ndata: " + data + "\n\n";
+        }
+    }
+}
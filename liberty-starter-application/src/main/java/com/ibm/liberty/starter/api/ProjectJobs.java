@@ -0,0 +1,102 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.ibm.liberty.starter.api;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.logging.Logger;
+
+import com.ibm.liberty.starter.DownloadCache;
+import com.ibm.liberty.starter.StarterUtil;
+
+/**
+ * The projects being generated, or recently generated, for the jobs API. A finished job is kept for a while so
+ * that the client can fetch the result, and the number of jobs kept is bounded so that a burst of jobs can't use
+ * up the memory. The zips themselves are in the {@link DownloadCache}, which bounds the space they take up.
+ *
+ * How long finished jobs are kept and the most jobs that can be kept can be set with the environment variables
+ * <code>com_ibm_liberty_starter_jobRetentionSeconds</code> and <code>com_ibm_liberty_starter_maxJobs</code>.
+ */
+public class ProjectJobs {
+
+    private static final Logger log = Logger.getLogger(ProjectJobs.class.getName());
+    private static final String RETENTION_ENV = "com_ibm_liberty_starter_jobRetentionSeconds";
+    private static final String MAX_JOBS_ENV = "com_ibm_liberty_starter_maxJobs";
+
+    private static ProjectJobs instance;
+
+    private final ConcurrentMap<String, ProjectJob> jobs = new ConcurrentHashMap<>();
+    private final long retentionMillis;
+    private final int maxJobs;
+    private final LongSupplier clock;
+
+    public ProjectJobs(long retentionMillis, int maxJobs, LongSupplier clock) {
+        this.retentionMillis = retentionMillis;
+        this.maxJobs = maxJobs;
+        this.clock = clock;
+    }
+
+    public static synchronized ProjectJobs getInstance() {
+        if (instance == null) {
+            instance = new ProjectJobs(TimeUnit.SECONDS.toMillis(StarterUtil.getEnvLong(RETENTION_ENV, 600)),
+                                       (int) StarterUtil.getEnvLong(MAX_JOBS_ENV, 100), System::currentTimeMillis);
+        }
+        return instance;
+    }
+
+    /**
+     * Creates a job for a project, first dropping any finished jobs that have been kept long enough.
+     * 
+     * @throws RejectedExecutionException if the most jobs that can be kept are running or waiting to be fetched
+     */
+    public ProjectJob create(String name) {
+        purge();
+        if (jobs.size() >= maxJobs) {
+            throw new RejectedExecutionException("There are already " + jobs.size() + " jobs");
+        }
+        ProjectJob job = new ProjectJob(name, clock);
+        jobs.put(job.getId(), job);
+        return job;
+    }
+
+    /**
+     * Returns the job with the given id, or null if there isn't one or it has been dropped.
+     */
+    public ProjectJob get(String id) {
+        return id == null ? null : jobs.get(id);
+    }
+
+    private void purge() {
+        long expired = clock.getAsLong() - retentionMillis;
+        jobs.values().removeIf(job -> {
+            if (job.getStatus() != ProjectJob.Status.RUNNING && job.getFinishedAt() <= expired) {
+                log.fine("Dropping job " + job.getId() + " finished at " + job.getFinishedAt());
+                if (job.getResult() != null) {
+                    DownloadCache.getInstance().invalidate(job.getResultKey());
+                }
+                return true;
+            }
+            return false;
+        });
+    }
+
+    public int size() {
+        return jobs.size();
+    }
+}
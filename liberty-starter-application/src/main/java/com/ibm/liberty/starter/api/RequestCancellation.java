@@ -0,0 +1,124 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.ibm.liberty.starter.api;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+import com.ibm.liberty.starter.api.AsyncRequests.CheckedSupplier;
+
+/**
+ * Tracks the work in progress for a suspended request so that it can be abandoned when nobody is waiting for the
+ * response any more, because the client disconnected, the request timed out or writing the response failed. The
+ * tracked futures are cancelled and a thread blocked in a step of the request is interrupted. The number of requests
+ * abandoned at each stage is kept for the request statistics.
+ */
+public class RequestCancellation {
+
+    private static final Logger log = Logger.getLogger(RequestCancellation.class.getName());
+    private static final ConcurrentMap<String, LongAdder> abandoned = new ConcurrentHashMap<>();
+
+    private final List<Future<?>> tracked = new ArrayList<>();
+    private Thread worker;
+    private boolean cancelled;
+
+    /**
+     * Cancels the future if the request is abandoned, or straight away if it already has been.
+     */
+    public <F extends Future<?>> F track(F future) {
+        boolean cancel;
+        synchronized (this) {
+            cancel = cancelled;
+            if (!cancel) {
+                tracked.add(future);
+            }
+        }
+        if (cancel) {
+            future.cancel(true);
+        }
+        return future;
+    }
+
+    /**
+     * Runs a blocking step of the request on the current thread. The thread is interrupted if the request is
+     * abandoned while the step is running, and the step isn't started at all if it already has been.
+     */
+    public <T> T runInterruptibly(CheckedSupplier<T> step) throws Exception {
+        synchronized (this) {
+            if (cancelled) {
+                throw new CancellationException("The request has been abandoned");
+            }
+            worker = Thread.currentThread();
+        }
+        try {
+            return step.get();
+        } finally {
+            synchronized (this) {
+                worker = null;
+                if (cancelled) {
+                    // Don't leave the pool's thread interrupted for its next task
+                    Thread.interrupted();
+                }
+            }
+        }
+    }
+
+    /**
+     * Abandons the work for the request, counting it against the stage the request had reached. Only the first
+     * call has any effect.
+     */
+    public void abandon(String stage) {
+        List<Future<?>> toCancel;
+        synchronized (this) {
+            if (cancelled) {
+                return;
+            }
+            cancelled = true;
+            toCancel = new ArrayList<>(tracked);
+            tracked.clear();
+            // Interrupted while holding the lock so that the thread can't have moved on to another request
+            if (worker != null) {
+                worker.interrupt();
+            }
+        }
+        abandoned.computeIfAbsent(stage, key -> new LongAdder()).increment();
+        log.info("Abandoning the work for a request, " + stage);
+        for (Future<?> future : toCancel) {
+            future.cancel(true);
+        }
+    }
+
+    public synchronized boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Returns the number of requests abandoned, keyed by the stage they had reached.
+     */
+    public static Map<String, Long> getAbandoned() {
+        Map<String, Long> counts = new TreeMap<>();
+        abandoned.forEach((stage, count) -> counts.put(stage, count.sum()));
+        return counts;
+    }
+}
@@ -0,0 +1,50 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.ibm.liberty.starter.api;
+
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
+import javax.servlet.annotation.WebListener;
+
+import com.ibm.liberty.starter.ServiceTaskRunner;
+import com.ibm.liberty.starter.ZipCompressor;
+import com.ibm.liberty.starter.client.BxCodegenClient;
+import com.ibm.liberty.starter.client.OutboundClient;
+import com.ibm.liberty.starter.client.ProjectPregenerator;
+
+/**
+ * Starts the background work shared across requests when the application is started and releases the resources
+ * shared across requests when it is stopped.
+ */
+@WebListener
+public class StarterContextListener implements ServletContextListener {
+
+    @Override
+    public void contextInitialized(ServletContextEvent event) {
+        ProjectPregenerator.start();
+    }
+
+    @Override
+    public void contextDestroyed(ServletContextEvent event) {
+        ProjectPregenerator.shutdown();
+        OutboundClient.shutdown();
+        ServiceTaskRunner.shutdown();
+        BxCodegenClient.shutdown();
+        AsyncRequests.shutdown();
+        ZipCompressor.shutdown();
+    }
+
+}
@@ -0,0 +1,64 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.ibm.liberty.starter.api.v1;
+
+import javax.inject.Inject;
+import javax.ws.rs.GET;
+import javax.ws.rs.HeaderParam;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.ResponseBuilder;
+import javax.ws.rs.core.UriInfo;
+
+import com.ibm.liberty.starter.ProviderCatalog;
+import com.ibm.liberty.starter.ServiceConnector;
+import com.ibm.liberty.starter.ServiceRegistry;
+import com.ibm.liberty.starter.StarterUtil;
+
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+import io.swagger.annotations.ApiResponse;
+import io.swagger.annotations.ApiResponses;
+
+@Path("v1/catalog")
+@Api(value = "Technology Catalog API v1")
+public class CatalogEndpoint {
+
+    @Inject
+    private ServiceRegistry serviceRegistry;
+
+    @Inject
+    private ProviderCatalog providerCatalog;
+
+    @GET
+    @Path("/")
+    @Produces(MediaType.APPLICATION_JSON)
+    // Swagger annotations
+    @ApiOperation(value = "Retrieve the catalog of technologies", httpMethod = "GET", notes = "Get every registered technology together with the details and samples of its provider. Send the ETag back in If-None-Match to check whether the catalog has changed.")
+    @ApiResponses(value = { @ApiResponse(code = 200, message = "The catalog of technologies"),
+            @ApiResponse(code = 304, message = "The catalog has not changed") })
+    public Response catalog(@HeaderParam(HttpHeaders.IF_NONE_MATCH) String ifNoneMatch, @Context UriInfo info) {
+        ProviderCatalog.Catalog catalog = providerCatalog.getCatalog(new ServiceConnector(info.getBaseUri(), serviceRegistry));
+        ResponseBuilder response = StarterUtil.matchesETag(ifNoneMatch, catalog.getETag()) ? Response.notModified()
+                : Response.ok(catalog.getBytes(), MediaType.APPLICATION_JSON_TYPE);
+        return response.header(HttpHeaders.ETAG, catalog.getETag()).header(HttpHeaders.CACHE_CONTROL, "no-cache").build();
+    }
+
+}
@@ -17,55 +17,124 @@ package com.ibm.liberty.starter.api.v1;
 
 import java.io.IOException;
 import java.io.OutputStream;
-import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import javax.inject.Inject;
 import javax.validation.ValidationException;
 import javax.ws.rs.GET;
+import javax.ws.rs.HeaderParam;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
 import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.ResponseBuilder;
 import javax.ws.rs.core.Response.Status;
 import javax.ws.rs.core.StreamingOutput;
 import javax.ws.rs.core.UriInfo;
 
+import com.ibm.liberty.starter.DownloadCache;
 import com.ibm.liberty.starter.ProjectConstructionInput;
 import com.ibm.liberty.starter.ProjectConstructionInputData;
 import com.ibm.liberty.starter.ProjectConstructor;
 import com.ibm.liberty.starter.ServiceConnector;
+import com.ibm.liberty.starter.ServiceRegistry;
 import com.ibm.liberty.starter.ZipWriter;
+import com.ibm.liberty.starter.api.AsyncRequests;
+import com.ibm.liberty.starter.api.FileDownload;
+import com.ibm.liberty.starter.api.RequestCancellation;
+import com.ibm.liberty.starter.client.BxCodegenClient;
+import com.ibm.liberty.starter.client.PopularityTracker;
 import com.ibm.liberty.starter.exception.ProjectGenerationException;
 
 @Path("v1/data")
 public class DownloadProjectEndpoint {
 
     private static final Logger log = Logger.getLogger(DownloadProjectEndpoint.class.getName());
+    private static final String ZIP = "application/zip";
+
+    @Inject
+    private ServiceRegistry serviceRegistry;
 
     @GET
-    @Produces("application/zip")
-    public Response getResponse(@QueryParam("tech") String[] techs, @QueryParam("techoptions") String[] techOptions, @QueryParam("name") String name,
+    @Produces(ZIP)
+    public void getResponse(@QueryParam("tech") String[] techs, @QueryParam("techoptions") String[] techOptions, @QueryParam("name") String name,
                                 @QueryParam("deploy") final String deploy, @QueryParam("workspace") final String workspaceId, @QueryParam("build") final String build, 
                                 @QueryParam("artifactId") String artifactId, @QueryParam("groupId") String groupId, @QueryParam("generationId") String generationId,
-                                @QueryParam("beta") boolean beta, @Context UriInfo info) throws NullPointerException, IOException {
+                                @QueryParam("beta") boolean beta, @HeaderParam(HttpHeaders.IF_NONE_MATCH) String ifNoneMatch, @HeaderParam("Range") String range,
+                                @HeaderParam("If-Range") String ifRange, @Context UriInfo info, @Suspended AsyncResponse asyncResponse) {
         log.info("GET request for /data");
-        try {
-            ProjectConstructionInput inputProcessor = new ProjectConstructionInput(new ServiceConnector(info.getBaseUri()));
-            final ProjectConstructionInputData inputData = inputProcessor.processInput(techs, techOptions, name, deploy, workspaceId, build, artifactId, groupId, generationId, beta, true);
-            ProjectConstructor projectConstructor = new ProjectConstructor(inputData);
-            Map<String, byte[]> fileMap = projectConstructor.buildFileMap();
-            ZipWriter zipConstructor = new ZipWriter(fileMap);
-            StreamingOutput so = (OutputStream os) -> {
+        ExecutorService executor = AsyncRequests.getExecutor();
+        // Abandons codegen, the providers and the zip if the client goes away before it has the project
+        RequestCancellation cancellation = new RequestCancellation();
+        CompletableFuture<Response> response = AsyncRequests.supply(cancellation, () -> {
+            ProjectConstructionInput inputProcessor = new ProjectConstructionInput(new ServiceConnector(info.getBaseUri(), serviceRegistry));
+            ProjectConstructionInputData inputData = inputProcessor.processInput(techs, techOptions, name, deploy, workspaceId, build, artifactId, groupId, generationId, beta, true);
+            PopularityTracker.getInstance().record(inputData);
+            return inputData;
+        }).thenCompose(inputData -> {
+            // Projects with packages from a workspace are different every time, and the zip of a job named by its
+            // generation id isn't the project the key stands for, so neither is cached
+            boolean cacheable = (workspaceId == null || workspaceId.trim().isEmpty()) && inputData.generationId == null;
+            String key = cacheable ? new BxCodegenClient().getProjectKey(inputData) : null;
+            DownloadCache.Archive cached = key == null ? null : DownloadCache.getInstance().get(key);
+            if (cached != null) {
+                try {
+                    return CompletableFuture.completedFuture(FileDownload.respond(cached, ZIP, ifNoneMatch, range, ifRange));
+                } catch (IOException e) {
+                    log.log(Level.FINE, "The cached zip was evicted before it could be sent, generating it again", e);
+                }
+            }
+            ProjectConstructor constructor = new ProjectConstructor(inputData);
+            try {
+                return cancellation.track(constructor.buildZipAsync(executor))
+                                   .thenApplyAsync(zipConstructor -> respond(key, constructor, zipConstructor, cancellation, ifNoneMatch, range, ifRange), executor);
+            } catch (ProjectGenerationException e) {
+                throw new CompletionException(e);
+            }
+        }).thenApply(builder -> builder.header("Content-Disposition", "attachment; filename=\"" + name + ".zip\"").build());
+        AsyncRequests.resume(asyncResponse, response, cancellation, this::getErrorResponse,
+                             Response.status(Status.SERVICE_UNAVAILABLE).entity("Project generation timed out. Try again later.").build());
+    }
+
+    // The packages from the workspace are read as the zip is written, so they're cleaned up once it has been
+    private ResponseBuilder respond(String key, ProjectConstructor constructor, ZipWriter zipConstructor, RequestCancellation cancellation,
+                                    String ifNoneMatch, String range, String ifRange) {
+        if (key != null) {
+            try {
+                ResponseBuilder response = FileDownload.respond(DownloadCache.getInstance().put(key, zipConstructor::buildZip), ZIP, ifNoneMatch, range, ifRange);
+                constructor.cleanUp();
+                return response;
+            } catch (IOException e) {
+                log.log(Level.WARNING, "Unable to cache the project zip, sending it without caching it", e);
+            }
+        }
+        StreamingOutput so = (OutputStream os) -> {
+            try {
                 zipConstructor.buildZip(os);
-            };
-            name += ".zip";
-            return Response.ok(so, "application/zip").header("Content-Disposition", "attachment; filename=\"" + name + "\"").build();
-        } catch (ValidationException e) {
+            } catch (IOException e) {
+                cancellation.abandon(AsyncRequests.WRITE_FAILED);
+                throw e;
+            } finally {
+                constructor.cleanUp();
+            }
+        };
+        return Response.ok(so, ZIP);
+    }
+
+    private Response getErrorResponse(Throwable e) {
+        if (e instanceof ValidationException) {
             return Response.status(Status.BAD_REQUEST).entity("Validation of the input failed.").build();
-        } catch (ProjectGenerationException e) {
+        } else if (e instanceof ProjectGenerationException) {
             return Response.status(Status.INTERNAL_SERVER_ERROR).entity(e.getMessage()).build();
-        } catch (Exception e) {
+        } else {
             log.severe(e.getClass().getName() + " caught " + e.getMessage());
             return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity(e.getMessage()).build();
         }
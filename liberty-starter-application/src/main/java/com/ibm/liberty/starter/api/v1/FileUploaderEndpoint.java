@@ -15,6 +15,7 @@
  *******************************************************************************/
 package com.ibm.liberty.starter.api.v1;
 
+import javax.inject.Inject;
 import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
@@ -38,6 +39,7 @@ import org.apache.commons.io.FileUtils;
 import com.ibm.liberty.starter.StarterUtil;
 import com.ibm.liberty.starter.PatternValidation;
 import com.ibm.liberty.starter.ServiceConnector;
+import com.ibm.liberty.starter.ServiceRegistry;
 import com.ibm.liberty.starter.PatternValidation.PatternType;
 import com.ibm.liberty.starter.api.v1.model.registration.Service;
 
@@ -50,6 +52,9 @@ public class FileUploaderEndpoint extends HttpServlet {
 
     private static final Logger log = Logger.getLogger(FileUploaderEndpoint.class.getName());
 
+    @Inject
+    private ServiceRegistry serviceRegistry;
+
     private static final String PARAMETER_TECH = "tech";            // required - The technology the uploaded files are related to.
     private static final String PARAMETER_WORKSPACE = "workspace";    // required - unique workspace directory to upload the files to.
     private static final String PARAMETER_CLEANUP = "cleanup";    //optional - Clean the directory before uploading the files. Default value is 'false'
@@ -64,7 +69,7 @@ public class FileUploaderEndpoint extends HttpServlet {
         int schemeLength = request.getScheme().toString().length();
         String internalHostPort = "http" + serverHostPort.substring(schemeLength);
         log.log(Level.FINER, "serverHostPort : " + serverHostPort);
-        final ServiceConnector serviceConnector = new ServiceConnector(serverHostPort, internalHostPort);
+        final ServiceConnector serviceConnector = new ServiceConnector(serverHostPort, internalHostPort, serviceRegistry);
         HashMap<Part, String> fileNames = new HashMap<Part, String>();
         if(!isValidRequest(request, response, tech, workspaceId, filePartCollection, serviceConnector, fileNames)){
             return;
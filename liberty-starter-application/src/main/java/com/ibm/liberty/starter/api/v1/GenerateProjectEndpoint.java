@@ -15,13 +15,17 @@
  *******************************************************************************/
 package com.ibm.liberty.starter.api.v1;
 
+import java.util.concurrent.CompletableFuture;
 import java.util.logging.Logger;
 
+import javax.inject.Inject;
 import javax.validation.ValidationException;
 import javax.ws.rs.GET;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
@@ -31,7 +35,11 @@ import javax.ws.rs.core.UriInfo;
 import com.ibm.liberty.starter.ProjectConstructionInput;
 import com.ibm.liberty.starter.ProjectConstructionInputData;
 import com.ibm.liberty.starter.ServiceConnector;
+import com.ibm.liberty.starter.ServiceRegistry;
+import com.ibm.liberty.starter.StarterUtil;
+import com.ibm.liberty.starter.api.AsyncRequests;
 import com.ibm.liberty.starter.client.BxCodegenClient;
+import com.ibm.liberty.starter.client.PopularityTracker;
 import com.ibm.liberty.starter.exception.ProjectGenerationException;
 
 @Path("v1/generate")
@@ -39,25 +47,42 @@ public class GenerateProjectEndpoint {
     
     private static final Logger log = Logger.getLogger(GenerateProjectEndpoint.class.getName());
     
+    @Inject
+    private ServiceRegistry serviceRegistry;
+    
     @GET
     @Produces(MediaType.APPLICATION_JSON)
-    public Response generateProject(@QueryParam("tech") String[] techs, @QueryParam("techoptions") String[] techOptions, @QueryParam("name") String name,
+    public void generateProject(@QueryParam("tech") String[] techs, @QueryParam("techoptions") String[] techOptions, @QueryParam("name") String name,
                                 @QueryParam("deploy") final String deploy, @QueryParam("workspace") final String workspaceId, @QueryParam("build") final String build, 
                                 @QueryParam("artifactId") String artifactId, @QueryParam("groupId") String groupId, @QueryParam("generationId") String generationId, 
-                                @QueryParam("beta") boolean beta, @Context UriInfo info) {
+                                @QueryParam("beta") boolean beta, @Context UriInfo info, @Suspended AsyncResponse asyncResponse) {
         log.info("GET request for /generate");
+        CompletableFuture<Response> response;
         try {
-            ProjectConstructionInput inputProcessor = new ProjectConstructionInput(new ServiceConnector(info.getBaseUri()));
+            ProjectConstructionInput inputProcessor = new ProjectConstructionInput(new ServiceConnector(info.getBaseUri(), serviceRegistry));
             final ProjectConstructionInputData inputData = inputProcessor.processInput(techs, techOptions, name, deploy, workspaceId, build, artifactId, groupId, null, beta, false);
-            String id = (new BxCodegenClient()).generateProject(inputData);
-            String requestQueryString = inputData.toRequestQueryString(id);
-            String responseString = "{\"requestQueryString\":\"" + requestQueryString + "\"}";
-            return Response.ok(responseString, MediaType.APPLICATION_JSON).build();
-        } catch (ValidationException e) {
+            PopularityTracker.getInstance().record(inputData);
+            // No thread is held while codegen runs, the request is resumed when the job has finished
+            CompletableFuture<String> job = new BxCodegenClient().generateProjectAsync(inputData);
+            response = StarterUtil.propagateCancellation(job.thenApply(id -> {
+                String requestQueryString = inputData.toRequestQueryString(id);
+                String responseString = "{\"requestQueryString\":\"" + requestQueryString + "\"}";
+                return Response.ok(responseString, MediaType.APPLICATION_JSON).build();
+            }), job);
+        } catch (Exception e) {
+            response = new CompletableFuture<>();
+            response.completeExceptionally(e);
+        }
+        AsyncRequests.resume(asyncResponse, response, this::getErrorResponse,
+                             Response.status(Status.SERVICE_UNAVAILABLE).entity("{\"error\":\"Project generation timed out. Try again later.\"}").build());
+    }
+
+    private Response getErrorResponse(Throwable e) {
+        if (e instanceof ValidationException) {
             return Response.status(Status.BAD_REQUEST).entity("{\"error\":\"Validation of the input failed.\"}").build();
-        } catch (ProjectGenerationException e) {
+        } else if (e instanceof ProjectGenerationException) {
             return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity("{\"error\":\"" + e.getMessage() + "\"}").build();
-        } catch (Exception e) {
+        } else {
             e.printStackTrace(System.err);
             log.severe(e.getClass().getName() + " caught " + e.getMessage());
             return Response.status(Response.Status.INTERNAL_SERVER_ERROR).build();
@@ -16,24 +16,31 @@
 package com.ibm.liberty.starter.api.v1;
 
 import com.ibm.liberty.starter.*;
+import com.ibm.liberty.starter.api.AsyncRequests;
+import com.ibm.liberty.starter.client.OutboundClient;
+import com.ibm.liberty.starter.exception.ProjectGenerationException;
 
+import javax.inject.Inject;
 import javax.naming.InitialContext;
 import javax.naming.NamingException;
 import javax.validation.ValidationException;
 import javax.ws.rs.GET;
 import javax.ws.rs.Path;
 import javax.ws.rs.QueryParam;
-import javax.ws.rs.client.ClientBuilder;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
 import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
 import javax.ws.rs.core.UriInfo;
-import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.net.URI;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
 import java.util.logging.Logger;
 
 @Path("v1/github/callback")
@@ -41,26 +48,48 @@ public class GitHubCallback {
 
     private static final Logger log = Logger.getLogger(GitHubCallback.class.getName());
 
+    @Inject
+    private ServiceRegistry serviceRegistry;
+
     @GET
-    public Response getResponse(@QueryParam("state") String state, @QueryParam("code") String code, @Context UriInfo info) throws NullPointerException, IOException {
+    public void getResponse(@QueryParam("state") String state, @QueryParam("code") String code, @Context UriInfo info, @Suspended AsyncResponse asyncResponse) {
         log.info("GET request for v1/callback");
-        try {
+        ExecutorService executor = AsyncRequests.getExecutor();
+        CompletableFuture<Response> response = AsyncRequests.supply(() -> {
             URI baseUri = info.getBaseUri();
-            ProjectConstructionInput inputProcessor = new ProjectConstructionInput(new ServiceConnector(baseUri));
+            ProjectConstructionInput inputProcessor = new ProjectConstructionInput(new ServiceConnector(baseUri, serviceRegistry));
             ProjectConstructionInputData inputData = inputProcessor.processJwt(state);
-
             String oAuthToken = getOAuthToken(state, code);
+            return new GitHubRequest(inputData, oAuthToken);
+        }).thenCompose(request -> {
+            try {
+                ProjectConstructor constructor = new ProjectConstructor(request.inputData);
+                return constructor.buildFileMapAsync(executor).thenApplyAsync(fileMap -> {
+                    try {
+                        GitHubConnector connector = new GitHubConnector(request.oAuthToken);
+                        GitHubWriter writer = new GitHubWriter(fileMap, request.inputData.appName, connector);
+                        writer.createProjectOnGitHub();
+                        return Response.seeOther(new URI(connector.getRepositoryLocation())).build();
+                    } catch (Exception e) {
+                        throw new CompletionException(e);
+                    } finally {
+                        constructor.cleanUp();
+                    }
+                }, executor);
+            } catch (ProjectGenerationException e) {
+                throw new CompletionException(e);
+            }
+        });
+        AsyncRequests.resume(asyncResponse, response, this::getErrorResponse,
+                             Response.status(Status.SERVICE_UNAVAILABLE).entity("Creating the project on GitHub timed out. Try again later.").build());
+    }
 
-            ProjectConstructor constructor = new ProjectConstructor(inputData);
-            GitHubConnector connector = new GitHubConnector(oAuthToken);
-            GitHubWriter writer = new GitHubWriter(constructor.buildFileMap(), inputData.appName, connector);
-            writer.createProjectOnGitHub();
-            return Response.seeOther(new URI(connector.getRepositoryLocation())).build();
-        } catch (IllegalArgumentException e) {
+    private Response getErrorResponse(Throwable e) {
+        if (e instanceof IllegalArgumentException) {
             return Response.status(Status.FORBIDDEN).build();
-        } catch (ValidationException e) {
+        } else if (e instanceof ValidationException) {
             return Response.status(Status.BAD_REQUEST).entity("Validation of the input failed.").build();
-        } catch (Exception e) {
+        } else {
             e.printStackTrace(System.err);
             String errorMessage = e.getClass().getName() + " occurred processing request: " + e.getMessage();
             log.severe(errorMessage);
@@ -72,13 +101,10 @@ public class GitHubCallback {
         InitialContext initialContext = new InitialContext();
         String clientId = (String) initialContext.lookup("gitHubClientId");
         String clientSecret = (String) initialContext.lookup("gitHubClientSecret");
-        String oauthUrl = "https://github.com/login/oauth/access_token?client_id=" + clientId + "&client_secret=" + clientSecret + "&code=" + code + "&state=" + state;
+        String oauthUrl = GitHubConnector.getGitHubUrl() + "/login/oauth/access_token?client_id=" + clientId + "&client_secret=" + clientSecret + "&code=" + code + "&state=" + state;
         log.info("Requesting token from " + oauthUrl);
-        javax.json.JsonObject oAuthTokenInfo = ClientBuilder
-                .newClient()
-                .target(oauthUrl)
-                .request(MediaType.APPLICATION_JSON_TYPE)
-                .post(null, javax.json.JsonObject.class);
+        javax.json.JsonObject oAuthTokenInfo = OutboundClient.getInstance().invoke(oauthUrl,
+                request -> request.accept(MediaType.APPLICATION_JSON_TYPE).post(null, javax.json.JsonObject.class));
         String oAuthToken = oAuthTokenInfo.getString("access_token");
         if (oAuthToken == null || oAuthToken.length() == 0) {
             log.severe("No oAuthToken passed in.");
@@ -87,4 +113,14 @@ public class GitHubCallback {
         oAuthToken = URLEncoder.encode(oAuthToken, StandardCharsets.UTF_8.name());
         return oAuthToken;
     }
+
+    private static class GitHubRequest {
+        private final ProjectConstructionInputData inputData;
+        private final String oAuthToken;
+
+        private GitHubRequest(ProjectConstructionInputData inputData, String oAuthToken) {
+            this.inputData = inputData;
+            this.oAuthToken = oAuthToken;
+        }
+    }
 }
@@ -15,9 +15,12 @@
  *******************************************************************************/
 package com.ibm.liberty.starter.api.v1;
 
+import com.ibm.liberty.starter.GitHubConnector;
 import com.ibm.liberty.starter.ProjectConstructionInput;
 import com.ibm.liberty.starter.ServiceConnector;
+import com.ibm.liberty.starter.ServiceRegistry;
 
+import javax.inject.Inject;
 import javax.naming.InitialContext;
 import javax.validation.ValidationException;
 import javax.ws.rs.GET;
@@ -36,6 +39,9 @@ public class GitHubProjectEndpoint {
 
     private static final Logger log = Logger.getLogger(GitHubProjectEndpoint.class.getName());
 
+    @Inject
+    private ServiceRegistry serviceRegistry;
+
     @GET
     public Response getResponse(@QueryParam("tech") String[] techs, @QueryParam("techoptions") String[] techOptions, @QueryParam("name") String name,
                                 @QueryParam("deploy") String deploy, @QueryParam("workspace") String workspaceId, @QueryParam("build") String build,
@@ -44,7 +50,7 @@ public class GitHubProjectEndpoint {
         log.info("GET request for v1/createGitHubRepository");
         try {
             URI baseUri = info.getBaseUri();
-            ProjectConstructionInput inputProcessor = new ProjectConstructionInput(new ServiceConnector(baseUri));
+            ProjectConstructionInput inputProcessor = new ProjectConstructionInput(new ServiceConnector(baseUri, serviceRegistry));
 
             // Use a JWT as the "state" object on the GitHub OAuth API. This object allows us to check the validity of
             // the callback when it comes back. By using a signed JWT we can both store all of the parameters in the
@@ -54,7 +60,7 @@ public class GitHubProjectEndpoint {
             // session (although the workspace dir contains some state).
             String state = inputProcessor.processInputAsJwt(techs, techOptions, name, deploy, workspaceId, build, artifactId, groupId, generationId, beta);
             String clientId = (String) new InitialContext().lookup("gitHubClientId");
-            URI gitHubAuth = new URI("https://github.com/login/oauth/authorize?client_id=" + clientId + "&scope=public_repo&state=" + state);
+            URI gitHubAuth = new URI(GitHubConnector.getGitHubUrl() + "/login/oauth/authorize?client_id=" + clientId + "&scope=public_repo&state=" + state);
             log.info("redirecting to " + gitHubAuth);
             return Response.seeOther(gitHubAuth).build();
         } catch (IllegalArgumentException e) {
@@ -0,0 +1,307 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.ibm.liberty.starter.api.v1;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import javax.inject.Inject;
+import javax.json.Json;
+import javax.validation.ValidationException;
+import javax.ws.rs.DELETE;
+import javax.ws.rs.GET;
+import javax.ws.rs.HeaderParam;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.core.UriInfo;
+
+import com.ibm.liberty.starter.DownloadCache;
+import com.ibm.liberty.starter.ProjectConstructionInput;
+import com.ibm.liberty.starter.ProjectConstructionInputData;
+import com.ibm.liberty.starter.ProjectConstructor;
+import com.ibm.liberty.starter.ServiceConnector;
+import com.ibm.liberty.starter.ServiceRegistry;
+import com.ibm.liberty.starter.api.AsyncRequests;
+import com.ibm.liberty.starter.api.FileDownload;
+import com.ibm.liberty.starter.api.ProjectJob;
+import com.ibm.liberty.starter.api.ProjectJobs;
+import com.ibm.liberty.starter.api.RequestCancellation;
+import com.ibm.liberty.starter.client.PopularityTracker;
+import com.ibm.liberty.starter.exception.ProjectGenerationException;
+
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+import io.swagger.annotations.ApiResponse;
+import io.swagger.annotations.ApiResponses;
+
+/**
+ * Generates projects as background jobs. Creating a job returns straight away, the progress of the job through
+ * validating the input, preparing the providers' packages, codegen and packaging the zip can be followed as
+ * server-sent events and the zip is fetched once the job has finished. Each request for events is answered with the
+ * events since the client's Last-Event-ID, waiting without a thread if there aren't any yet, and the EventSource
+ * reconnects for the next batch, so following a job never holds one of the server's threads. The stages run on the
+ * same bounded pool as the other project requests, so a burst of jobs is queued rather than holding the server's
+ * threads.
+ */
+@Path("v1/jobs")
+@Api(value = "Project Jobs API v1")
+public class JobsEndpoint {
+
+    private static final Logger log = Logger.getLogger(JobsEndpoint.class.getName());
+    // How long a request for events waits for the next one, and how soon the client asks again
+    private static final long KEEP_ALIVE_MILLIS = 15000;
+    private static final long RECONNECT_MILLIS = 100;
+    private static final String ZIP = "application/zip";
+
+    public static final String VALIDATION = "validation";
+    public static final String PREPARE = "prepare";
+    public static final String CODEGEN = "codegen";
+    public static final String PACKAGING = "packaging";
+
+    @Inject
+    private ServiceRegistry serviceRegistry;
+
+    @POST
+    @Produces(MediaType.APPLICATION_JSON)
+    // Swagger annotations
+    @ApiOperation(value = "Start generating a project", httpMethod = "POST", notes = "Start a job to generate a project, taking the same parameters as v1/data, and return its id straight away.")
+    @ApiResponses(value = { @ApiResponse(code = 202, message = "The job has been started"),
+                            @ApiResponse(code = 503, message = "Too many projects are being generated") })
+    public Response createJob(@QueryParam("tech") String[] techs, @QueryParam("techoptions") String[] techOptions, @QueryParam("name") String name,
+                              @QueryParam("deploy") final String deploy, @QueryParam("workspace") final String workspaceId, @QueryParam("build") final String build,
+                              @QueryParam("artifactId") String artifactId, @QueryParam("groupId") String groupId, @QueryParam("generationId") String generationId,
+                              @QueryParam("beta") boolean beta, @Context UriInfo info) {
+        log.info("POST request for /jobs");
+        ProjectJob job;
+        try {
+            job = ProjectJobs.getInstance().create(name);
+        } catch (RejectedExecutionException e) {
+            log.warning("Rejecting job as too many are being kept: " + e.getMessage());
+            return busyResponse();
+        }
+        ExecutorService executor = AsyncRequests.getExecutor();
+        RequestCancellation cancellation = job.getCancellation();
+        ProjectConstructionInput inputProcessor = new ProjectConstructionInput(new ServiceConnector(info.getBaseUri(), serviceRegistry));
+        CompletableFuture<DownloadCache.Archive> zip = AsyncRequests.supply(cancellation, () -> {
+            job.stage(VALIDATION);
+            ProjectConstructionInputData inputData = inputProcessor.processInput(techs, techOptions, name, deploy, workspaceId, build, artifactId, groupId, generationId, beta, false);
+            PopularityTracker.getInstance().record(inputData);
+            job.stage(PREPARE);
+            inputProcessor.prepareDynamicPackages(inputData, workspaceId, techOptions, techs);
+            return inputData;
+        }).thenCompose(inputData -> {
+            job.stage(CODEGEN);
+            ProjectConstructor constructor = new ProjectConstructor(inputData);
+            try {
+                return cancellation.track(constructor.buildZipAsync(executor)).thenApplyAsync(zipWriter -> {
+                    job.stage(PACKAGING);
+                    try {
+                        return DownloadCache.getInstance().put(job.getResultKey(), zipWriter::buildZip);
+                    } catch (IOException e) {
+                        throw new CompletionException(e);
+                    } finally {
+                        constructor.cleanUp();
+                    }
+                }, executor);
+            } catch (ProjectGenerationException e) {
+                throw new CompletionException(e);
+            }
+        });
+        cancellation.track(zip).whenComplete((result, failure) -> {
+            if (failure == null) {
+                job.succeed(result);
+            } else {
+                Throwable cause = failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+                job.fail(cause, getErrorMessage(cause));
+            }
+        });
+        if (job.getFailure() instanceof RejectedExecutionException) {
+            return busyResponse();
+        }
+
+        URI jobUri = info.getAbsolutePathBuilder().path(job.getId()).build();
+        String entity = Json.createObjectBuilder()
+                .add("id", job.getId())
+                .add("events", jobUri + "/events")
+                .add("result", jobUri + "/result")
+                .build().toString();
+        return Response.accepted(entity).type(MediaType.APPLICATION_JSON).location(jobUri).build();
+    }
+
+    @GET
+    @Path("{id}")
+    @Produces(MediaType.APPLICATION_JSON)
+    // Swagger annotations
+    @ApiOperation(value = "Retrieve the status of a job", httpMethod = "GET", notes = "Get whether the job is running, succeeded, failed or was cancelled and the stage it reached.")
+    @ApiResponses(value = { @ApiResponse(code = 200, message = "The status of the job"), @ApiResponse(code = 404, message = "There is no job with the id") })
+    public Response getJob(@PathParam("id") String id) {
+        ProjectJob job = ProjectJobs.getInstance().get(id);
+        if (job == null) {
+            return notFoundResponse();
+        }
+        String stage = job.getStage();
+        String entity = Json.createObjectBuilder()
+                .add("id", job.getId())
+                .add("status", job.getStatus().name())
+                .add("stage", stage == null ? "" : stage)
+                .build().toString();
+        return Response.ok(entity, MediaType.APPLICATION_JSON).build();
+    }
+
+    @GET
+    @Path("{id}/events")
+    @Produces("text/event-stream")
+    // Swagger annotations
+    @ApiOperation(value = "Follow the progress of a job", httpMethod = "GET", notes = "Return the events after Last-Event-ID as they happen, ending with a complete, error or cancelled event. "
+                                                                                    + "Each response ends after a batch of events, or a keep-alive if there are none, and the client reconnects with Last-Event-ID for the next batch. "
+                                                                                    + "Once the job has finished and every event has been sent the response is 204, which stops an EventSource reconnecting.")
+    @ApiResponses(value = { @ApiResponse(code = 200, message = "The next events of the job"), @ApiResponse(code = 204, message = "The job has finished and there are no more events"),
+                            @ApiResponse(code = 404, message = "There is no job with the id") })
+    public void getEvents(@PathParam("id") String id, @HeaderParam("Last-Event-ID") String lastEventId, @Suspended AsyncResponse asyncResponse) {
+        ProjectJob job = ProjectJobs.getInstance().get(id);
+        if (job == null) {
+            asyncResponse.resume(notFoundResponse());
+            return;
+        }
+        // The stream is closed after each batch rather than held open, so no thread is tied up for the length of the job
+        int afterId = parseEventId(lastEventId);
+        asyncResponse.setTimeout(KEEP_ALIVE_MILLIS, TimeUnit.MILLISECONDS);
+        asyncResponse.setTimeoutHandler(suspended -> suspended.resume(eventsResponse(job, afterId)));
+        // If the pool is too busy to answer when the next event comes, the timeout answers instead
+        job.whenEventsAfter(afterId).thenRunAsync(() -> asyncResponse.resume(eventsResponse(job, afterId)), AsyncRequests.getExecutor());
+    }
+
+    // The events after the one with the given id, or a keep-alive if there aren't any yet
+    private static Response eventsResponse(ProjectJob job, int afterId) {
+        List<ProjectJob.Event> events = job.getEventsAfter(afterId);
+        if (events.isEmpty() && job.getStatus() != ProjectJob.Status.RUNNING) {
+            return Response.noContent().build();
+        }
+        StringBuilder body = new StringBuilder("retry: " + RECONNECT_MILLIS + "\n\n");
+        if (events.isEmpty()) {
+            body.append(": keep-alive\n\n");
+        }
+        for (ProjectJob.Event event : events) {
+            body.append(event.toServerSentEvent());
+        }
+        return Response.ok(body.toString(), "text/event-stream").header("Cache-Control", "no-cache").build();
+    }
+
+    @GET
+    @Path("{id}/result")
+    @Produces({ ZIP, MediaType.APPLICATION_JSON })
+    // Swagger annotations
+    @ApiOperation(value = "Retrieve the project generated by a job", httpMethod = "GET", notes = "Get the zip of the project once the job has succeeded. "
+                                                                                                + "The zip has an ETag and a single Range can be asked for, so an interrupted download can be resumed.")
+    @ApiResponses(value = { @ApiResponse(code = 200, message = "The zip of the project"), @ApiResponse(code = 202, message = "The job is still running"),
+                            @ApiResponse(code = 206, message = "The range of the zip asked for"), @ApiResponse(code = 304, message = "The client already has the zip"),
+                            @ApiResponse(code = 404, message = "There is no job with the id"),
+                            @ApiResponse(code = 410, message = "The job was cancelled or its zip is no longer available") })
+    public Response getResult(@PathParam("id") String id, @HeaderParam(HttpHeaders.IF_NONE_MATCH) String ifNoneMatch, @HeaderParam("Range") String range,
+                              @HeaderParam("If-Range") String ifRange) {
+        ProjectJob job = ProjectJobs.getInstance().get(id);
+        if (job == null) {
+            return notFoundResponse();
+        }
+        switch (job.getStatus()) {
+            case SUCCEEDED:
+                try {
+                    return FileDownload.respond(job.getResult(), ZIP, ifNoneMatch, range, ifRange)
+                                       .header("Content-Disposition", "attachment; filename=\"" + job.getName() + ".zip\"").build();
+                } catch (IOException e) {
+                    log.fine("The zip of job " + id + " is no longer available: " + e);
+                    return Response.status(Status.GONE).entity("{\"error\":\"The project is no longer available. Start another job.\"}").type(MediaType.APPLICATION_JSON).build();
+                }
+            case RUNNING:
+                return Response.accepted("{\"status\":\"RUNNING\"}").type(MediaType.APPLICATION_JSON).build();
+            case CANCELLED:
+                return Response.status(Status.GONE).entity("{\"error\":\"The job was cancelled.\"}").type(MediaType.APPLICATION_JSON).build();
+            default:
+                Throwable failure = job.getFailure();
+                Status status = failure instanceof ValidationException ? Status.BAD_REQUEST
+                        : failure instanceof RejectedExecutionException ? Status.SERVICE_UNAVAILABLE : Status.INTERNAL_SERVER_ERROR;
+                String entity = Json.createObjectBuilder().add("error", getErrorMessage(failure)).build().toString();
+                return Response.status(status).entity(entity).type(MediaType.APPLICATION_JSON).build();
+        }
+    }
+
+    @DELETE
+    @Path("{id}")
+    // Swagger annotations
+    @ApiOperation(value = "Cancel a job", httpMethod = "DELETE", notes = "Abandon the work for a job that is still running.")
+    @ApiResponses(value = { @ApiResponse(code = 204, message = "The job has been cancelled"), @ApiResponse(code = 404, message = "There is no job with the id") })
+    public Response cancelJob(@PathParam("id") String id) {
+        ProjectJob job = ProjectJobs.getInstance().get(id);
+        if (job == null) {
+            return notFoundResponse();
+        }
+        job.cancel();
+        return Response.noContent().build();
+    }
+
+    private static int parseEventId(String lastEventId) {
+        if (lastEventId != null) {
+            try {
+                return Math.max(Integer.parseInt(lastEventId.trim()), 0);
+            } catch (NumberFormatException e) {
+                log.fine("Ignoring invalid Last-Event-ID " + lastEventId);
+            }
+        }
+        return 0;
+    }
+
+    private static String getErrorMessage(Throwable e) {
+        if (e instanceof ValidationException) {
+            return "Validation of the input failed.";
+        } else if (e instanceof ProjectGenerationException) {
+            return e.getMessage();
+        } else if (e instanceof CancellationException) {
+            return "The job was cancelled.";
+        } else if (e instanceof RejectedExecutionException) {
+            return "Too many projects are being generated at the moment. Try again later.";
+        } else {
+            log.severe(e.getClass().getName() + " caught " + e.getMessage());
+            return "Project generation failed. Try again later.";
+        }
+    }
+
+    private static Response notFoundResponse() {
+        return Response.status(Status.NOT_FOUND).entity("{\"error\":\"There is no job with that id.\"}").type(MediaType.APPLICATION_JSON).build();
+    }
+
+    private static Response busyResponse() {
+        return Response.status(Status.SERVICE_UNAVAILABLE).entity("{\"error\":\"Too many projects are being generated at the moment. Try again later.\"}")
+                .type(MediaType.APPLICATION_JSON).build();
+    }
+}
@@ -0,0 +1,67 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.ibm.liberty.starter.api.v1;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+import com.ibm.liberty.starter.BlobStore;
+import com.ibm.liberty.starter.DownloadCache;
+import com.ibm.liberty.starter.client.ProjectCache;
+
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+import io.swagger.annotations.ApiResponse;
+import io.swagger.annotations.ApiResponses;
+
+@Path("v1/cache")
+@Api(value = "Project Cache API v1")
+public class ProjectCacheEndpoint {
+
+    @GET
+    @Path("stats")
+    @Produces(MediaType.APPLICATION_JSON)
+    // Swagger annotations
+    @ApiOperation(value = "Retrieve the statistics of the project cache", httpMethod = "GET", notes = "Get the hits, misses and size of the cache of projects generated by Bx codegen.")
+    @ApiResponses(value = { @ApiResponse(code = 200, message = "The statistics of the project cache") })
+    public Response stats() {
+        return Response.ok(ProjectCache.getInstance().getStats(), MediaType.APPLICATION_JSON).build();
+    }
+
+    @GET
+    @Path("downloads/stats")
+    @Produces(MediaType.APPLICATION_JSON)
+    // Swagger annotations
+    @ApiOperation(value = "Retrieve the statistics of the download cache", httpMethod = "GET", notes = "Get the hits, misses and size of the cache of finished project zips on disk.")
+    @ApiResponses(value = { @ApiResponse(code = 200, message = "The statistics of the download cache") })
+    public Response downloadStats() {
+        return Response.ok(DownloadCache.getInstance().getStats(), MediaType.APPLICATION_JSON).build();
+    }
+
+    @GET
+    @Path("blobs/stats")
+    @Produces(MediaType.APPLICATION_JSON)
+    // Swagger annotations
+    @ApiOperation(value = "Retrieve the statistics of the blob store", httpMethod = "GET", notes = "Get the hits, misses and size of the file contents shared between projects.")
+    @ApiResponses(value = { @ApiResponse(code = 200, message = "The statistics of the blob store") })
+    public Response blobStats() {
+        return Response.ok(BlobStore.getInstance().getStats(), MediaType.APPLICATION_JSON).build();
+    }
+
+}
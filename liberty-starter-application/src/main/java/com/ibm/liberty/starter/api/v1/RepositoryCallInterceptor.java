@@ -18,6 +18,7 @@ package com.ibm.liberty.starter.api.v1;
 import java.io.IOException;
 import java.io.InputStream;
 
+import javax.inject.Inject;
 import javax.ws.rs.GET;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
@@ -28,12 +29,16 @@ import javax.ws.rs.core.UriInfo;
 
 import com.ibm.liberty.starter.PatternValidation;
 import com.ibm.liberty.starter.ServiceConnector;
+import com.ibm.liberty.starter.ServiceRegistry;
 import com.ibm.liberty.starter.PatternValidation.PatternType;
 import com.ibm.liberty.starter.api.v1.model.registration.Service;
 
 @Path("v1/repo")
 public class RepositoryCallInterceptor {
 
+    @Inject
+    private ServiceRegistry serviceRegistry;
+
     @GET
     @Path("net/wasdev/wlp/starters/{tech}/{path: .*}")
     public Response getArtifacts(@PathParam("tech") String tech, @PathParam("path") String path, @Context UriInfo info) throws IOException {
@@ -41,13 +46,8 @@ public class RepositoryCallInterceptor {
             && PatternValidation.checkPattern(PatternType.PATH_EXTENSION, path)) {
             String fileExtension = "net/wasdev/wlp/starters/" + tech + "/" + path;
             System.out.println("Request for artifact file " + fileExtension);
-            ServiceConnector serviceConnector = new ServiceConnector(info.getBaseUri());
-            Service service;
-            if ("ms-builder".equals(tech)) {
-                service = serviceConnector.getServiceObjectFromId("msbuilder");
-            } else {
-                service = serviceConnector.getServiceObjectFromId(tech);
-            }
+            ServiceConnector serviceConnector = new ServiceConnector(info.getBaseUri(), serviceRegistry);
+            Service service = serviceConnector.getServiceObjectFromId(tech);
             if (service == null) {
                 return Response.status(Status.NOT_FOUND).entity("Tech type " + tech + " not found").build();
             }
@@ -0,0 +1,56 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.ibm.liberty.starter.api.v1;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+
+import com.ibm.liberty.starter.MemoryBudget;
+import com.ibm.liberty.starter.api.AsyncRequests;
+
+import io.swagger.annotations.Api;
+import io.swagger.annotations.ApiOperation;
+import io.swagger.annotations.ApiResponse;
+import io.swagger.annotations.ApiResponses;
+
+@Path("v1/requests")
+@Api(value = "Requests API v1")
+public class RequestsEndpoint {
+
+    @GET
+    @Path("stats")
+    @Produces(MediaType.APPLICATION_JSON)
+    // Swagger annotations
+    @ApiOperation(value = "Retrieve the statistics of project requests", httpMethod = "GET", notes = "Get the number of requests in progress and the work abandoned because the client went away or the request timed out.")
+    @ApiResponses(value = { @ApiResponse(code = 200, message = "The statistics of project requests") })
+    public Response stats() {
+        return Response.ok(AsyncRequests.getStats(), MediaType.APPLICATION_JSON).build();
+    }
+
+    @GET
+    @Path("memory")
+    @Produces(MediaType.APPLICATION_JSON)
+    // Swagger annotations
+    @ApiOperation(value = "Retrieve the memory used to write projects", httpMethod = "GET", notes = "Get the bytes of projects held in memory across all requests, the limit on them and how much has been spilled to disk.")
+    @ApiResponses(value = { @ApiResponse(code = 200, message = "The memory used to write projects") })
+    public Response memory() {
+        return Response.ok(MemoryBudget.getSharedPool(), MediaType.APPLICATION_JSON).build();
+    }
+
+}
@@ -15,6 +15,11 @@
  *******************************************************************************/
 package com.ibm.liberty.starter.api.v1;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import javax.inject.Inject;
 import javax.ws.rs.GET;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
@@ -27,8 +32,12 @@ import javax.ws.rs.core.UriInfo;
 
 import com.ibm.liberty.starter.PatternValidation;
 import com.ibm.liberty.starter.ServiceConnector;
+import com.ibm.liberty.starter.ServiceRegistry;
 import com.ibm.liberty.starter.PatternValidation.PatternType;
+import com.ibm.liberty.starter.api.v1.model.internal.TechnologyHealth;
 import com.ibm.liberty.starter.api.v1.model.registration.Service;
+import com.ibm.liberty.starter.client.CircuitBreaker;
+import com.ibm.liberty.starter.client.CircuitBreakers;
 
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
@@ -39,6 +48,9 @@ import io.swagger.annotations.ApiResponses;
 @Api(value = "Technology Finder API v1")
 public class TechnologyEndpoint {
 
+    @Inject
+    private ServiceRegistry serviceRegistry;
+
     // JAX-RS annotations
     @GET
     @Path("/")
@@ -47,10 +59,35 @@ public class TechnologyEndpoint {
     @ApiOperation(value = "Retrieve a list of technologies", httpMethod = "GET", notes = "Get a list of the currently registered set of technologies. This should not be cached as it may change at any time.")
     @ApiResponses(value = { @ApiResponse(code = 200, message = "The list of technologies") })
     public Response tech(@Context UriInfo info) {
-        ServiceConnector serviceConnector = new ServiceConnector(info.getBaseUri());
+        ServiceConnector serviceConnector = new ServiceConnector(info.getBaseUri(), serviceRegistry);
         return Response.ok(serviceConnector.getServices().getServices(), MediaType.APPLICATION_JSON).build();
     }
 
+    @GET
+    @Path("health")
+    @Produces(MediaType.APPLICATION_JSON)
+    // Swagger annotations
+    @ApiOperation(value = "Retrieve the health of the technologies", httpMethod = "GET", notes = "Get the state of the circuit breaker for each registered technology. A degraded technology is not currently being called and can't be included in a project.")
+    @ApiResponses(value = { @ApiResponse(code = 200, message = "The health of each technology") })
+    public Response health() {
+        Map<String, CircuitBreaker> breakers = CircuitBreakers.getInstance().getBreakers();
+        List<TechnologyHealth> health = new ArrayList<>();
+        for (Service service : serviceRegistry.getServices().getServices()) {
+            TechnologyHealth techHealth = new TechnologyHealth();
+            techHealth.setId(service.getId());
+            CircuitBreaker breaker = breakers.get(service.getId());
+            CircuitBreaker.State state = breaker == null ? CircuitBreaker.State.CLOSED : breaker.getState();
+            techHealth.setState(state.name());
+            techHealth.setDegraded(state != CircuitBreaker.State.CLOSED);
+            if (breaker != null) {
+                techHealth.setFailureRate(breaker.getFailureRate());
+                techHealth.setSlowCallRate(breaker.getSlowCallRate());
+            }
+            health.add(techHealth);
+        }
+        return Response.ok(health, MediaType.APPLICATION_JSON).build();
+    }
+
     @GET
     @Path("{tech}")
     @Produces(MediaType.APPLICATION_JSON)
@@ -60,7 +97,7 @@ public class TechnologyEndpoint {
             @ApiResponse(code = 404, message = "The technology could not be found") })
     public Response getTechnology(@PathParam("tech") String tech, @Context UriInfo info) {
         if (PatternValidation.checkPattern(PatternType.TECH, tech)) {
-            ServiceConnector serviceConnector = new ServiceConnector(info.getBaseUri());
+            ServiceConnector serviceConnector = new ServiceConnector(info.getBaseUri(), serviceRegistry);
             Service service = serviceConnector.getServiceObjectFromId(tech);
             if (service == null) {
                 return Response.status(Status.NOT_FOUND).build();
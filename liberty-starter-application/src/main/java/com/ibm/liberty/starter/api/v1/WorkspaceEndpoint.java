@@ -18,10 +18,10 @@ package com.ibm.liberty.starter.api.v1;
 import java.io.File;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.Map;
 import java.util.logging.Logger;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipOutputStream;
 
 import javax.ws.rs.GET;
 import javax.ws.rs.Path;
@@ -37,7 +37,9 @@ import org.apache.commons.io.filefilter.FileFilterUtils;
 import org.apache.commons.io.filefilter.IOFileFilter;
 import org.apache.commons.io.filefilter.NameFileFilter;
 
+import com.ibm.liberty.starter.ProjectFile;
 import com.ibm.liberty.starter.StarterUtil;
+import com.ibm.liberty.starter.ZipWriter;
 
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
@@ -81,26 +83,17 @@ public class WorkspaceEndpoint {
             }
             Iterator<File> itr = FileUtils.iterateFilesAndDirs(directory, filter, FileFilterUtils.trueFileFilter());
             StreamingOutput so = (OutputStream os) -> {
-                ZipOutputStream zos = new ZipOutputStream(os);
+                Map<String, ProjectFile> files = new HashMap<>();
                 while(itr.hasNext()) {
                     File file = itr.next();
                     if(file.isFile()) {
-                        byte[] byteArray = FileUtils.readFileToByteArray(file);
                         String path = file.getAbsolutePath().replace('\\', '/');
                         int index = path.indexOf(serviceId + "/" + dir);
-                        String relativePath = path.substring(index);
-                        ZipEntry entry = new ZipEntry(relativePath);
-                        entry.setSize(byteArray.length);
-                        entry.setCompressedSize(-1);
-                        try {
-                            zos.putNextEntry(entry);
-                            zos.write(byteArray);
-                        } catch (IOException e) {
-                            throw new IOException(e);
-                        }
+                        files.put(path.substring(index), ProjectFile.of(file.toPath()));
                     }
                 }
-                zos.close();
+                // Compresses the files in parallel
+                new ZipWriter(files).buildZip(os);
             };
             log.info("Copied files from " + filesDir + " to zip.");
             return Response.ok(so, "application/zip").header("Content-Disposition", "attachment; filename=\"swagger.zip\"").build();
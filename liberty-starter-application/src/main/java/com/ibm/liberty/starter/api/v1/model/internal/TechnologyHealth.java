@@ -0,0 +1,72 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.ibm.liberty.starter.api.v1.model.internal;
+
+import io.swagger.annotations.ApiModelProperty;
+
+public class TechnologyHealth {
+    private String id;
+    private String state;
+    private boolean degraded;
+    private double failureRate;
+    private double slowCallRate;
+
+    @ApiModelProperty(value="ID of the technology", required=true)
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    @ApiModelProperty(value="State of the circuit breaker for the technology's provider: CLOSED, OPEN or HALF_OPEN", required=true)
+    public String getState() {
+        return state;
+    }
+
+    public void setState(String state) {
+        this.state = state;
+    }
+
+    @ApiModelProperty(value="True if calls to the technology's provider are currently being refused or probed", required=true)
+    public boolean isDegraded() {
+        return degraded;
+    }
+
+    public void setDegraded(boolean degraded) {
+        this.degraded = degraded;
+    }
+
+    @ApiModelProperty(value="Fraction of the recent calls to the provider that failed", required=true)
+    public double getFailureRate() {
+        return failureRate;
+    }
+
+    public void setFailureRate(double failureRate) {
+        this.failureRate = failureRate;
+    }
+
+    @ApiModelProperty(value="Fraction of the recent calls to the provider that were slow", required=true)
+    public double getSlowCallRate() {
+        return slowCallRate;
+    }
+
+    public void setSlowCallRate(double slowCallRate) {
+        this.slowCallRate = slowCallRate;
+    }
+
+}
@@ -15,24 +15,26 @@
  *******************************************************************************/
 package com.ibm.liberty.starter.api.v1.temp;
 
-import java.io.IOException;
-import java.io.InputStream;
-import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.regex.Pattern;
 
-import javax.json.Json;
-import javax.json.JsonObject;
-import javax.json.JsonReader;
+import javax.inject.Inject;
 import javax.ws.rs.GET;
+import javax.ws.rs.HeaderParam;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.ResponseBuilder;
 import javax.ws.rs.core.Response.Status;
 
+import com.ibm.liberty.starter.ServiceRegistry;
+import com.ibm.liberty.starter.ServicesDocument;
+import com.ibm.liberty.starter.StarterUtil;
+
 //Temporary class until we put services.json into Cloudant
 @Path("v1/services")
 public class ServiceFinder {
@@ -40,17 +42,21 @@ public class ServiceFinder {
     private static final Pattern URI_PATH_PATTERN = Pattern.compile("[a-zA-Z0-9-_/.:]*");
     private static final Logger log = Logger.getLogger(ServiceFinder.class.getName());
 
+    @Inject
+    private ServiceRegistry serviceRegistry;
+
     @GET
     @Path("/")
     @Produces(MediaType.APPLICATION_JSON)
-    public Response getServices() {
+    public Response getServices(@HeaderParam(HttpHeaders.IF_NONE_MATCH) String ifNoneMatch, @HeaderParam(HttpHeaders.ACCEPT_ENCODING) String acceptEncoding) {
         String jsonLocation = null;
         try {
             jsonLocation = getJsonLocation();
-            return readServicesFile(jsonLocation);
-        } catch (URISyntaxException e) {
-            return exceptionToResponse(e, "Unable to parse URI " + jsonLocation);
-        } catch (IOException e) {
+            return servicesResponse(serviceRegistry.getServicesDocument(), ifNoneMatch, acceptEncoding);
+        } catch (IllegalStateException e) {
+            if (e.getCause() instanceof URISyntaxException) {
+                return exceptionToResponse(e, "Unable to parse URI " + jsonLocation);
+            }
             return exceptionToResponse(e, "Error reading file " + jsonLocation);
         } catch (IllegalArgumentException e) {
             return exceptionToResponse(e, "Invalid environment variable com.ibm.liberty.starter.servicesJsonLocation set.");
@@ -58,7 +64,7 @@ public class ServiceFinder {
 
     }
 
-    private String getJsonLocation() {
+    public static String getJsonLocation() {
         String jsonLocation = System.getenv("com_ibm_liberty_starter_servicesJsonLocation");
         if (jsonLocation == null) {
             jsonLocation = "/services.json";
@@ -75,13 +81,35 @@ public class ServiceFinder {
         }
     }
 
-    private Response readServicesFile(String jsonLocation) throws URISyntaxException, IOException {
-        URI uri = new URI(jsonLocation);
-        try (InputStream is = ServiceFinder.class.getResourceAsStream(uri.getPath());
-                        JsonReader reader = Json.createReader(is)) {
-            JsonObject jsonData = reader.readObject();
-            return Response.ok(jsonData.toString(), MediaType.APPLICATION_JSON_TYPE).build();
+    // The bytes are serialized once per version of the file, clients polling with the ETag get a 304 until it changes
+    private Response servicesResponse(ServicesDocument.Content content, String ifNoneMatch, String acceptEncoding) {
+        boolean gzip = acceptsGzip(acceptEncoding);
+        String etag = gzip ? content.getGzippedETag() : content.getETag();
+        ResponseBuilder response;
+        if (StarterUtil.matchesETag(ifNoneMatch, content.getETag()) || StarterUtil.matchesETag(ifNoneMatch, content.getGzippedETag())) {
+            response = Response.notModified();
+        } else if (gzip) {
+            response = Response.ok(content.getGzippedBytes(), MediaType.APPLICATION_JSON_TYPE).header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        } else {
+            response = Response.ok(content.getBytes(), MediaType.APPLICATION_JSON_TYPE);
+        }
+        return response.header(HttpHeaders.ETAG, etag)
+                       .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+                       .header(HttpHeaders.CACHE_CONTROL, "no-cache")
+                       .build();
+    }
+
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.trim().split(";");
+            if (parts[0].trim().equalsIgnoreCase("gzip")) {
+                return parts.length == 1 || !parts[1].replace(" ", "").matches("q=0(\\.0*)?");
+            }
         }
+        return false;
     }
 
     private Response exceptionToResponse(Exception e, String message) {
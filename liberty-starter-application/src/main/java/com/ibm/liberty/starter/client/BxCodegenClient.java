@@ -16,64 +16,271 @@
 package com.ibm.liberty.starter.client;
 
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.logging.Logger;
 import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
 import java.util.zip.ZipInputStream;
 
 import javax.json.Json;
 import javax.json.JsonObject;
-import javax.ws.rs.client.Client;
-import javax.ws.rs.client.ClientBuilder;
 import javax.ws.rs.client.Entity;
-import javax.ws.rs.client.Invocation;
-import javax.ws.rs.client.WebTarget;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 
+import org.apache.commons.io.IOUtils;
+
+import com.ibm.liberty.starter.DownloadCache;
 import com.ibm.liberty.starter.ProjectConstructionInputData;
+import com.ibm.liberty.starter.ProjectFile;
+import com.ibm.liberty.starter.StarterUtil;
 import com.ibm.liberty.starter.exception.ProjectGenerationException;
 
 public class BxCodegenClient {
     
     private static final Logger log = Logger.getLogger(BxCodegenClient.class.getName());
     
+    private static final String INITIAL_POLL_ENV = "com_ibm_liberty_starter_codegenInitialPollMillis";
+    private static final String MAX_POLL_ENV = "com_ibm_liberty_starter_codegenMaxPollMillis";
+    private static final String TIMEOUT_ENV = "com_ibm_liberty_starter_codegenTimeout";
+    private static final String POLLER_THREADS_ENV = "com_ibm_liberty_starter_codegenPollerThreads";
+    
+    private static ScheduledExecutorService scheduler;
+    private static final SingleFlight<String> jobs = new SingleFlight<>("codegen job");
+    private static final SingleFlight<byte[]> downloads = new SingleFlight<>("codegen download");
+    
     public final String URL = System.getenv("bxCodegenEndpoint");
     public final String STARTERKIT_URL = System.getenv("appAccelStarterkit");
-    private final int retriesAllowed = 18;
+    private final long initialPollMillis;
+    private final long maxPollMillis;
+    private final long timeoutMillis;
+    private final ProjectCache cache;
+    
+    public BxCodegenClient() {
+        this(StarterUtil.getEnvLong(INITIAL_POLL_ENV, 100), StarterUtil.getEnvLong(MAX_POLL_ENV, 3000), StarterUtil.getEnvLong(TIMEOUT_ENV, 60000), ProjectCache.getInstance());
+    }
+    
+    /**
+     * @param initialPollMillis How long to wait before the first status check, the wait doubles after every check
+     * @param maxPollMillis The longest wait between status checks
+     * @param timeoutMillis How long to wait for the generation to finish
+     * @param cache The cache of generated projects
+     */
+    protected BxCodegenClient(long initialPollMillis, long maxPollMillis, long timeoutMillis, ProjectCache cache) {
+        this.initialPollMillis = initialPollMillis;
+        this.maxPollMillis = maxPollMillis;
+        this.timeoutMillis = timeoutMillis;
+        this.cache = cache;
+    }
+    
+    private static synchronized ScheduledExecutorService getScheduler() {
+        if (scheduler == null) {
+            int threads = (int) StarterUtil.getEnvLong(POLLER_THREADS_ENV, 4);
+            ScheduledThreadPoolExecutor pool = new ScheduledThreadPoolExecutor(threads, StarterUtil.createThreadFactory("BxCodegenClient-poller"));
+            pool.setRemoveOnCancelPolicy(true);
+            scheduler = pool;
+        }
+        return scheduler;
+    }
+    
+    /**
+     * Stops the shared scheduler. Called when the application is stopped.
+     */
+    public static synchronized void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+    
+    /**
+     * Returns the files of the project, from the cache if the same project has been generated before.
+     */
+    public Map<String, ProjectFile> getFileMap(ProjectConstructionInputData inputData) throws ProjectGenerationException {
+        // The project is downloaded by the thread that sees the job finish, as there's no request pool to hand it to
+        return join(getFileMapAsync(inputData, Runnable::run));
+    }
+    
+    /**
+     * Returns a future for the files of the project without holding a thread while codegen runs. Each caller gets
+     * its own map of the files, which are inflated from the generated zip when they are read.
+     */
+    public CompletableFuture<Map<String, ProjectFile>> getFileMapAsync(ProjectConstructionInputData inputData, Executor executor) throws ProjectGenerationException {
+        CompletableFuture<byte[]> zip = getProjectZipAsync(inputData, executor);
+        return StarterUtil.propagateCancellation(zip.thenApply(BxCodegenClient::readProjectMap), zip);
+    }
+    
+    /**
+     * Returns a future for the zip of the project as generated by codegen, without holding a thread while codegen
+     * runs. The zip is downloaded on the given executor once the job has finished, unless it is already cached.
+     * Concurrent calls for the same project share one job and one download, which are cancelled if every caller
+     * cancels their future. The array is shared and must not be modified. If the input names a job with its
+     * generation id, the zip of that job is downloaded and neither cached nor shared with other calls, as the cache
+     * key doesn't include the id.
+     */
+    public CompletableFuture<byte[]> getProjectZipAsync(ProjectConstructionInputData inputData, Executor executor) throws ProjectGenerationException {
+        checkConfig();
+        if (inputData.generationId != null) {
+            return downloadJob(inputData.generationId, executor);
+        }
+        String key = ProjectCache.createKey(inputData, STARTERKIT_URL);
+        byte[] cached = cache.get(key);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        return download(key, inputData, executor);
+    }
     
-    public Map<String, byte[]> getFileMap(ProjectConstructionInputData inputData) throws ProjectGenerationException {
+    /**
+     * Generates the project again, whether or not it is cached, and replaces the cached zip with the result.
+     */
+    public CompletableFuture<byte[]> regenerateProjectZipAsync(ProjectConstructionInputData inputData, Executor executor) throws ProjectGenerationException {
         checkConfig();
         if (inputData.generationId != null) {
-            return getExistingFileMap(inputData.generationId);
-        } else {
-            return generateAndGetFileMap(inputData);
+            return downloadJob(inputData.generationId, executor);
         }
+        return download(ProjectCache.createKey(inputData, STARTERKIT_URL), inputData, executor);
     }
     
-    private Map<String, byte[]> generateAndGetFileMap(ProjectConstructionInputData inputData) {
-        String payload = getPayload(inputData);
-        String id = callBxCodegen(payload);
-        waitForFinishedStatus(id);
-        Map<String, byte[]> projectMap = getProjectMap(id);
-        return projectMap;
+    /**
+     * Returns true if the project is cached, without counting as a lookup in the cache statistics.
+     */
+    public boolean isCached(ProjectConstructionInputData inputData) {
+        return cache.contains(ProjectCache.createKey(inputData, STARTERKIT_URL));
+    }
+    
+    /**
+     * Returns the key the project for the input is cached under. Anything else cached for the project under this
+     * key is invalidated whenever codegen generates the project again.
+     */
+    public String getProjectKey(ProjectConstructionInputData inputData) {
+        return ProjectCache.createKey(inputData, STARTERKIT_URL);
+    }
+    
+    private CompletableFuture<byte[]> download(String key, ProjectConstructionInputData inputData, Executor executor) {
+        return downloads.call(key, () -> {
+            CompletableFuture<String> id = generateProjectAsync(inputData);
+            return StarterUtil.propagateCancellation(id.thenApplyAsync(jobId -> {
+                byte[] zip = getProjectZip(jobId);
+                cache.put(key, zip);
+                DownloadCache.getInstance().invalidate(key);
+                return zip;
+            }, executor), id);
+        });
     }
     
-    private Map<String, byte[]> getExistingFileMap(String id) {
-        Map<String, byte[]> projectMap = getProjectMap(id);
-        return projectMap;
+    private CompletableFuture<byte[]> downloadJob(String jobId, Executor executor) {
+        return CompletableFuture.supplyAsync(() -> getProjectZip(jobId), executor);
     }
     
     public String generateProject(ProjectConstructionInputData inputData) throws ProjectGenerationException {
+        return join(generateProjectAsync(inputData));
+    }
+    
+    /**
+     * Starts generating the project and returns straight away. The status of the job is polled on a shared
+     * scheduler, with the wait between checks doubling up to a maximum, and the future completes with the job id
+     * once it has finished. It completes exceptionally with a ProjectGenerationException if the job fails or
+     * doesn't finish in time. Concurrent calls for the same project share one job, and polling stops once every
+     * caller has cancelled their future.
+     */
+    public CompletableFuture<String> generateProjectAsync(ProjectConstructionInputData inputData) throws ProjectGenerationException {
         checkConfig();
         String payload = getPayload(inputData);
-        String id = callBxCodegen(payload);
-        waitForFinishedStatus(id);
-        return id;
+        return jobs.call(ProjectCache.createKey(inputData, STARTERKIT_URL), () -> startJob(payload));
+    }
+    
+    private CompletableFuture<String> startJob(String payload) {
+        CompletableFuture<String> result = new CompletableFuture<>();
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        AtomicReference<Future<?>> next = new AtomicReference<>();
+        Future<?> submitted = getScheduler().submit(() -> {
+            try {
+                String id = callBxCodegen(payload);
+                schedulePoll(id, initialPollMillis, deadline, result, next);
+            } catch (RuntimeException e) {
+                result.completeExceptionally(e);
+            }
+        });
+        // The first poll may already have been scheduled
+        next.compareAndSet(null, submitted);
+        result.whenComplete((id, failure) -> {
+            if (result.isCancelled()) {
+                log.fine("Stopped polling for a cancelled codegen job");
+                next.get().cancel(false);
+            }
+        });
+        return result;
+    }
+    
+    private void schedulePoll(String id, long delayMillis, long deadline, CompletableFuture<String> result, AtomicReference<Future<?>> next) {
+        if (result.isDone()) {
+            return;
+        }
+        // Spread the checks for jobs started at the same time
+        long jitteredDelay = delayMillis / 2 + ThreadLocalRandom.current().nextLong(delayMillis / 2 + 1);
+        next.set(getScheduler().schedule(() -> poll(id, delayMillis, deadline, result, next), jitteredDelay, TimeUnit.MILLISECONDS));
+    }
+    
+    private void poll(String id, long delayMillis, long deadline, CompletableFuture<String> result, AtomicReference<Future<?>> next) {
+        if (result.isDone()) {
+            return;
+        }
+        try {
+            String status = checkStatus(id);
+            if ("FINISHED".equals(status)) {
+                result.complete(id);
+            } else if ("FAILED".equals(status)) {
+                result.completeExceptionally(new ProjectGenerationException("Code generation failed for job with id: " + id + ". Try again later."));
+            } else if (!"RUNNING".equals(status)) {
+                result.completeExceptionally(new ProjectGenerationException("Did not receive FINISHED from Bx codegen for job with id: " + id + ". Status received:" + status));
+            } else if (System.currentTimeMillis() >= deadline) {
+                result.completeExceptionally(new ProjectGenerationException("Code generation for job with id " + id + " timed out. Try again later"));
+            } else {
+                long nextDelay = Math.min(delayMillis * 2, maxPollMillis);
+                schedulePoll(id, Math.min(nextDelay, Math.max(deadline - System.currentTimeMillis(), 1)), deadline, result, next);
+            }
+        } catch (RuntimeException e) {
+            result.completeExceptionally(e);
+        }
+    }
+    
+    /**
+     * Returns the number of codegen jobs that stopped being polled because every request waiting for them had
+     * gone away.
+     */
+    public static long getCancelledJobs() {
+        return jobs.getCancelled();
+    }
+    
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+    
+    /**
+     * Returns true if the codegen and starter kit URLs have been set.
+     */
+    public boolean isConfigured() {
+        return URL != null && STARTERKIT_URL != null;
     }
     
     private void checkConfig() throws ProjectGenerationException {
@@ -104,11 +311,10 @@ public class BxCodegenClient {
     
     protected String callBxCodegen(String payload) {
         System.out.println("Sending codegen request with payload: " + payload);
-        Client client = ClientBuilder.newClient();
-        WebTarget target = client.target(URL + "api/generator");
-        Invocation.Builder invoBuild = target.request();
-        Response response = invoBuild.accept(MediaType.APPLICATION_JSON_TYPE).post(Entity.json(payload));
-        String responseString = response.readEntity(String.class);
+        String responseString = OutboundClient.getInstance().invoke(URL + "api/generator", request -> {
+            Response response = request.accept(MediaType.APPLICATION_JSON_TYPE).post(Entity.json(payload));
+            return response.readEntity(String.class);
+        });
         responseString.replaceAll(" ", "");
         InputStream is = new ByteArrayInputStream(responseString.getBytes());
         JsonObject object = Json.createReader(is).readObject();
@@ -118,65 +324,43 @@ public class BxCodegenClient {
         return id;
     }
     
-    private void waitForFinishedStatus(String id) throws ProjectGenerationException {
-        int retries = 0;
-        while (("RUNNING").equals(checkStatus(id)) && retries <= retriesAllowed) {
-            System.out.println("Retry number " + retries);
-            try {
-                Thread.sleep(3000);
-            } catch (InterruptedException e) {
-                log.severe(e.getClass().getName() + " caught " + e.getMessage());
-                throw new ProjectGenerationException("Code generation failed for job with id: " + id + ". Try again later.");
-            }
-            retries++;
-        }
-        String status = checkStatus(id);
-        if(!("FINISHED").equals(status)) {
-            if ("FAILED".equals(status)) {
-                throw new ProjectGenerationException("Code generation failed for job with id: " + id + ". Try again later.");
-            }
-            if ("RUNNING".equals(status)) {
-                throw new ProjectGenerationException("Code generation for job with id " + id + " timed out. Try again later");
-            }
-            throw new ProjectGenerationException("Did not receive FINISHED from Bx codegen for job with id: " + id + ". Status received:" + status);
-        }
-    }
-    
     protected String checkStatus(String id) {
-        Client client = ClientBuilder.newClient();
-        WebTarget target = client.target(URL + "api/generator/" + id + "/status");
-        Invocation.Builder invoBuild = target.request();
-        Response response = invoBuild.accept(MediaType.APPLICATION_JSON_TYPE).get();
-        JsonObject responseObject = response.readEntity(JsonObject.class);
+        JsonObject responseObject = OutboundClient.getInstance().invoke(URL + "api/generator/" + id + "/status", request -> {
+            Response response = request.accept(MediaType.APPLICATION_JSON_TYPE).get();
+            return response.readEntity(JsonObject.class);
+        });
         String responseStatus = responseObject.getString("status");
         System.out.println("Received response status : " + responseStatus);
         return responseStatus;
     }
     
-    protected Map<String, byte[]> getProjectMap(String id) {
-        Client client = ClientBuilder.newClient();
-        WebTarget target = client.target(URL + "api/generator/" + id);
-        Invocation.Builder invoBuild = target.request();
-        Response response = invoBuild.accept("application/zip").get();
-        InputStream is= response.readEntity(InputStream.class);
-        ZipInputStream zis = new ZipInputStream(is);
-        Map<String, byte[]> map = new HashMap<String, byte[]>();
-        ZipEntry ze;
+    protected byte[] getProjectZip(String id) {
+        // Read the zip while holding the connection so that it is fully consumed before it is reused
+        return OutboundClient.getInstance().invoke(URL + "api/generator/" + id, request -> {
+            try (InputStream is = request.accept("application/zip").get(InputStream.class)) {
+                return IOUtils.toByteArray(is);
+            } catch (IOException e) {
+                log.severe("Caught IOException while reading project zip : " + e.getMessage());
+                throw new ProjectGenerationException("Code generation failed for job with id: " + id + ". Try again later.");
+            }
+        });
+    }
+
+    private static Map<String, ProjectFile> readProjectMap(byte[] zip) {
         try {
+            return ProjectFile.fromZip(zip);
+        } catch (ZipException e) {
+            log.fine("Unable to read the files of the project zip in place, reading them into memory : " + e.getMessage());
+        }
+        Map<String, ProjectFile> map = new HashMap<String, ProjectFile>();
+        ZipEntry ze;
+        try (ZipInputStream zis = new ZipInputStream(new ByteArrayInputStream(zip))) {
             while ((ze = zis.getNextEntry()) != null) {
-                String path = ze.getName();
-                int length = 0;
-                byte[] bytes = new byte[1024];
-                ByteArrayOutputStream baos = new ByteArrayOutputStream();
-                while ((length = zis.read(bytes)) != -1 ) {
-                    baos.write(bytes, 0, length);
-                }
-                map.put(path, baos.toByteArray());
+                map.put(ze.getName(), ProjectFile.shared(IOUtils.toByteArray(zis)));
             }
-            zis.close();
         } catch (IOException e) {
             log.severe("Caught IOException while reading project zip to Map<String, byte[]> : " + e.getMessage());
-            throw new ProjectGenerationException("Code generation failed for job with id: " + id + ". Try again later.");
+            throw new ProjectGenerationException("Code generation failed as the generated project could not be read. Try again later.");
         }
         return map;
     }
@@ -0,0 +1,185 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.ibm.liberty.starter.client;
+
+import java.util.function.LongSupplier;
+import java.util.logging.Logger;
+
+/**
+ * Tracks the outcome of the most recent calls to one provider. The breaker opens when enough of the calls in
+ * its window have failed or been slow, after which calls are refused straight away rather than waiting on a
+ * provider that is unlikely to answer. Once the open period has passed a single probe call is let through;
+ * the breaker closes again if it succeeds and re-opens if it doesn't. Only the probe decides, calls that were
+ * let through before the breaker opened and finish while it is half open don't count.
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private static final Logger log = Logger.getLogger(CircuitBreaker.class.getName());
+    private static final byte FAILED = 1;
+    private static final byte SLOW = 2;
+
+    private final String name;
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final long slowCallMillis;
+    private final long openMillis;
+    private final LongSupplier clock;
+
+    // A ring of the outcomes of the last calls, each one a combination of the FAILED and SLOW flags
+    private final byte[] outcomes;
+    private int next;
+    private int recorded;
+    private int failures;
+    private int slowCalls;
+
+    private State state = State.CLOSED;
+    private long openedAt;
+    private boolean probing;
+    // The permit of the current probe call, every probe gets a new one
+    private long probePermit;
+
+    /**
+     * @param windowSize The number of recent calls the rates are calculated over
+     * @param minimumCalls The number of calls needed in the window before the breaker can open
+     * @param failureRateThreshold The fraction of failed, or of slow, calls at which the breaker opens
+     * @param slowCallMillis How long a call can take before it counts as slow
+     * @param openMillis How long the breaker stays open before letting a probe call through
+     * @param clock The current time in milliseconds
+     */
+    public CircuitBreaker(String name, int windowSize, int minimumCalls, double failureRateThreshold, long slowCallMillis, long openMillis, LongSupplier clock) {
+        this.name = name;
+        this.outcomes = new byte[windowSize];
+        this.minimumCalls = Math.min(minimumCalls, windowSize);
+        this.failureRateThreshold = failureRateThreshold;
+        this.slowCallMillis = slowCallMillis;
+        this.openMillis = openMillis;
+        this.clock = clock;
+    }
+
+    /**
+     * Returns the permit for a call if one can be made now, or null if the call is refused. The outcome of every
+     * call allowed must be reported through {@link Permit#onSuccess(long)} or {@link Permit#onFailure(long)}.
+     */
+    public synchronized Permit tryAcquire() {
+        switch (state) {
+            case CLOSED:
+                return new Permit(0);
+            case OPEN:
+                if (clock.getAsLong() - openedAt < openMillis) {
+                    return null;
+                }
+                log.info("Probing " + name + " after " + openMillis + "ms");
+                state = State.HALF_OPEN;
+                return probe();
+            default:
+                return probing ? null : probe();
+        }
+    }
+
+    private Permit probe() {
+        probing = true;
+        return new Permit(++probePermit);
+    }
+
+    private synchronized void record(Permit permit, byte outcome) {
+        if (state == State.HALF_OPEN) {
+            if (permit.id != probePermit) {
+                // A call from before the breaker opened, only the probe decides whether it closes
+                return;
+            }
+            probing = false;
+            if (outcome == 0) {
+                log.info("Closing circuit for " + name);
+                state = State.CLOSED;
+                clear();
+            } else {
+                open();
+            }
+            return;
+        }
+        if (recorded == outcomes.length) {
+            remove(outcomes[next]);
+        } else {
+            recorded++;
+        }
+        outcomes[next] = outcome;
+        next = (next + 1) % outcomes.length;
+        failures += (outcome & FAILED);
+        slowCalls += (outcome & SLOW) >> 1;
+        if (state == State.CLOSED && recorded >= minimumCalls
+            && (getFailureRate() >= failureRateThreshold || getSlowCallRate() >= failureRateThreshold)) {
+            open();
+        }
+    }
+
+    private void remove(byte outcome) {
+        failures -= (outcome & FAILED);
+        slowCalls -= (outcome & SLOW) >> 1;
+    }
+
+    private void open() {
+        log.warning("Opening circuit for " + name + " : failureRate=" + getFailureRate() + " : slowCallRate=" + getSlowCallRate());
+        state = State.OPEN;
+        openedAt = clock.getAsLong();
+    }
+
+    private void clear() {
+        next = 0;
+        recorded = 0;
+        failures = 0;
+        slowCalls = 0;
+    }
+
+    public synchronized State getState() {
+        // Report an open breaker whose period has passed as half open, it will let the next call through
+        if (state == State.OPEN && clock.getAsLong() - openedAt >= openMillis) {
+            return State.HALF_OPEN;
+        }
+        return state;
+    }
+
+    public synchronized double getFailureRate() {
+        return recorded == 0 ? 0 : (double) failures / recorded;
+    }
+
+    public synchronized double getSlowCallRate() {
+        return recorded == 0 ? 0 : (double) slowCalls / recorded;
+    }
+
+    /**
+     * Allows one call through the breaker.
+     */
+    public final class Permit {
+        // Zero for a call made while the breaker was closed, otherwise the number of the probe
+        private final long id;
+
+        private Permit(long id) {
+            this.id = id;
+        }
+
+        public void onSuccess(long durationMillis) {
+            record(this, durationMillis >= slowCallMillis ? SLOW : 0);
+        }
+
+        public void onFailure(long durationMillis) {
+            record(this, (byte) (FAILED | (durationMillis >= slowCallMillis ? SLOW : 0)));
+        }
+    }
+}
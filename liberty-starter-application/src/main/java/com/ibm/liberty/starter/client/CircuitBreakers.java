@@ -0,0 +1,69 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.ibm.liberty.starter.client;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.ibm.liberty.starter.StarterUtil;
+
+/**
+ * The circuit breakers for every provider, shared across requests and keyed by service ID.
+ *
+ * The breakers can be tuned with the environment variables <code>com_ibm_liberty_starter_breakerWindowSize</code>,
+ * <code>com_ibm_liberty_starter_breakerMinimumCalls</code>, <code>com_ibm_liberty_starter_breakerFailurePercent</code>,
+ * <code>com_ibm_liberty_starter_breakerSlowCallMillis</code> and <code>com_ibm_liberty_starter_breakerOpenMillis</code>.
+ */
+public class CircuitBreakers {
+
+    private static final CircuitBreakers instance = new CircuitBreakers((int) StarterUtil.getEnvLong("com_ibm_liberty_starter_breakerWindowSize", 20),
+                                                                        (int) StarterUtil.getEnvLong("com_ibm_liberty_starter_breakerMinimumCalls", 5),
+                                                                        StarterUtil.getEnvLong("com_ibm_liberty_starter_breakerFailurePercent", 50) / 100.0,
+                                                                        StarterUtil.getEnvLong("com_ibm_liberty_starter_breakerSlowCallMillis", 20000),
+                                                                        StarterUtil.getEnvLong("com_ibm_liberty_starter_breakerOpenMillis", 30000));
+
+    private final int windowSize;
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final long slowCallMillis;
+    private final long openMillis;
+    private final ConcurrentMap<String, CircuitBreaker> breakers = new ConcurrentHashMap<>();
+
+    private CircuitBreakers(int windowSize, int minimumCalls, double failureRateThreshold, long slowCallMillis, long openMillis) {
+        this.windowSize = windowSize;
+        this.minimumCalls = minimumCalls;
+        this.failureRateThreshold = failureRateThreshold;
+        this.slowCallMillis = slowCallMillis;
+        this.openMillis = openMillis;
+    }
+
+    public static CircuitBreakers getInstance() {
+        return instance;
+    }
+
+    public CircuitBreaker get(String serviceId) {
+        return breakers.computeIfAbsent(serviceId, id -> new CircuitBreaker(id, windowSize, minimumCalls, failureRateThreshold, slowCallMillis, openMillis, System::currentTimeMillis));
+    }
+
+    /**
+     * Returns the breakers of the providers that have been called so far.
+     */
+    public Map<String, CircuitBreaker> getBreakers() {
+        return Collections.unmodifiableMap(breakers);
+    }
+}
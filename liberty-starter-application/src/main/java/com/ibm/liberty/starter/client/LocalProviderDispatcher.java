@@ -0,0 +1,130 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.ibm.liberty.starter.client;
+
+import java.lang.management.ManagementFactory;
+import java.util.Optional;
+import java.util.logging.Logger;
+
+import javax.management.InstanceNotFoundException;
+import javax.management.MBeanException;
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+import javax.management.RuntimeMBeanException;
+import javax.ws.rs.NotFoundException;
+import javax.ws.rs.ProcessingException;
+
+import com.ibm.liberty.starter.api.v1.model.registration.Service;
+
+/**
+ * Calls providers that are running in the same server directly rather than over HTTP. A provider makes itself
+ * available by registering in the platform MBean server under its context root, see LocalProviderRegistration
+ * in liberty-starter-spi. Every call returns an empty Optional when the provider isn't registered so the
+ * caller can fall back to HTTP.
+ *
+ * Local calls can be turned off by setting the environment variable
+ * <code>com_ibm_liberty_starter_localProviders</code> to false.
+ */
+public class LocalProviderDispatcher {
+
+    private static final Logger log = Logger.getLogger(LocalProviderDispatcher.class.getName());
+    private static final String ENABLED_ENV = "com_ibm_liberty_starter_localProviders";
+    // Must match LocalProviderRegistration.OBJECT_NAME_PREFIX in liberty-starter-spi
+    private static final String OBJECT_NAME_PREFIX = "com.ibm.liberty.starter:type=LocalProvider,contextRoot=";
+    private static final String[] STRING_SIGNATURE = { String.class.getName() };
+    private static final String[] PREPARE_SIGNATURE = { String.class.getName(), String.class.getName(), String.class.getName() };
+
+    private static final LocalProviderDispatcher instance = new LocalProviderDispatcher(ManagementFactory.getPlatformMBeanServer(),
+                                                                                       !"false".equalsIgnoreCase(System.getenv(ENABLED_ENV)));
+
+    private final MBeanServer server;
+    private final boolean enabled;
+
+    public LocalProviderDispatcher(MBeanServer server, boolean enabled) {
+        this.server = server;
+        this.enabled = enabled;
+    }
+
+    public static LocalProviderDispatcher getInstance() {
+        return instance;
+    }
+
+    public Optional<String> prepareDynamicPackages(Service service, String techWorkspaceDir, String options, String techs) {
+        return invoke(service, "prepareDynamicPackages", new Object[] { techWorkspaceDir, options, techs }, PREPARE_SIGNATURE, String.class);
+    }
+
+    public Optional<String> processUploads(Service service, String uploadDirectoryPath) {
+        return invoke(service, "processUploads", new Object[] { uploadDirectoryPath }, STRING_SIGNATURE, String.class);
+    }
+
+    /**
+     * Returns the artifact from the provider, throwing a javax.ws.rs.NotFoundException if the provider doesn't
+     * have it, as a call over HTTP would.
+     */
+    public Optional<byte[]> getArtifact(Service service, String path) {
+        if (!isRegistered(service)) {
+            return Optional.empty();
+        }
+        byte[] artifact = invoke(service, "getArtifact", new Object[] { path }, STRING_SIGNATURE, byte[].class)
+                .orElseThrow(() -> new NotFoundException("Artifact " + path + " not found in " + service.getId()));
+        return Optional.of(artifact);
+    }
+
+    /**
+     * Returns true if the provider for the service is running in this server.
+     */
+    public boolean isRegistered(Service service) {
+        ObjectName name = getObjectName(service);
+        return name != null && server.isRegistered(name);
+    }
+
+    private <T> Optional<T> invoke(Service service, String operation, Object[] params, String[] signature, Class<T> type) {
+        ObjectName name = getObjectName(service);
+        if (name == null || !server.isRegistered(name)) {
+            return Optional.empty();
+        }
+        try {
+            log.finer("Invoking " + operation + " on local provider " + name);
+            return Optional.ofNullable(type.cast(server.invoke(name, operation, params, signature)));
+        } catch (InstanceNotFoundException e) {
+            // The provider has been stopped since it was looked up
+            return Optional.empty();
+        } catch (MBeanException e) {
+            throw new ProcessingException("Call to " + operation + " on " + service.getId() + " failed", e.getTargetException());
+        } catch (RuntimeMBeanException e) {
+            if (e.getTargetException() instanceof UnsupportedOperationException) {
+                throw (UnsupportedOperationException) e.getTargetException();
+            }
+            throw new ProcessingException("Call to " + operation + " on " + service.getId() + " failed", e.getTargetException());
+        } catch (ReflectionException e) {
+            throw new ProcessingException("Call to " + operation + " on " + service.getId() + " failed", e);
+        }
+    }
+
+    private ObjectName getObjectName(Service service) {
+        if (!enabled || service.getEndpoint() == null) {
+            return null;
+        }
+        try {
+            return new ObjectName(OBJECT_NAME_PREFIX + service.getEndpoint());
+        } catch (MalformedObjectNameException e) {
+            log.fine("No local provider name for endpoint " + service.getEndpoint() + " : " + e);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,123 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.ibm.liberty.starter.client;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.logging.Logger;
+
+import javax.ws.rs.ProcessingException;
+import javax.ws.rs.client.Client;
+import javax.ws.rs.client.ClientBuilder;
+import javax.ws.rs.client.Invocation;
+
+import com.ibm.liberty.starter.StarterUtil;
+
+/**
+ * The single JAX-RS client used for every outbound HTTP call made by the application. Sharing one client means
+ * connections are kept alive and reused between calls rather than being set up for every request. Calls made
+ * through {@link #invoke(String, Function)} are limited to a maximum number of concurrent connections per
+ * destination host.
+ *
+ * The timeouts and connection limit can be set with the environment variables
+ * <code>com_ibm_liberty_starter_httpConnectTimeout</code>, <code>com_ibm_liberty_starter_httpReadTimeout</code>
+ * (both in milliseconds) and <code>com_ibm_liberty_starter_httpMaxConnectionsPerHost</code>.
+ */
+public class OutboundClient {
+
+    private static final Logger log = Logger.getLogger(OutboundClient.class.getName());
+
+    private static final String CONNECT_TIMEOUT_ENV = "com_ibm_liberty_starter_httpConnectTimeout";
+    private static final String READ_TIMEOUT_ENV = "com_ibm_liberty_starter_httpReadTimeout";
+    private static final String MAX_CONNECTIONS_ENV = "com_ibm_liberty_starter_httpMaxConnectionsPerHost";
+    // Liberty's JAX-RS client reads its timeouts from these properties
+    private static final String CONNECT_TIMEOUT_PROPERTY = "com.ibm.ws.jaxrs.client.connection.timeout";
+    private static final String READ_TIMEOUT_PROPERTY = "com.ibm.ws.jaxrs.client.receive.timeout";
+
+    private static volatile OutboundClient instance;
+
+    private final Client client;
+    private final long connectTimeout;
+    private final int maxConnectionsPerHost;
+    private final ConcurrentMap<String, Semaphore> hostPermits = new ConcurrentHashMap<>();
+
+    OutboundClient(long connectTimeout, long readTimeout, int maxConnectionsPerHost) {
+        this.connectTimeout = connectTimeout;
+        this.maxConnectionsPerHost = maxConnectionsPerHost;
+        this.client = ClientBuilder.newBuilder()
+                .property(CONNECT_TIMEOUT_PROPERTY, connectTimeout)
+                .property(READ_TIMEOUT_PROPERTY, readTimeout)
+                .build();
+        log.fine("Created outbound client: connectTimeout=" + connectTimeout + " : readTimeout=" + readTimeout + " : maxConnectionsPerHost=" + maxConnectionsPerHost);
+    }
+
+    public static OutboundClient getInstance() {
+        OutboundClient result = instance;
+        if (result == null) {
+            synchronized (OutboundClient.class) {
+                if (instance == null) {
+                    instance = new OutboundClient(StarterUtil.getEnvLong(CONNECT_TIMEOUT_ENV, 10000),
+                                                  StarterUtil.getEnvLong(READ_TIMEOUT_ENV, 60000),
+                                                  (int) StarterUtil.getEnvLong(MAX_CONNECTIONS_ENV, 20));
+                }
+                result = instance;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Closes the shared client. Called when the application is stopped.
+     */
+    public static synchronized void shutdown() {
+        if (instance != null) {
+            instance.client.close();
+            instance = null;
+        }
+    }
+
+    /**
+     * Makes a call to the given url while holding one of the connections allowed for its host. The call should
+     * read the entity of the response so the connection can be reused; an InputStream entity is read after the
+     * connection has been handed back.
+     */
+    public <T> T invoke(String url, Function<Invocation.Builder, T> call) {
+        Semaphore permits = hostPermits.computeIfAbsent(getDestination(url), host -> new Semaphore(maxConnectionsPerHost));
+        try {
+            if (!permits.tryAcquire(connectTimeout, TimeUnit.MILLISECONDS)) {
+                throw new ProcessingException("Timed out waiting for a connection to " + url);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ProcessingException("Interrupted waiting for a connection to " + url, e);
+        }
+        try {
+            return call.apply(client.target(url).request());
+        } finally {
+            permits.release();
+        }
+    }
+
+    // The scheme and authority of the url, e.g. http://localhost:9082
+    private static String getDestination(String url) {
+        int authorityStart = url.indexOf("://");
+        int pathStart = url.indexOf('/', authorityStart < 0 ? 0 : authorityStart + 3);
+        return pathStart < 0 ? url : url.substring(0, pathStart);
+    }
+}
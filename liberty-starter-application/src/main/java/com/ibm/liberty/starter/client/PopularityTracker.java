@@ -0,0 +1,180 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.ibm.liberty.starter.client;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+import com.ibm.liberty.starter.ProjectConstructionInputData;
+import com.ibm.liberty.starter.StarterUtil;
+
+/**
+ * Counts how often each combination of technologies, build and deploy type is asked for, so that the most popular
+ * ones can be generated ahead of time. Recording a request takes no locks.
+ *
+ * Requests for the same combination with different project names and ids are counted together. As the generated
+ * project includes the names, the one generated ahead of time uses those of the latest request for the
+ * combination, so it is only served to requests with the same names, which are usually the defaults.
+ *
+ * Counts are kept exactly, with a LongAdder, for a bounded number of tracked combinations. Every request is also
+ * counted in a count-min sketch, so a combination that becomes popular after the tracked set is full is admitted
+ * with its estimated count once {@link #age()} makes room. Ageing halves every count so that the ranking follows
+ * recent demand.
+ *
+ * The number of tracked combinations can be set with the environment variable
+ * <code>com_ibm_liberty_starter_popularityTracked</code>.
+ */
+public class PopularityTracker {
+
+    private static final PopularityTracker instance = new PopularityTracker((int) StarterUtil.getEnvLong("com_ibm_liberty_starter_popularityTracked", 256));
+
+    private final int maxTracked;
+    private final FrequencySketch sketch = new FrequencySketch(4, 4096);
+    private final ConcurrentMap<String, Combination> tracked = new ConcurrentHashMap<>();
+
+    public PopularityTracker(int maxTracked) {
+        this.maxTracked = maxTracked;
+    }
+
+    public static PopularityTracker getInstance() {
+        return instance;
+    }
+
+    /**
+     * Counts a request for the project described by the input.
+     */
+    public void record(ProjectConstructionInputData inputData) {
+        String key = combinationKey(inputData);
+        sketch.increment(key);
+        Combination combination = tracked.get(key);
+        ProjectConstructionInputData template = toTemplate(inputData);
+        if (combination == null && tracked.size() < maxTracked) {
+            combination = tracked.computeIfAbsent(key, k -> new Combination(template, sketch.estimate(k) - 1));
+        }
+        if (combination != null) {
+            combination.template = template;
+            combination.count.increment();
+        }
+    }
+
+    /**
+     * Returns the input for the most requested projects, most popular first, leaving out any asked for fewer than
+     * <code>minCount</code> times.
+     */
+    public List<ProjectConstructionInputData> getTop(int k, long minCount) {
+        return tracked.values().stream()
+                      .filter(combination -> combination.count.sum() >= minCount)
+                      .sorted(Comparator.comparingLong((Combination combination) -> combination.count.sum()).reversed())
+                      .limit(k)
+                      .map(combination -> combination.template)
+                      .collect(Collectors.toList());
+    }
+
+    /**
+     * Halves every count and stops tracking the least popular half of the combinations, making room for new ones.
+     */
+    public void age() {
+        sketch.halve();
+        List<String> byCount = new ArrayList<>(tracked.keySet());
+        byCount.sort(Comparator.comparingLong((String key) -> {
+            Combination combination = tracked.get(key);
+            return combination == null ? 0 : combination.count.sum();
+        }).reversed());
+        for (String key : byCount.subList(Math.min(byCount.size(), maxTracked / 2), byCount.size())) {
+            tracked.remove(key);
+        }
+        for (Combination combination : tracked.values()) {
+            long count = combination.count.sumThenReset();
+            combination.count.add(count / 2);
+        }
+    }
+
+    // The technologies, in any order, build and deploy type and whether beta features are used, but not the names
+    private static String combinationKey(ProjectConstructionInputData inputData) {
+        Set<String> technologies = new TreeSet<>();
+        inputData.services.getServices().forEach(service -> technologies.add(service.getId()));
+        return String.join(",", technologies) + "|" + inputData.buildType + "|" + inputData.deployType + "|" + inputData.beta;
+    }
+
+    // Only the fields that are sent to codegen, the rest belong to the request
+    private static ProjectConstructionInputData toTemplate(ProjectConstructionInputData inputData) {
+        return new ProjectConstructionInputData(inputData.services, null, inputData.appName, inputData.deployType, inputData.buildType, null, new String[0],
+                                                inputData.artifactId, inputData.groupId, null, inputData.beta);
+    }
+
+    private static class Combination {
+        // The latest request for the combination
+        private volatile ProjectConstructionInputData template;
+        private final LongAdder count = new LongAdder();
+
+        private Combination(ProjectConstructionInputData template, long previousCount) {
+            this.template = template;
+            count.add(Math.max(previousCount, 0));
+        }
+    }
+
+    /**
+     * A count-min sketch: each key is counted in one slot of every row and its count is estimated as the smallest
+     * of them, which can overestimate but never underestimates.
+     */
+    private static class FrequencySketch {
+        private static final int[] SEEDS = { 0x9E3779B9, 0x85EBCA6B, 0xC2B2AE35, 0x27D4EB2F };
+
+        private final int depth;
+        private final int widthMask;
+        private final AtomicLongArray counts;
+
+        private FrequencySketch(int depth, int width) {
+            this.depth = depth;
+            this.widthMask = width - 1;
+            this.counts = new AtomicLongArray(depth * width);
+        }
+
+        private void increment(String key) {
+            for (int row = 0; row < depth; row++) {
+                counts.incrementAndGet(index(key, row));
+            }
+        }
+
+        private long estimate(String key) {
+            long estimate = Long.MAX_VALUE;
+            for (int row = 0; row < depth; row++) {
+                estimate = Math.min(estimate, counts.get(index(key, row)));
+            }
+            return estimate;
+        }
+
+        private void halve() {
+            for (int i = 0; i < counts.length(); i++) {
+                counts.set(i, counts.get(i) / 2);
+            }
+        }
+
+        private int index(String key, int row) {
+            int hash = key.hashCode() * SEEDS[row];
+            hash ^= hash >>> 16;
+            return row * (widthMask + 1) + (hash & widthMask);
+        }
+    }
+}
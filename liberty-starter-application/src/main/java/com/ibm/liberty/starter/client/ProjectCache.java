@@ -0,0 +1,353 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.ibm.liberty.starter.client;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.json.Json;
+import javax.json.JsonException;
+import javax.json.JsonObject;
+import javax.json.JsonValue;
+
+import com.ibm.liberty.starter.ProjectConstructionInputData;
+import com.ibm.liberty.starter.StarterUtil;
+
+/**
+ * A bounded cache of the project zips returned by Bx codegen, shared across requests. Projects are keyed by a canonical
+ * form of the options sent to codegen, so the same technologies, build and deploy type give the same key whatever
+ * order they were asked for in. Only the codegen output is cached: the dynamic packages prepared in a request's
+ * workspace are added to a copy of it afterwards and never enter the cache.
+ *
+ * Zips are held in memory, still compressed, up to a total number of bytes, the least recently used being evicted
+ * first. If a spill directory is set, evicted zips are written there, again up to a total size, and are read back
+ * on a hit. Projects in the spill directory are picked up again after a restart.
+ *
+ * The limits can be set with the environment variables <code>com_ibm_liberty_starter_projectCacheBytes</code>,
+ * <code>com_ibm_liberty_starter_projectCacheDir</code> and <code>com_ibm_liberty_starter_projectCacheDiskBytes</code>.
+ * Setting <code>com_ibm_liberty_starter_projectCacheBytes</code> to 0 without a directory turns the cache off.
+ */
+public class ProjectCache {
+
+    private static final Logger log = Logger.getLogger(ProjectCache.class.getName());
+    private static final String MAX_BYTES_ENV = "com_ibm_liberty_starter_projectCacheBytes";
+    private static final String DIR_ENV = "com_ibm_liberty_starter_projectCacheDir";
+    private static final String MAX_DISK_BYTES_ENV = "com_ibm_liberty_starter_projectCacheDiskBytes";
+    private static final String SPILL_SUFFIX = ".zip";
+
+    private static final ProjectCache instance = new ProjectCache(StarterUtil.getEnvLong(MAX_BYTES_ENV, 64 * 1024 * 1024),
+                                                                  System.getenv(DIR_ENV) == null ? null : new File(System.getenv(DIR_ENV)),
+                                                                  StarterUtil.getEnvLong(MAX_DISK_BYTES_ENV, 512 * 1024 * 1024));
+
+    private final long maxBytes;
+    private final File spillDir;
+    private final long maxDiskBytes;
+    // Both maps are in access order so the first entry is the least recently used
+    private final LinkedHashMap<String, CachedProject> memory = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<String, Long> disk = new LinkedHashMap<>(16, 0.75f, true);
+    private long memoryBytes;
+    private long diskBytes;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong diskHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * @param maxBytes The most bytes of projects to hold in memory
+     * @param spillDir The directory to write evicted projects to, or null to discard them
+     * @param maxDiskBytes The most bytes of projects to keep in the spill directory
+     */
+    public ProjectCache(long maxBytes, File spillDir, long maxDiskBytes) {
+        this.maxBytes = maxBytes;
+        this.maxDiskBytes = maxDiskBytes;
+        this.spillDir = spillDir != null && (spillDir.isDirectory() || spillDir.mkdirs()) ? spillDir : null;
+        if (spillDir != null && this.spillDir == null) {
+            log.warning("Unable to create project cache directory " + spillDir + ", evicted projects won't be kept");
+        }
+        loadSpilled();
+    }
+
+    public static ProjectCache getInstance() {
+        return instance;
+    }
+
+    /**
+     * Returns the key for the project codegen would generate for the input. The technologies are sorted and the
+     * options ordered by name, and the starter kit is included as it decides the templates used.
+     */
+    public static String createKey(ProjectConstructionInputData inputData, String starterKit) {
+        String options = inputData.toBxJSON();
+        Map<String, String> canonical = new TreeMap<>();
+        try {
+            JsonObject json = Json.createReader(new StringReader(options)).readObject();
+            for (Map.Entry<String, JsonValue> entry : json.entrySet()) {
+                JsonValue value = entry.getValue();
+                canonical.put(entry.getKey(), value.getValueType() == JsonValue.ValueType.STRING ? json.getString(entry.getKey()) : value.toString());
+            }
+        } catch (JsonException e) {
+            // Fall back to the options as they are, the key is still unique but may miss equivalent requests
+            return options + "|" + starterKit;
+        }
+        String technologies = canonical.get("technologies");
+        if (technologies != null) {
+            canonical.put("technologies", String.join(",", new TreeSet<>(Arrays.asList(technologies.split(",")))));
+        }
+        canonical.put("starterKit", String.valueOf(starterKit));
+        return canonical.toString();
+    }
+
+    /**
+     * Returns the zip of the project cached under the key, or null if it isn't cached. The array is shared and
+     * must not be modified.
+     */
+    public byte[] get(String key) {
+        CachedProject project;
+        Long spilledBytes;
+        synchronized (this) {
+            project = memory.get(key);
+            spilledBytes = project == null ? disk.get(fileName(key)) : null;
+        }
+        if (project != null) {
+            hits.incrementAndGet();
+            return project.zip;
+        }
+        if (spilledBytes != null) {
+            byte[] zip = readSpilled(key);
+            if (zip != null) {
+                diskHits.incrementAndGet();
+                put(key, zip);
+                return zip;
+            }
+        }
+        misses.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Returns true if a project is cached under the key, in memory or on disk. Unlike {@link #get(String)} it isn't
+     * counted in the statistics and doesn't make the project more recently used.
+     */
+    public synchronized boolean contains(String key) {
+        return memory.containsKey(key) || disk.containsKey(fileName(key));
+    }
+
+    /**
+     * Caches the zip of a project, evicting the least recently used projects to make room.
+     */
+    public void put(String key, byte[] zip) {
+        CachedProject project = new CachedProject(key, zip);
+        List<CachedProject> evicted = new ArrayList<>();
+        synchronized (this) {
+            CachedProject previous = memory.remove(key);
+            if (previous != null) {
+                memoryBytes -= previous.bytes;
+            }
+            if (project.bytes <= maxBytes) {
+                memory.put(key, project);
+                memoryBytes += project.bytes;
+            } else {
+                evicted.add(project);
+            }
+            Iterator<CachedProject> leastRecent = memory.values().iterator();
+            while (memoryBytes > maxBytes && leastRecent.hasNext()) {
+                CachedProject oldest = leastRecent.next();
+                leastRecent.remove();
+                memoryBytes -= oldest.bytes;
+                evicted.add(oldest);
+            }
+        }
+        for (CachedProject oldest : evicted) {
+            evictions.incrementAndGet();
+            spill(oldest);
+        }
+    }
+
+    public Stats getStats() {
+        synchronized (this) {
+            return new Stats(hits.get(), diskHits.get(), misses.get(), evictions.get(), memory.size(), memoryBytes, disk.size(), diskBytes);
+        }
+    }
+
+    private void spill(CachedProject project) {
+        if (spillDir == null || project.bytes > maxDiskBytes) {
+            return;
+        }
+        String name = fileName(project.key);
+        synchronized (this) {
+            if (disk.containsKey(name)) {
+                return;
+            }
+        }
+        File target = new File(spillDir, name);
+        try {
+            File temp = File.createTempFile("project", ".tmp", spillDir);
+            Files.write(temp.toPath(), project.zip);
+            Files.move(temp.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            addSpilled(name, target.length());
+        } catch (IOException e) {
+            log.log(Level.WARNING, "Unable to write project to cache directory " + spillDir, e);
+        }
+    }
+
+    private void addSpilled(String name, long length) {
+        List<String> removed = new ArrayList<>();
+        synchronized (this) {
+            Long previous = disk.put(name, length);
+            diskBytes += length - (previous == null ? 0 : previous);
+            Iterator<Map.Entry<String, Long>> leastRecent = disk.entrySet().iterator();
+            while (diskBytes > maxDiskBytes && leastRecent.hasNext()) {
+                Map.Entry<String, Long> oldest = leastRecent.next();
+                leastRecent.remove();
+                diskBytes -= oldest.getValue();
+                removed.add(oldest.getKey());
+            }
+        }
+        for (String oldest : removed) {
+            if (!new File(spillDir, oldest).delete()) {
+                log.fine("Unable to delete cached project " + oldest);
+            }
+        }
+    }
+
+    private byte[] readSpilled(String key) {
+        try {
+            return Files.readAllBytes(new File(spillDir, fileName(key)).toPath());
+        } catch (IOException e) {
+            // The project may have just been evicted from the directory
+            log.log(Level.FINE, "Unable to read cached project for " + key, e);
+            synchronized (this) {
+                Long length = disk.remove(fileName(key));
+                if (length != null) {
+                    diskBytes -= length;
+                }
+            }
+            return null;
+        }
+    }
+
+    private void loadSpilled() {
+        if (spillDir == null) {
+            return;
+        }
+        File[] spilled = spillDir.listFiles((dir, name) -> name.endsWith(SPILL_SUFFIX));
+        if (spilled != null) {
+            for (File file : spilled) {
+                addSpilled(file.getName(), file.length());
+            }
+        }
+    }
+
+    private static String fileName(String key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+            StringBuilder name = new StringBuilder(digest.length * 2 + SPILL_SUFFIX.length());
+            for (byte b : digest) {
+                name.append(String.format("%02x", b));
+            }
+            return name.append(SPILL_SUFFIX).toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static class CachedProject {
+        private final String key;
+        private final byte[] zip;
+        private final long bytes;
+
+        private CachedProject(String key, byte[] zip) {
+            this.key = key;
+            this.zip = zip;
+            this.bytes = zip.length;
+        }
+    }
+
+    public static class Stats {
+        private final long hits;
+        private final long diskHits;
+        private final long misses;
+        private final long evictions;
+        private final int entries;
+        private final long bytes;
+        private final int diskEntries;
+        private final long diskBytes;
+
+        private Stats(long hits, long diskHits, long misses, long evictions, int entries, long bytes, int diskEntries, long diskBytes) {
+            this.hits = hits;
+            this.diskHits = diskHits;
+            this.misses = misses;
+            this.evictions = evictions;
+            this.entries = entries;
+            this.bytes = bytes;
+            this.diskEntries = diskEntries;
+            this.diskBytes = diskBytes;
+        }
+
+        public long getHits() {
+            return hits;
+        }
+
+        public long getDiskHits() {
+            return diskHits;
+        }
+
+        public long getMisses() {
+            return misses;
+        }
+
+        public long getEvictions() {
+            return evictions;
+        }
+
+        public int getEntries() {
+            return entries;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+
+        public int getDiskEntries() {
+            return diskEntries;
+        }
+
+        public long getDiskBytes() {
+            return diskBytes;
+        }
+
+        public double getHitRate() {
+            long lookups = hits + diskHits + misses;
+            return lookups == 0 ? 0 : (double) (hits + diskHits) / lookups;
+        }
+    }
+}
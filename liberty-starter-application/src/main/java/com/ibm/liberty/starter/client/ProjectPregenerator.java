@@ -0,0 +1,142 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.ibm.liberty.starter.client;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.ibm.liberty.starter.ProjectConstructionInputData;
+import com.ibm.liberty.starter.StarterUtil;
+import com.ibm.liberty.starter.exception.ProjectGenerationException;
+
+/**
+ * Keeps the most popular projects generated ahead of time so that they are in the project cache before anyone asks
+ * for them, including after a restart or after they have been evicted. Every run generates any of the top projects
+ * that aren't cached, one at a time so as not to compete with requests, and generates again any that were last
+ * generated longer ago than the refresh interval so that changes to the starter kit are picked up.
+ *
+ * The behaviour can be set with the environment variables <code>com_ibm_liberty_starter_pregenerateTopK</code>
+ * (0 turns pre-generation off), <code>com_ibm_liberty_starter_pregenerateMinCount</code>,
+ * <code>com_ibm_liberty_starter_pregenerateSeconds</code>, <code>com_ibm_liberty_starter_pregenerateRefreshSeconds</code>
+ * and <code>com_ibm_liberty_starter_popularityAgeSeconds</code>.
+ */
+public class ProjectPregenerator {
+
+    private static final Logger log = Logger.getLogger(ProjectPregenerator.class.getName());
+
+    private static ScheduledExecutorService scheduler;
+
+    private final PopularityTracker tracker;
+    private final Supplier<BxCodegenClient> clients;
+    private final int topK;
+    private final long minCount;
+    private final long refreshMillis;
+    private final LongSupplier clock;
+    private final Map<String, Long> lastGenerated = new HashMap<>();
+
+    public ProjectPregenerator(PopularityTracker tracker, Supplier<BxCodegenClient> clients, int topK, long minCount, long refreshMillis, LongSupplier clock) {
+        this.tracker = tracker;
+        this.clients = clients;
+        this.topK = topK;
+        this.minCount = minCount;
+        this.refreshMillis = refreshMillis;
+        this.clock = clock;
+    }
+
+    /**
+     * Starts pre-generating in the background. Called when the application is started.
+     */
+    public static synchronized void start() {
+        int topK = (int) StarterUtil.getEnvLong("com_ibm_liberty_starter_pregenerateTopK", 5);
+        if (scheduler != null || topK <= 0) {
+            return;
+        }
+        long periodSeconds = StarterUtil.getEnvLong("com_ibm_liberty_starter_pregenerateSeconds", 300);
+        long ageSeconds = StarterUtil.getEnvLong("com_ibm_liberty_starter_popularityAgeSeconds", 3600);
+        ProjectPregenerator pregenerator = new ProjectPregenerator(PopularityTracker.getInstance(), BxCodegenClient::new, topK,
+                                                                   StarterUtil.getEnvLong("com_ibm_liberty_starter_pregenerateMinCount", 3),
+                                                                   StarterUtil.getEnvLong("com_ibm_liberty_starter_pregenerateRefreshSeconds", 3600) * 1000,
+                                                                   System::currentTimeMillis);
+        scheduler = Executors.newSingleThreadScheduledExecutor(StarterUtil.createThreadFactory("ProjectPregenerator"));
+        scheduler.scheduleWithFixedDelay(pregenerator::pregenerate, periodSeconds, periodSeconds, TimeUnit.SECONDS);
+        scheduler.scheduleWithFixedDelay(() -> {
+            // A task that throws is never run again, so a failure is logged rather than stopping the ageing
+            try {
+                PopularityTracker.getInstance().age();
+            } catch (RuntimeException e) {
+                log.log(Level.WARNING, "Unable to age the popularity of projects", e);
+            }
+        }, ageSeconds, ageSeconds, TimeUnit.SECONDS);
+        log.fine("Pre-generating the top " + topK + " projects every " + periodSeconds + " seconds");
+    }
+
+    /**
+     * Stops pre-generating. Called when the application is stopped.
+     */
+    public static synchronized void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    /**
+     * Generates the popular projects that aren't cached or are due to be refreshed. Failures are logged rather
+     * than thrown, as the scheduler never runs a task that has thrown again.
+     */
+    public void pregenerate() {
+        try {
+            pregenerateTop();
+        } catch (RuntimeException e) {
+            log.log(Level.WARNING, "Unable to pre-generate projects", e);
+        }
+    }
+
+    private void pregenerateTop() {
+        BxCodegenClient client = clients.get();
+        if (!client.isConfigured()) {
+            return;
+        }
+        Map<String, Long> stillTop = new HashMap<>();
+        for (ProjectConstructionInputData template : tracker.getTop(topK, minCount)) {
+            String key = ProjectCache.createKey(template, client.STARTERKIT_URL);
+            Long generated = lastGenerated.get(key);
+            if (generated != null && clock.getAsLong() - generated < refreshMillis && client.isCached(template)) {
+                stillTop.put(key, generated);
+                continue;
+            }
+            try {
+                client.regenerateProjectZipAsync(template, Runnable::run).join();
+                stillTop.put(key, clock.getAsLong());
+                log.fine("Pre-generated project " + key);
+            } catch (ProjectGenerationException | CompletionException e) {
+                log.log(Level.FINE, "Unable to pre-generate project " + key, e);
+            } catch (RuntimeException e) {
+                log.log(Level.WARNING, "Unable to pre-generate project " + key, e);
+            }
+        }
+        lastGenerated.clear();
+        lastGenerated.putAll(stillTop);
+    }
+}
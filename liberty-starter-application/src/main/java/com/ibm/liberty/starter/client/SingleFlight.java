@@ -0,0 +1,152 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.ibm.liberty.starter.client;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+
+/**
+ * Coalesces concurrent calls for the same key so that only one of them does the work. The first caller starts the
+ * call and everyone asking for the same key while it is in flight shares its result. Once the call has finished
+ * the next caller starts a new one. A call is cancelled once every caller waiting for it has cancelled.
+ */
+public class SingleFlight<T> {
+
+    private static final Logger log = Logger.getLogger(SingleFlight.class.getName());
+
+    private final String name;
+    private final ConcurrentMap<String, Call> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder cancelled = new LongAdder();
+
+    public SingleFlight(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Returns a future for the result of the call for the key, starting the call only if there isn't one in flight.
+     * Each caller gets a future of its own so that one caller cancelling doesn't affect the others, the call itself
+     * is only cancelled when the last of them does.
+     */
+    public CompletableFuture<T> call(String key, Supplier<CompletableFuture<T>> start) {
+        while (true) {
+            Call call = new Call(key);
+            Call existing = inFlight.putIfAbsent(key, call);
+            if (existing != null) {
+                CompletableFuture<T> joined = existing.join();
+                if (joined != null) {
+                    log.fine("Joining " + name + " call already in flight for " + key);
+                    return joined;
+                }
+                // Every caller has given up on that call, so start another
+                inFlight.remove(key, existing);
+                continue;
+            }
+            CompletableFuture<T> caller = call.join();
+            CompletableFuture<T> started;
+            try {
+                started = start.get();
+            } catch (RuntimeException e) {
+                started = new CompletableFuture<>();
+                started.completeExceptionally(e);
+            }
+            call.start(started);
+            return caller;
+        }
+    }
+
+    /**
+     * Returns the number of calls currently in flight.
+     */
+    public int getInFlight() {
+        return inFlight.size();
+    }
+
+    /**
+     * Returns the number of calls cancelled because every caller had cancelled.
+     */
+    public long getCancelled() {
+        return cancelled.sum();
+    }
+
+    private class Call {
+        private final String key;
+        private final CompletableFuture<T> shared = new CompletableFuture<>();
+        private CompletableFuture<T> started;
+        private int callers;
+        private boolean abandoned;
+
+        private Call(String key) {
+            this.key = key;
+        }
+
+        // Returns null if the call has already been abandoned
+        private synchronized CompletableFuture<T> join() {
+            if (abandoned) {
+                return null;
+            }
+            callers++;
+            CompletableFuture<T> caller = shared.thenApply(result -> result);
+            caller.whenComplete((result, failure) -> {
+                if (caller.isCancelled()) {
+                    leave();
+                }
+            });
+            return caller;
+        }
+
+        private void start(CompletableFuture<T> started) {
+            boolean cancel;
+            synchronized (this) {
+                this.started = started;
+                cancel = abandoned;
+            }
+            if (cancel) {
+                started.cancel(true);
+            }
+            started.whenComplete((result, failure) -> {
+                // Removed before completing so that callers who see the result never join the finished call
+                inFlight.remove(key, this);
+                if (failure == null) {
+                    shared.complete(result);
+                } else {
+                    shared.completeExceptionally(failure);
+                }
+            });
+        }
+
+        private void leave() {
+            CompletableFuture<T> toCancel;
+            synchronized (this) {
+                if (--callers > 0 || shared.isDone()) {
+                    return;
+                }
+                abandoned = true;
+                toCancel = started;
+            }
+            inFlight.remove(key, this);
+            cancelled.increment();
+            log.fine("Cancelling " + name + " call for " + key + " as every caller has cancelled");
+            shared.cancel(true);
+            if (toCancel != null) {
+                toCancel.cancel(true);
+            }
+        }
+    }
+}
@@ -178,6 +178,19 @@ angular.module('appAccelerator')
 
   $scope.buildType = appacc.buildType;
 
+  //flag the technologies whose providers aren't currently responding
+  function markDegraded(technologies) {
+    appacc.getTechnologyHealth().then(function(health) {
+      for(var i = 0; i < technologies.length; i++) {
+        for(var j = 0; j < health.length; j++) {
+          if(health[j].id === technologies[i].id) {
+            technologies[i].degraded = health[j].degraded;
+          }
+        }
+      }
+    });
+  }
+
   this.getTech = function() {
     appacc.getTechnologies().then(function(response) {
       //split the returned technologies into rows of X elements
@@ -198,6 +211,7 @@ angular.module('appAccelerator')
       }
       $scope.hasTechnologies = true;
       $log.debug('AppAccelerator : getTechnologies %o', $scope.technologies);
+      markDegraded(response);
     }, function(error) {
       //error, so mark call as complete but show warning to user
       $scope.serverError = true;
@@ -26,6 +26,7 @@ angular.module('appAccelerator')
 
      var serviceURL = "/start/api/v1";
      var techURL = serviceURL + "/tech";  //where to get the technology types from
+     var techHealthURL = techURL + "/health";  //where to get the health of the technology providers from
      var dataURL = serviceURL + "/data?";              //tech=rest&deploy=local&name=libertyProject&workspace=642f3151-c9b6-4d5c-b185-4c29b8
      var gitHubUrl = serviceURL + "/createGitHubRepository?";              //tech=rest&deploy=local&name=libertyProject&workspace=642f3151-c9b6-4d5c-b185-4c29b8
      var generateURL = serviceURL + "/generate?";
@@ -103,6 +104,25 @@ angular.module('appAccelerator')
           return q.promise;
       };
 
+      //get the health of each technology, any that are degraded can't currently be used in a project
+      var getTechnologyHealth = function() {
+        $log.debug("AppAcc Svc : GET : technology health");
+
+        var q = $q.defer();
+        $http({
+          url: techHealthURL,
+          method: 'GET'
+          }).then(function(response) {
+            $log.debug("AppAcc Svc : " + response.status + ' ' + response.statusText + " %o - OK", response.data);
+            q.resolve(angular.fromJson(response.data));
+          }, function(response) {
+            $log.debug("AppAcc Svc : " + response.status + ' ' + response.statusText + " %o - FAILED", response.data);
+            q.reject([]);
+          });
+
+          return q.promise;
+      };
+
       //get the technology options for a given technology
       var getTechOptions = function(technology) {
         $log.debug("AppAcc Svc : GET : technology options");
@@ -313,6 +333,7 @@ angular.module('appAccelerator')
 
       return {
         getTechnologies: getTechnologies,
+        getTechnologyHealth : getTechnologyHealth,
         createQueryUrlForBase : createQueryUrlForBase,
         callGenerateUrl : callGenerateUrl,
         getDownloadUrl : getDownloadUrl,
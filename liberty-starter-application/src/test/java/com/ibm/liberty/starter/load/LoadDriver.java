@@ -0,0 +1,278 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.ibm.liberty.starter.load;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.json.Json;
+
+import com.ibm.liberty.starter.it.api.v1.utils.UploadEndpointUtils;
+
+/**
+ * Drives a running starter with a mix of the requests users make and reports the throughput and latency of each
+ * kind of call. Best run against a local server whose codegen and GitHub have been replaced by the stand-ins
+ * started by {@link StandInServers}.
+ *
+ * The load is set with system properties:
+ * <ul>
+ * <li><code>load.url</code> - the starter, default http://localhost:9080/start</li>
+ * <li><code>load.threads</code> - concurrent users, default 16</li>
+ * <li><code>load.durationSeconds</code> - how long to measure for, default 60</li>
+ * <li><code>load.warmupSeconds</code> - how long to run before measuring, default 10</li>
+ * <li><code>load.mix</code> - the weight of each flow, default data=6,generate=3,upload=1,github=0</li>
+ * <li><code>load.combinations</code> - the technology combinations to ask for, most popular first, separated by
+ * semicolons, default rest;rest,web;microprofile;rest,swagger;web,persistence;rest,websocket</li>
+ * </ul>
+ */
+public class LoadDriver {
+
+    private final String url;
+    private final int threads;
+    private final long durationMillis;
+    private final long warmupMillis;
+    private final Map<String, Integer> mix;
+    private final List<String> combinations;
+    private final ConcurrentMap<String, Recorder> recorders = new ConcurrentHashMap<>();
+    private volatile boolean measuring;
+
+    public LoadDriver(String url, int threads, long durationMillis, long warmupMillis, Map<String, Integer> mix, List<String> combinations) {
+        this.url = url.replaceAll("/+$", "");
+        this.threads = threads;
+        this.durationMillis = durationMillis;
+        this.warmupMillis = warmupMillis;
+        this.mix = mix;
+        this.combinations = combinations;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, Integer> mix = new LinkedHashMap<>();
+        for (String weight : System.getProperty("load.mix", "data=6,generate=3,upload=1,github=0").split(",")) {
+            String[] pair = weight.split("=");
+            mix.put(pair[0].trim(), Integer.parseInt(pair[1].trim()));
+        }
+        List<String> combinations = Arrays.asList(System.getProperty("load.combinations", "rest;rest,web;microprofile;rest,swagger;web,persistence;rest,websocket").split(";"));
+        LoadDriver driver = new LoadDriver(System.getProperty("load.url", "http://localhost:9080/start"),
+                                           Integer.getInteger("load.threads", 16),
+                                           TimeUnit.SECONDS.toMillis(Long.getLong("load.durationSeconds", 60)),
+                                           TimeUnit.SECONDS.toMillis(Long.getLong("load.warmupSeconds", 10)),
+                                           mix, combinations);
+        driver.run();
+        driver.report(System.out);
+    }
+
+    /**
+     * Runs the load for the warm up period and then the measured period.
+     */
+    public void run() throws InterruptedException {
+        ExecutorService users = Executors.newFixedThreadPool(threads);
+        long start = System.currentTimeMillis();
+        long measureFrom = start + warmupMillis;
+        long end = measureFrom + durationMillis;
+        for (int i = 0; i < threads; i++) {
+            users.execute(() -> {
+                while (System.currentTimeMillis() < end) {
+                    measuring = System.currentTimeMillis() >= measureFrom;
+                    runFlow(pickFlow(), pickCombination());
+                }
+            });
+        }
+        users.shutdown();
+        users.awaitTermination(durationMillis + warmupMillis + TimeUnit.MINUTES.toMillis(5), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Prints the throughput over the measured period and the latency percentiles of each kind of call.
+     */
+    public void report(PrintStream out) {
+        out.printf("%-20s %8s %8s %10s %9s %9s %9s %9s%n", "call", "count", "errors", "per sec", "p50 ms", "p90 ms", "p99 ms", "max ms");
+        for (Map.Entry<String, Recorder> entry : new TreeMap<>(recorders).entrySet()) {
+            Recorder recorder = entry.getValue();
+            long[] latencies = recorder.getLatencies();
+            double perSecond = latencies.length * 1000.0 / durationMillis;
+            out.printf("%-20s %8d %8d %10.1f %9.1f %9.1f %9.1f %9.1f%n", entry.getKey(), latencies.length, recorder.errors.get(), perSecond,
+                       percentile(latencies, 0.5), percentile(latencies, 0.9), percentile(latencies, 0.99), percentile(latencies, 1));
+        }
+    }
+
+    private String pickFlow() {
+        int total = mix.values().stream().mapToInt(Integer::intValue).sum();
+        int pick = ThreadLocalRandom.current().nextInt(total);
+        for (Map.Entry<String, Integer> weight : mix.entrySet()) {
+            pick -= weight.getValue();
+            if (pick < 0) {
+                return weight.getKey();
+            }
+        }
+        throw new IllegalStateException("No flow picked from " + mix);
+    }
+
+    // Earlier combinations are more popular: the nth is picked in proportion to 1/n
+    private String pickCombination() {
+        double total = 0;
+        for (int i = 1; i <= combinations.size(); i++) {
+            total += 1.0 / i;
+        }
+        double pick = ThreadLocalRandom.current().nextDouble(total);
+        for (int i = 1; i <= combinations.size(); i++) {
+            pick -= 1.0 / i;
+            if (pick < 0) {
+                return combinations.get(i - 1);
+            }
+        }
+        return combinations.get(combinations.size() - 1);
+    }
+
+    private void runFlow(String flow, String combination) {
+        StringBuilder query = new StringBuilder("name=LoadTest&deploy=local&build=MAVEN");
+        for (String tech : combination.split(",")) {
+            query.append("&tech=").append(tech.trim());
+        }
+        try {
+            switch (flow) {
+                case "data":
+                    call("data", "GET", "/api/v1/data?" + query, null);
+                    break;
+                case "generate":
+                    String generated = call("generate", "GET", "/api/v1/generate?" + query, null);
+                    if (generated != null) {
+                        String requestQueryString = Json.createReader(new StringReader(generated)).readObject().getString("requestQueryString");
+                        call("data (generated)", "GET", "/api/v1/data?" + requestQueryString, null);
+                    }
+                    break;
+                case "upload":
+                    String workspace = call("workspace", "GET", "/api/v1/workspace", null);
+                    if (workspace != null) {
+                        String swagger = UploadEndpointUtils.getBasicSwagger("LoadTest");
+                        if (call("upload", "POST", "/api/v1/upload?tech=swagger&workspace=" + workspace + "&cleanup=true&process=true", swagger) != null) {
+                            call("data (workspace)", "GET", "/api/v1/data?" + query + "&tech=swagger&workspace=" + workspace, null);
+                        }
+                    }
+                    break;
+                case "github":
+                    // Follows the redirects through the stand-in's OAuth pages and the callback to the new repository
+                    call("github", "GET", "/api/v1/createGitHubRepository?" + query, null);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown flow " + flow);
+            }
+        } catch (RuntimeException e) {
+            recorder(flow).errors.incrementAndGet();
+        }
+    }
+
+    /**
+     * Makes a call and records how long it took, returning the body or null if it failed.
+     */
+    private String call(String name, String method, String path, String upload) {
+        long start = System.nanoTime();
+        try {
+            HttpURLConnection connection = (HttpURLConnection) new URL(url + path).openConnection();
+            connection.setRequestMethod(method);
+            if (upload != null) {
+                writeUpload(connection, upload);
+            }
+            int status = connection.getResponseCode();
+            byte[] body = readFully(status < 400 ? connection.getInputStream() : connection.getErrorStream());
+            long elapsed = System.nanoTime() - start;
+            if (status >= 400) {
+                recorder(name).errors.incrementAndGet();
+                return null;
+            }
+            if (measuring) {
+                recorder(name).record(elapsed);
+            }
+            return new String(body, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            recorder(name).errors.incrementAndGet();
+            return null;
+        }
+    }
+
+    private static void writeUpload(HttpURLConnection connection, String content) throws IOException {
+        String boundary = "----LoadDriverBoundary" + Long.toHexString(ThreadLocalRandom.current().nextLong());
+        connection.setDoOutput(true);
+        connection.setRequestProperty("Content-Type", "multipart/form-data; boundary=" + boundary);
+        String body = "--" + boundary + "\r\n"
+                + "Content-Disposition: form-data; name=\"fileFormData\"; filename=\"swagger.json\"\r\n"
+                + "Content-Type: application/octet-stream\r\n\r\n"
+                + content + "\r\n"
+                + "--" + boundary + "--\r\n";
+        try (OutputStream os = connection.getOutputStream()) {
+            os.write(body.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private static byte[] readFully(InputStream is) throws IOException {
+        if (is == null) {
+            return new byte[0];
+        }
+        try (InputStream in = is) {
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int length;
+            while ((length = in.read(buffer)) != -1) {
+                body.write(buffer, 0, length);
+            }
+            return body.toByteArray();
+        }
+    }
+
+    private Recorder recorder(String name) {
+        return recorders.computeIfAbsent(name, key -> new Recorder());
+    }
+
+    private static double percentile(long[] sortedNanos, double fraction) {
+        if (sortedNanos.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(fraction * sortedNanos.length) - 1;
+        return sortedNanos[Math.max(0, Math.min(index, sortedNanos.length - 1))] / 1e6;
+    }
+
+    private static class Recorder {
+        private final List<Long> latencies = new ArrayList<>();
+        private final AtomicLong errors = new AtomicLong();
+
+        private synchronized void record(long nanos) {
+            latencies.add(nanos);
+        }
+
+        private synchronized long[] getLatencies() {
+            return latencies.stream().mapToLong(Long::longValue).sorted().toArray();
+        }
+    }
+}
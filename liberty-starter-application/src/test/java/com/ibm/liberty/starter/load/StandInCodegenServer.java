@@ -0,0 +1,210 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.ibm.liberty.starter.load;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * A stand-in for the Bx codegen service so that project generation can be load tested without it. It implements
+ * the three calls the starter makes: starting a job with a POST to <code>api/generator</code>, checking it with
+ * <code>api/generator/{id}/status</code> and downloading the project zip from <code>api/generator/{id}</code>.
+ *
+ * Jobs report RUNNING until the generation time has passed and then FINISHED, or FAILED for the given fraction of
+ * jobs. Every call is delayed by the response delay. The zip has the given number of files of the given size, made
+ * of source-like text so that it compresses about as well as a real project.
+ *
+ * Point the starter at it by setting <code>bxCodegenEndpoint</code> to {@link #getUrl()}.
+ */
+public class StandInCodegenServer {
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final Map<String, Long> jobReadyTimes = new ConcurrentHashMap<>();
+    private final Map<String, Boolean> jobFailures = new ConcurrentHashMap<>();
+    private final AtomicLong nextJobId = new AtomicLong();
+    private final AtomicLong jobsStarted = new AtomicLong();
+    private final AtomicLong downloads = new AtomicLong();
+    private volatile long generationMillis = 2000;
+    private volatile long responseDelayMillis = 0;
+    private volatile double failureRate = 0;
+    private volatile byte[] projectZip;
+
+    public StandInCodegenServer(int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", port), 0);
+        server.createContext("/api/generator", this::handle);
+        server.setExecutor(executor);
+        setProjectSize(50, 2048);
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    /**
+     * Returns the URL to set as <code>bxCodegenEndpoint</code>, ending in a slash.
+     */
+    public String getUrl() {
+        return "http://localhost:" + server.getAddress().getPort() + "/";
+    }
+
+    /**
+     * Sets how long each job reports RUNNING for before it has finished.
+     */
+    public void setGenerationMillis(long generationMillis) {
+        this.generationMillis = generationMillis;
+    }
+
+    /**
+     * Sets how long every call waits before it responds, as network and server latency.
+     */
+    public void setResponseDelayMillis(long responseDelayMillis) {
+        this.responseDelayMillis = responseDelayMillis;
+    }
+
+    /**
+     * Sets the fraction of jobs, between 0 and 1, that report FAILED.
+     */
+    public void setFailureRate(double failureRate) {
+        this.failureRate = failureRate;
+    }
+
+    /**
+     * Sets the number of files in the generated project and the size of each file.
+     */
+    public void setProjectSize(int files, int fileBytes) throws IOException {
+        projectZip = createProjectZip(files, fileBytes);
+    }
+
+    public long getJobsStarted() {
+        return jobsStarted.get();
+    }
+
+    public long getDownloads() {
+        return downloads.get();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            delay(responseDelayMillis);
+            String[] path = exchange.getRequestURI().getPath().replaceAll("^/api/generator/?", "").split("/");
+            if ("POST".equals(exchange.getRequestMethod()) && path[0].isEmpty()) {
+                startJob(exchange);
+            } else if (path.length == 2 && "status".equals(path[1])) {
+                sendStatus(exchange, path[0]);
+            } else if (path.length == 1 && jobReadyTimes.containsKey(path[0])) {
+                downloads.incrementAndGet();
+                send(exchange, 200, "application/zip", projectZip);
+            } else {
+                send(exchange, 404, "text/plain", bytes("Unknown job"));
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void startJob(HttpExchange exchange) throws IOException {
+        // The payload isn't needed but has to be read before responding
+        readFully(exchange);
+        String id = Long.toString(nextJobId.incrementAndGet());
+        jobReadyTimes.put(id, System.currentTimeMillis() + generationMillis);
+        jobFailures.put(id, ThreadLocalRandom.current().nextDouble() < failureRate);
+        jobsStarted.incrementAndGet();
+        send(exchange, 200, "application/json", bytes("{\"job\":{\"id\":\"" + id + "\"}}"));
+    }
+
+    private void sendStatus(HttpExchange exchange, String id) throws IOException {
+        Long readyTime = jobReadyTimes.get(id);
+        if (readyTime == null) {
+            send(exchange, 404, "text/plain", bytes("Unknown job"));
+            return;
+        }
+        String status = System.currentTimeMillis() < readyTime ? "RUNNING" : jobFailures.get(id) ? "FAILED" : "FINISHED";
+        send(exchange, 200, "application/json", bytes("{\"status\":\"" + status + "\"}"));
+    }
+
+    static void send(HttpExchange exchange, int status, String contentType, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+        if (body.length > 0) {
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(body);
+            }
+        }
+    }
+
+    static byte[] readFully(HttpExchange exchange) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int length;
+        while ((length = exchange.getRequestBody().read(buffer)) != -1) {
+            body.write(buffer, 0, length);
+        }
+        return body.toByteArray();
+    }
+
+    static void delay(long millis) {
+        if (millis > 0) {
+            try {
+                Thread.sleep(millis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    static byte[] bytes(String content) {
+        return content.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] createProjectZip(int files, int fileBytes) throws IOException {
+        String[] words = { "public", "class", "private", "return", "import", "static", "final", "void", "String", "new", "if", "else", "{", "}", ";", "\n    " };
+        Random random = new Random(files * 31L + fileBytes);
+        ByteArrayOutputStream zip = new ByteArrayOutputStream();
+        try (ZipOutputStream zos = new ZipOutputStream(zip)) {
+            for (int i = 0; i < files; i++) {
+                zos.putNextEntry(new ZipEntry(i == 0 ? "pom.xml" : "src/main/java/application/File" + i + ".java"));
+                StringBuilder content = new StringBuilder(fileBytes + 16);
+                while (content.length() < fileBytes) {
+                    content.append(words[random.nextInt(words.length)]).append(' ');
+                }
+                content.setLength(fileBytes);
+                zos.write(bytes(content.toString()));
+            }
+        }
+        return zip.toByteArray();
+    }
+}
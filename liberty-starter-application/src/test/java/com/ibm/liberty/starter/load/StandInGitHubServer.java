@@ -0,0 +1,210 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.ibm.liberty.starter.load;
+
+import static com.ibm.liberty.starter.load.StandInCodegenServer.bytes;
+import static com.ibm.liberty.starter.load.StandInCodegenServer.delay;
+import static com.ibm.liberty.starter.load.StandInCodegenServer.readFully;
+import static com.ibm.liberty.starter.load.StandInCodegenServer.send;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.json.Json;
+import javax.json.JsonObject;
+
+import org.apache.commons.io.FileUtils;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.errors.GitAPIException;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * A stand-in for GitHub so that the "create on GitHub" flow can be load tested without it. It implements the
+ * OAuth pages, redirecting straight back to the starter's callback as if the user had authorised it, and the parts
+ * of the API the starter uses to create a repository and find the user. Each repository is a bare git repository
+ * in a temporary directory, cloned and pushed to with a file URL, so pushes are real but stay on the local disk.
+ *
+ * API calls wait for the response delay and fail with a 500 for the given fraction of calls. Point the starter at
+ * it by setting <code>com_ibm_liberty_starter_gitHubUrl</code> to {@link #getUrl()} and
+ * <code>com_ibm_liberty_starter_gitHubApiUrl</code> to {@link #getApiUrl()}.
+ */
+public class StandInGitHubServer {
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final File repositoryDir;
+    private final String callbackUrl;
+    private final List<File> repositories = new CopyOnWriteArrayList<>();
+    private final AtomicLong nextRepository = new AtomicLong();
+    private volatile long responseDelayMillis = 0;
+    private volatile double failureRate = 0;
+
+    /**
+     * @param callbackUrl The starter's GitHub callback, such as http://localhost:9080/start/api/v1/github/callback
+     */
+    public StandInGitHubServer(int port, String callbackUrl) throws IOException {
+        this.callbackUrl = callbackUrl;
+        repositoryDir = Files.createTempDirectory("standInGitHub").toFile();
+        server = HttpServer.create(new InetSocketAddress("localhost", port), 0);
+        server.createContext("/login/oauth/authorize", this::authorize);
+        server.createContext("/login/oauth/access_token", this::accessToken);
+        // eGit adds the /api/v3 prefix for any host other than github.com
+        server.createContext("/api/v3/user/repos", this::createRepository);
+        server.createContext("/api/v3/user", this::user);
+        server.createContext("/standin", this::repositoryPage);
+        server.setExecutor(executor);
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public void stop() throws IOException {
+        server.stop(0);
+        executor.shutdownNow();
+        FileUtils.deleteDirectory(repositoryDir);
+    }
+
+    public String getUrl() {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    public String getApiUrl() {
+        return getUrl();
+    }
+
+    public void setResponseDelayMillis(long responseDelayMillis) {
+        this.responseDelayMillis = responseDelayMillis;
+    }
+
+    /**
+     * Sets the fraction of API calls, between 0 and 1, that fail.
+     */
+    public void setFailureRate(double failureRate) {
+        this.failureRate = failureRate;
+    }
+
+    /**
+     * Returns the bare repositories created so far.
+     */
+    public List<File> getRepositories() {
+        return repositories;
+    }
+
+    private void authorize(HttpExchange exchange) throws IOException {
+        try {
+            String state = getQueryParameter(exchange, "state");
+            exchange.getResponseHeaders().set("Location", callbackUrl + "?code=" + UUID.randomUUID() + "&state=" + URLEncoder.encode(state, "UTF-8"));
+            exchange.sendResponseHeaders(302, -1);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void accessToken(HttpExchange exchange) throws IOException {
+        try {
+            readFully(exchange);
+            if (failed(exchange)) {
+                return;
+            }
+            send(exchange, 200, "application/json", bytes("{\"access_token\":\"" + UUID.randomUUID() + "\",\"token_type\":\"bearer\"}"));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void user(HttpExchange exchange) throws IOException {
+        try {
+            if (failed(exchange)) {
+                return;
+            }
+            send(exchange, 200, "application/json", bytes("{\"login\":\"standin\",\"id\":1}"));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void createRepository(HttpExchange exchange) throws IOException {
+        try {
+            JsonObject request = Json.createReader(new StringReader(new String(readFully(exchange), StandardCharsets.UTF_8))).readObject();
+            if (failed(exchange)) {
+                return;
+            }
+            String name = request.getString("name", "project");
+            File repository = new File(repositoryDir, nextRepository.incrementAndGet() + "-" + name + ".git");
+            try {
+                Git.init().setBare(true).setDirectory(repository).call().close();
+            } catch (GitAPIException e) {
+                throw new IOException(e);
+            }
+            repositories.add(repository);
+            String response = Json.createObjectBuilder()
+                    .add("name", name)
+                    .add("html_url", getUrl() + "/standin/" + name)
+                    .add("clone_url", repository.toURI().toString())
+                    .build().toString();
+            send(exchange, 201, "application/json", bytes(response));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    // Where the starter sends the user once their repository has been pushed
+    private void repositoryPage(HttpExchange exchange) throws IOException {
+        try {
+            send(exchange, 200, "text/html", bytes("<html><body>Stand-in repository</body></html>"));
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private boolean failed(HttpExchange exchange) throws IOException {
+        delay(responseDelayMillis);
+        if (ThreadLocalRandom.current().nextDouble() < failureRate) {
+            send(exchange, 500, "application/json", bytes("{\"message\":\"Stand-in failure\"}"));
+            return true;
+        }
+        return false;
+    }
+
+    private static String getQueryParameter(HttpExchange exchange, String name) throws IOException {
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query != null) {
+            for (String parameter : query.split("&")) {
+                String[] pair = parameter.split("=", 2);
+                if (pair[0].equals(name) && pair.length == 2) {
+                    return URLDecoder.decode(pair[1], "UTF-8");
+                }
+            }
+        }
+        return "";
+    }
+}
@@ -0,0 +1,72 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.ibm.liberty.starter.load;
+
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Starts the stand-in codegen and GitHub servers and waits until it is stopped. The ports, the starter's GitHub
+ * callback and the behaviour of the stand-ins are set with system properties:
+ * <ul>
+ * <li><code>standin.codegenPort</code>, default 9180, and <code>standin.gitHubPort</code>, default 9181</li>
+ * <li><code>standin.callbackUrl</code>, default http://localhost:9080/start/api/v1/github/callback</li>
+ * <li><code>standin.generationMillis</code>, <code>standin.responseDelayMillis</code> and
+ * <code>standin.failureRate</code></li>
+ * <li><code>standin.projectFiles</code> and <code>standin.projectFileBytes</code> - the size of the generated
+ * projects</li>
+ * </ul>
+ * The environment variables to point the starter at the stand-ins are printed once they have started.
+ */
+public class StandInServers {
+
+    public static void main(String[] args) throws Exception {
+        long responseDelayMillis = Long.getLong("standin.responseDelayMillis", 0);
+        double failureRate = Double.parseDouble(System.getProperty("standin.failureRate", "0"));
+
+        StandInCodegenServer codegen = new StandInCodegenServer(Integer.getInteger("standin.codegenPort", 9180));
+        codegen.setGenerationMillis(Long.getLong("standin.generationMillis", 2000));
+        codegen.setResponseDelayMillis(responseDelayMillis);
+        codegen.setFailureRate(failureRate);
+        codegen.setProjectSize(Integer.getInteger("standin.projectFiles", 50), Integer.getInteger("standin.projectFileBytes", 2048));
+
+        StandInGitHubServer gitHub = new StandInGitHubServer(Integer.getInteger("standin.gitHubPort", 9181),
+                                                             System.getProperty("standin.callbackUrl", "http://localhost:9080/start/api/v1/github/callback"));
+        gitHub.setResponseDelayMillis(responseDelayMillis);
+        gitHub.setFailureRate(failureRate);
+
+        codegen.start();
+        gitHub.start();
+        System.out.println("Stand-in servers started, run the starter with:");
+        System.out.println("  bxCodegenEndpoint=" + codegen.getUrl());
+        System.out.println("  appAccelStarterkit=stand-in");
+        System.out.println("  com_ibm_liberty_starter_gitHubUrl=" + gitHub.getUrl());
+        System.out.println("  com_ibm_liberty_starter_gitHubApiUrl=" + gitHub.getApiUrl());
+        System.out.println("  gitHubClientId=stand-in");
+        System.out.println("  gitHubClientSecret=stand-in");
+
+        CountDownLatch stopped = new CountDownLatch(1);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            codegen.stop();
+            try {
+                gitHub.stop();
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+            stopped.countDown();
+        }));
+        stopped.await();
+    }
+}
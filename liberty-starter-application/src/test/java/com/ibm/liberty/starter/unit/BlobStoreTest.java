@@ -0,0 +1,96 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.ibm.liberty.starter.unit;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+
+import org.junit.Test;
+
+import com.ibm.liberty.starter.BlobStore;
+
+public class BlobStoreTest {
+
+    @Test
+    public void sameContentIsShared() {
+        BlobStore testObject = new BlobStore(1000, 100);
+        BlobStore.Blob first = testObject.intern(bytes("<server/>"));
+        BlobStore.Blob second = testObject.intern(bytes("<server/>"));
+        assertThat(second, is(sameInstance(first)));
+        assertThat(second.isShared(), is(true));
+        assertThat(first.getCrc(), is(crc(bytes("<server/>"))));
+        assertThat(testObject.intern(bytes("<server></server>")), is(not(sameInstance(first))));
+        assertThat(testObject.getStats().getHits(), is(1L));
+        assertThat(testObject.getStats().getMisses(), is(2L));
+        assertThat(testObject.getStats().getBlobs(), is(2));
+    }
+
+    @Test
+    public void contentIsDeflatedOnce() {
+        BlobStore testObject = new BlobStore(1000, 100);
+        AtomicInteger deflated = new AtomicInteger();
+        BlobStore.Blob blob = testObject.intern(bytes("<server/>"));
+        byte[] data = blob.getDeflated(6, () -> {
+            deflated.incrementAndGet();
+            return bytes("deflated");
+        });
+        assertThat(testObject.intern(bytes("<server/>")).getDeflated(6, () -> bytes("again")), is(sameInstance(data)));
+        assertThat(deflated.get(), is(1));
+        assertThat(testObject.getStats().getBytes(), is((long) ("<server/>".length() + "deflated".length())));
+    }
+
+    @Test
+    public void retainedBlobsAreNotDropped() {
+        BlobStore testObject = new BlobStore(20, 100);
+        BlobStore.Blob retained = testObject.intern(bytes("0123456789"));
+        retained.retain();
+        testObject.intern(bytes("abcdefghij"));
+        // Only the blob that isn't retained can make room
+        BlobStore.Blob added = testObject.intern(bytes("ABCDEFGHIJ"));
+        assertThat(added.isShared(), is(true));
+        assertThat(testObject.getStats().getEvictions(), is(1L));
+        assertThat(testObject.intern(bytes("0123456789")), is(sameInstance(retained)));
+        // Nothing can be dropped now, so new content isn't shared
+        added.retain();
+        assertThat(testObject.intern(bytes("!!!!!!!!!!")).isShared(), is(false));
+        assertThat(testObject.getStats().getBytes(), is(20L));
+    }
+
+    @Test
+    public void largeContentIsNotShared() {
+        BlobStore testObject = new BlobStore(1000, 4);
+        BlobStore.Blob blob = testObject.intern(bytes("<server/>"));
+        assertThat(blob.isShared(), is(false));
+        assertThat(testObject.intern(bytes("<server/>")), is(not(sameInstance(blob))));
+        assertThat(testObject.getStats().getBlobs(), is(0));
+    }
+
+    private static byte[] bytes(String content) {
+        return content.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int crc(byte[] content) {
+        CRC32 crc = new CRC32();
+        crc.update(content);
+        return (int) crc.getValue();
+    }
+}
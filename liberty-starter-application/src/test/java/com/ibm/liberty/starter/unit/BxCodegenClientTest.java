@@ -22,6 +22,7 @@ import static org.junit.Assume.assumeTrue;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 import org.junit.BeforeClass;
 import org.junit.Rule;
@@ -30,8 +31,10 @@ import org.junit.rules.ExpectedException;
 
 import com.ibm.liberty.starter.ProjectConstructionInputData;
 import com.ibm.liberty.starter.ProjectConstructor;
+import com.ibm.liberty.starter.ProjectFile;
 import com.ibm.liberty.starter.api.v1.model.internal.Services;
 import com.ibm.liberty.starter.api.v1.model.registration.Service;
+import com.ibm.liberty.starter.client.ProjectCache;
 import com.ibm.liberty.starter.exception.ProjectGenerationException;
 import com.ibm.liberty.starter.unit.utils.MockBxCodegenClient;
 
@@ -59,10 +62,54 @@ public class BxCodegenClientTest {
         assumeTrue(bxClient.URL != null);
         assumeTrue(bxClient.STARTERKIT_URL != null);
         bxClient.setStatus("FINISHED");
-        Map<String, byte[]> files = bxClient.getFileMap(inputData);
+        Map<String, ProjectFile> files = bxClient.getFileMap(inputData);
         assertTrue("Expected file map to be returned successfully", files.keySet().contains("1234"));
     }
     
+    @Test
+    public void getFileMapUsesCachedProject() {
+        MockBxCodegenClient bxClient = new MockBxCodegenClient(new ProjectCache(1024 * 1024, null, 0));
+        assumeTrue(bxClient.URL != null);
+        assumeTrue(bxClient.STARTERKIT_URL != null);
+        bxClient.setStatus("FINISHED");
+        bxClient.getFileMap(inputData);
+        int statusChecks = bxClient.statusCount;
+        Map<String, ProjectFile> files = bxClient.getFileMap(inputData);
+        assertTrue("Expected file map to be returned from the cache", files.keySet().contains("1234"));
+        assertEquals("Expected codegen not to be called again", statusChecks, bxClient.statusCount);
+    }
+    
+    @Test
+    public void concurrentGetFileMapCallsShareOneJob() {
+        MockBxCodegenClient bxClient = new MockBxCodegenClient();
+        assumeTrue(bxClient.URL != null);
+        assumeTrue(bxClient.STARTERKIT_URL != null);
+        bxClient.setStatus("RUNNING");
+        CompletableFuture<Map<String, ProjectFile>> first = bxClient.getFileMapAsync(inputData, Runnable::run);
+        CompletableFuture<Map<String, ProjectFile>> second = bxClient.getFileMapAsync(inputData, Runnable::run);
+        bxClient.setStatus("FINISHED");
+        assertTrue("Expected file map to be returned successfully", first.join().keySet().contains("1234"));
+        assertTrue("Expected file map to be returned successfully", second.join().keySet().contains("1234"));
+        assertEquals("Expected one codegen job", 1, bxClient.codegenCount);
+    }
+    
+    @Test
+    public void pollingStopsWhenEveryCallerCancels() throws InterruptedException {
+        MockBxCodegenClient bxClient = new MockBxCodegenClient();
+        assumeTrue(bxClient.URL != null);
+        assumeTrue(bxClient.STARTERKIT_URL != null);
+        bxClient.setStatus("RUNNING");
+        CompletableFuture<Map<String, ProjectFile>> first = bxClient.getFileMapAsync(inputData, Runnable::run);
+        CompletableFuture<Map<String, ProjectFile>> second = bxClient.getFileMapAsync(inputData, Runnable::run);
+        Thread.sleep(50);
+        first.cancel(true);
+        second.cancel(true);
+        Thread.sleep(50);
+        int statusCount = bxClient.statusCount;
+        Thread.sleep(100);
+        assertEquals("Expected polling to stop", statusCount, bxClient.statusCount);
+    }
+    
     @Test
     public void getFileMapThrowsExceptionWhenFailed() {
         MockBxCodegenClient bxClient = new MockBxCodegenClient();
@@ -113,12 +160,26 @@ public class BxCodegenClientTest {
         MockBxCodegenClient bxClient = new MockBxCodegenClient();
         assumeTrue(bxClient.URL != null);
         assumeTrue(bxClient.STARTERKIT_URL != null);
-        Map<String, byte[]> files = bxClient.getFileMap(inputDataWithId);
+        Map<String, ProjectFile> files = bxClient.getFileMap(inputDataWithId);
         assertTrue("Expected file map to be returned successfully", files.keySet().contains("5678"));
         int retryCount = bxClient.statusCount;
         assertEquals(0, retryCount);
     }
     
+    @Test
+    public void getFileMapWithIdIsNotServedFromTheCache() {
+        ProjectCache cache = new ProjectCache(1024 * 1024, null, 0);
+        MockBxCodegenClient bxClient = new MockBxCodegenClient(cache);
+        assumeTrue(bxClient.URL != null);
+        assumeTrue(bxClient.STARTERKIT_URL != null);
+        bxClient.setStatus("FINISHED");
+        bxClient.getFileMap(inputData);
+        Map<String, ProjectFile> files = bxClient.getFileMap(inputDataWithId);
+        assertTrue("Expected the project of the job with the id", files.keySet().contains("5678"));
+        assertTrue("Expected the cached project to be unchanged", bxClient.getFileMap(inputData).keySet().contains("1234"));
+        assertEquals(1, cache.getStats().getEntries());
+    }
+    
     @Test
     public void generateProjectCallsScaffolderWhenFinished() {
         MockBxCodegenClient bxClient = new MockBxCodegenClient();
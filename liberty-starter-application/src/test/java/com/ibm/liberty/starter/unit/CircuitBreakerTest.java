@@ -0,0 +1,129 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.ibm.liberty.starter.unit;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThat;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+import com.ibm.liberty.starter.client.CircuitBreaker;
+import com.ibm.liberty.starter.client.CircuitBreaker.State;
+
+public class CircuitBreakerTest {
+
+    private final AtomicLong now = new AtomicLong();
+    private final CircuitBreaker testObject = new CircuitBreaker("wibble", 10, 4, 0.5, 1000, 5000, now::get);
+
+    @Test
+    public void breakerStaysClosedBelowMinimumCalls() {
+        for (int i = 0; i < 3; i++) {
+            call(false, 10);
+        }
+        assertThat(testObject.getState(), is(State.CLOSED));
+        assertNotNull(testObject.tryAcquire());
+    }
+
+    @Test
+    public void breakerOpensOnFailureRate() {
+        call(true, 10);
+        call(true, 10);
+        call(false, 10);
+        call(false, 10);
+        assertThat(testObject.getState(), is(State.OPEN));
+        assertNull(testObject.tryAcquire());
+    }
+
+    @Test
+    public void breakerOpensOnSlowCalls() {
+        call(true, 10);
+        call(true, 10);
+        call(true, 2000);
+        call(true, 2000);
+        assertThat(testObject.getState(), is(State.OPEN));
+        assertThat(testObject.getSlowCallRate(), is(0.5));
+    }
+
+    @Test
+    public void oldCallsLeaveTheWindow() {
+        for (int i = 0; i < 4; i++) {
+            call(true, 10);
+        }
+        call(false, 10);
+        for (int i = 0; i < 10; i++) {
+            call(true, 10);
+        }
+        assertThat(testObject.getFailureRate(), is(0.0));
+        assertThat(testObject.getState(), is(State.CLOSED));
+    }
+
+    @Test
+    public void successfulProbeClosesTheBreaker() {
+        open();
+        now.addAndGet(5000);
+        assertThat(testObject.getState(), is(State.HALF_OPEN));
+        CircuitBreaker.Permit probe = testObject.tryAcquire();
+        assertNotNull(probe);
+        assertNull("Only one probe at a time", testObject.tryAcquire());
+        probe.onSuccess(10);
+        assertThat(testObject.getState(), is(State.CLOSED));
+        assertThat(testObject.getFailureRate(), is(0.0));
+    }
+
+    @Test
+    public void failedProbeReopensTheBreaker() {
+        open();
+        now.addAndGet(5000);
+        testObject.tryAcquire().onFailure(10);
+        assertThat(testObject.getState(), is(State.OPEN));
+        now.addAndGet(4999);
+        assertNull(testObject.tryAcquire());
+    }
+
+    @Test
+    public void callFromBeforeOpeningDoesNotDecideTheProbe() {
+        CircuitBreaker.Permit late = testObject.tryAcquire();
+        open();
+        now.addAndGet(5000);
+        CircuitBreaker.Permit probe = testObject.tryAcquire();
+        late.onSuccess(10);
+        assertThat(testObject.getState(), is(State.HALF_OPEN));
+        assertNull("Still probing", testObject.tryAcquire());
+        probe.onFailure(10);
+        assertThat(testObject.getState(), is(State.OPEN));
+    }
+
+    private void open() {
+        for (int i = 0; i < 4; i++) {
+            call(false, 10);
+        }
+        assertThat(testObject.getState(), is(State.OPEN));
+    }
+
+    private void call(boolean succeeded, long duration) {
+        CircuitBreaker.Permit permit = testObject.tryAcquire();
+        assertNotNull(permit);
+        if (succeeded) {
+            permit.onSuccess(duration);
+        } else {
+            permit.onFailure(duration);
+        }
+    }
+}
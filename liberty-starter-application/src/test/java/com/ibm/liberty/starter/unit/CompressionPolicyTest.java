@@ -0,0 +1,61 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.ibm.liberty.starter.unit;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.Collections;
+import java.util.zip.Deflater;
+
+import org.junit.Test;
+
+import com.ibm.liberty.starter.CompressionPolicy;
+import com.ibm.liberty.starter.CompressionPolicy.Profile;
+
+public class CompressionPolicyTest {
+
+    @Test
+    public void compressedTypesAreStored() {
+        CompressionPolicy testObject = new CompressionPolicy(Profile.SIZE, Collections.emptyMap(), 1024);
+        assertThat(testObject.getLevel("lib/library.jar", new byte[10]), is(CompressionPolicy.STORED));
+        assertThat(testObject.getLevel("src/main/webapp/logo.PNG", null), is(CompressionPolicy.STORED));
+        assertThat(testObject.getLevel("fonts/icons.woff2", new byte[10]), is(CompressionPolicy.STORED));
+    }
+
+    @Test
+    public void compressedContentIsStoredWhateverItsName() {
+        CompressionPolicy testObject = new CompressionPolicy(Profile.SIZE, Collections.emptyMap(), 1024);
+        assertThat(testObject.getLevel("archive.bin", new byte[] { 0x50, 0x4B, 0x03, 0x04, 0 }), is(CompressionPolicy.STORED));
+        assertThat(testObject.getLevel("data.bin", new byte[] { 0x1F, (byte) 0x8B, 0 }), is(CompressionPolicy.STORED));
+        assertThat(testObject.getLevel("data.bin", new byte[] { 0x1F, 0 }), is(Deflater.BEST_COMPRESSION));
+    }
+
+    @Test
+    public void largeFilesAreDeflatedFaster() {
+        CompressionPolicy testObject = new CompressionPolicy(Profile.BALANCED, Collections.emptyMap(), 1024);
+        assertThat(testObject.getLevel("src/main/java/App.java", new byte[1023]), is(6));
+        assertThat(testObject.getLevel("src/main/resources/data.json", new byte[1024]), is(Deflater.BEST_SPEED));
+    }
+
+    @Test
+    public void levelsCanBeSetPerExtension() {
+        CompressionPolicy testObject = new CompressionPolicy(Profile.THROUGHPUT, Collections.singletonMap("json", 9), 1024);
+        assertThat(testObject.getLevel("swagger.JSON", new byte[4096]), is(9));
+        assertThat(testObject.getLevel("pom.xml", new byte[10]), is(Deflater.BEST_SPEED));
+        assertThat(testObject.getLevel("Dockerfile", new byte[10]), is(Deflater.BEST_SPEED));
+    }
+}
@@ -0,0 +1,118 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.ibm.liberty.starter.unit;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.ibm.liberty.starter.DownloadCache;
+import com.ibm.liberty.starter.StarterUtil;
+
+public class DownloadCacheTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void archiveIsStoredByContentHash() throws IOException {
+        DownloadCache testObject = new DownloadCache(folder.getRoot(), 10000);
+        DownloadCache.Archive archive = testObject.put("a", os -> os.write(bytes("project")));
+        assertThat(archive.getETag(), is(StarterUtil.createETag(bytes("project"))));
+        assertThat(archive.getLength(), is(7L));
+        assertThat(Files.readAllBytes(archive.getFile().toPath()), is(bytes("project")));
+        assertThat(testObject.get("a").getFile(), is(archive.getFile()));
+        assertThat(testObject.get("b"), is(nullValue()));
+    }
+
+    @Test
+    public void identicalArchivesShareAFile() throws IOException {
+        DownloadCache testObject = new DownloadCache(folder.getRoot(), 10000);
+        testObject.put("a", os -> os.write(bytes("project")));
+        testObject.put("b", os -> os.write(bytes("project")));
+        assertThat(testObject.get("b").getFile(), is(testObject.get("a").getFile()));
+        assertThat(testObject.getStats().getArchives(), is(1));
+        assertThat(testObject.getStats().getBytes(), is(7L));
+    }
+
+    @Test
+    public void invalidatedKeyIsNotServed() throws IOException {
+        DownloadCache testObject = new DownloadCache(folder.getRoot(), 10000);
+        testObject.put("a", os -> os.write(bytes("project")));
+        testObject.invalidate("a");
+        assertThat(testObject.get("a"), is(nullValue()));
+        DownloadCache.Archive regenerated = testObject.put("a", os -> os.write(bytes("regenerated")));
+        assertThat(testObject.get("a").getETag(), is(regenerated.getETag()));
+    }
+
+    @Test
+    public void leastRecentlyUsedArchiveIsEvicted() throws IOException {
+        DownloadCache testObject = new DownloadCache(folder.getRoot(), 2500);
+        DownloadCache.Archive a = testObject.put("a", os -> os.write(project(1000, 'a')));
+        testObject.put("b", os -> os.write(project(1000, 'b')));
+        testObject.get("a");
+        testObject.put("c", os -> os.write(project(1000, 'c')));
+        assertThat(testObject.get("b"), is(nullValue()));
+        assertThat(testObject.get("a"), is(not(nullValue())));
+        assertThat(a.getFile().isFile(), is(true));
+        assertThat(testObject.getStats().getEvictions(), is(1L));
+        assertThat(folder.getRoot().list().length, is(4));
+    }
+
+    @Test
+    public void archivesAreKeptAcrossRestarts() throws IOException {
+        DownloadCache.Archive archive = new DownloadCache(folder.getRoot(), 10000).put("a", os -> os.write(bytes("project")));
+        DownloadCache testObject = new DownloadCache(folder.getRoot(), 10000);
+        assertThat(testObject.get("a").getETag(), is(archive.getETag()));
+        assertThat(testObject.getStats().getBytes(), is(7L));
+    }
+
+    @Test
+    public void failedWriteLeavesNothingBehind() {
+        DownloadCache testObject = new DownloadCache(folder.getRoot(), 10000);
+        try {
+            testObject.put("a", os -> {
+                os.write(bytes("part"));
+                throw new IOException("wibble");
+            });
+        } catch (IOException e) {
+            assertThat(e.getMessage(), is("wibble"));
+        }
+        assertThat(testObject.get("a"), is(nullValue()));
+        assertThat(folder.getRoot().list().length, is(0));
+    }
+
+    private static byte[] project(int length, char content) {
+        byte[] project = new byte[length];
+        Arrays.fill(project, (byte) content);
+        return project;
+    }
+
+    private static byte[] bytes(String content) {
+        return content.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,101 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.ibm.liberty.starter.unit;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.ibm.liberty.starter.DownloadCache;
+import com.ibm.liberty.starter.api.FileDownload;
+import com.ibm.liberty.starter.api.FileDownload.ByteRange;
+
+public class FileDownloadTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void rangeFromStartToEnd() {
+        ByteRange range = ByteRange.parse("bytes=100-199", 1000);
+        assertThat(range.getStart(), is(100L));
+        assertThat(range.getEnd(), is(199L));
+        assertThat(range.getLength(), is(100L));
+    }
+
+    @Test
+    public void openRangeRunsToTheEndOfTheFile() {
+        ByteRange range = ByteRange.parse("bytes=900-", 1000);
+        assertThat(range.getStart(), is(900L));
+        assertThat(range.getEnd(), is(999L));
+        assertThat(ByteRange.parse("bytes=900-5000", 1000).getEnd(), is(999L));
+    }
+
+    @Test
+    public void suffixRangeIsTheLastBytes() {
+        ByteRange range = ByteRange.parse("bytes=-300", 1000);
+        assertThat(range.getStart(), is(700L));
+        assertThat(range.getLength(), is(300L));
+        assertThat(ByteRange.parse("bytes=-3000", 1000).getStart(), is(0L));
+    }
+
+    @Test
+    public void rangePastTheEndIsNotSatisfiable() {
+        assertThat(ByteRange.parse("bytes=1000-", 1000).isSatisfiable(), is(false));
+        assertThat(ByteRange.parse("bytes=-0", 1000).isSatisfiable(), is(false));
+    }
+
+    @Test
+    public void unsupportedRangesAreIgnored() {
+        assertThat(ByteRange.parse(null, 1000), is(nullValue()));
+        assertThat(ByteRange.parse("bytes=0-1,5-6", 1000), is(nullValue()));
+        assertThat(ByteRange.parse("items=0-1", 1000), is(nullValue()));
+        assertThat(ByteRange.parse("bytes=5-1", 1000), is(nullValue()));
+        assertThat(ByteRange.parse("bytes=a-b", 1000), is(nullValue()));
+    }
+
+    @Test
+    public void fileDeletedOnceTheResponseIsBuiltIsStillSent() throws IOException {
+        File file = folder.newFile();
+        byte[] content = "project".getBytes(StandardCharsets.UTF_8);
+        Files.write(file.toPath(), content);
+        Response response = FileDownload.respond(new DownloadCache.Archive(file, "hash", content.length), "application/zip", null, null, null).build();
+        Files.delete(file.toPath());
+        ByteArrayOutputStream sent = new ByteArrayOutputStream();
+        ((StreamingOutput) response.getEntity()).write(sent);
+        assertThat(sent.toByteArray(), is(content));
+    }
+
+    @Test(expected = IOException.class)
+    public void fileDeletedBeforeTheResponseIsBuiltIsReported() throws IOException {
+        File file = folder.newFile();
+        Files.delete(file.toPath());
+        FileDownload.respond(new DownloadCache.Archive(file, "hash", 10), "application/zip", null, null, null);
+    }
+}
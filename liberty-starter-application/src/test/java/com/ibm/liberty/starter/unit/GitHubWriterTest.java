@@ -35,6 +35,7 @@ import org.junit.Test;
 
 import com.ibm.liberty.starter.GitHubConnector;
 import com.ibm.liberty.starter.GitHubWriter;
+import com.ibm.liberty.starter.ProjectFile;
 
 public class GitHubWriterTest {
 
@@ -52,7 +53,7 @@ public class GitHubWriterTest {
         files.put(nestedFilePath, nestedFileBytes);
         String repositoryName = "wibble";
         FakeGitHubConnector fakeConnector = new FakeGitHubConnector();
-        GitHubWriter testObject = new GitHubWriter(files, repositoryName, fakeConnector);
+        GitHubWriter testObject = new GitHubWriter(ProjectFile.fromBytes(files), repositoryName, fakeConnector);
 
         testObject.createProjectOnGitHub();
         File localGitRepo = fakeConnector.localGitRepo;
@@ -73,7 +74,7 @@ public class GitHubWriterTest {
 
         String repositoryName = "wibble";
         FakeGitHubConnector fakeConnector = new FakeGitHubConnector();
-        GitHubWriter testObject = new GitHubWriter(files, repositoryName, fakeConnector);
+        GitHubWriter testObject = new GitHubWriter(ProjectFile.fromBytes(files), repositoryName, fakeConnector);
 
         testObject.createProjectOnGitHub();
         File localGitRepo = fakeConnector.localGitRepo;
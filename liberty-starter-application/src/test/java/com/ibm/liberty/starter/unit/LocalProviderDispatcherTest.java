@@ -0,0 +1,118 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.ibm.liberty.starter.unit;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+
+import java.io.IOException;
+import java.util.Optional;
+
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+import javax.ws.rs.NotFoundException;
+import javax.ws.rs.ProcessingException;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.ibm.liberty.starter.api.v1.model.registration.Service;
+import com.ibm.liberty.starter.client.LocalProviderDispatcher;
+
+public class LocalProviderDispatcherTest {
+
+    private MBeanServer server;
+    private LocalProviderDispatcher testObject;
+
+    @Before
+    public void registerProvider() throws Exception {
+        server = MBeanServerFactory.newMBeanServer();
+        server.registerMBean(new StandardMBean(new TestProvider(), TestProviderMBean.class),
+                             new ObjectName("com.ibm.liberty.starter:type=LocalProvider,contextRoot=/wibble"));
+        testObject = new LocalProviderDispatcher(server, true);
+    }
+
+    @Test
+    public void registeredProviderIsCalledDirectly() {
+        assertThat(testObject.prepareDynamicPackages(service("/wibble"), "dir", "option", "wibble,rest"), is(Optional.of("dir:option:wibble,rest")));
+        assertThat(testObject.getArtifact(service("/wibble"), "fish.pom").get(), is(new byte[] {1, 2, 3}));
+    }
+
+    @Test
+    public void unregisteredProviderIsNotCalled() {
+        assertFalse(testObject.isRegistered(service("/fish")));
+        assertFalse(testObject.prepareDynamicPackages(service("/fish"), "dir", "option", "fish").isPresent());
+        assertFalse(testObject.getArtifact(service("/fish"), "fish.pom").isPresent());
+    }
+
+    @Test
+    public void disabledDispatcherDoesNotCallProviders() {
+        assertFalse(new LocalProviderDispatcher(server, false).prepareDynamicPackages(service("/wibble"), "dir", "option", "wibble").isPresent());
+    }
+
+    @Test(expected = NotFoundException.class)
+    public void missingArtifactIsNotFound() {
+        testObject.getArtifact(service("/wibble"), "missing.pom");
+    }
+
+    @Test(expected = ProcessingException.class)
+    public void providerFailureIsAProcessingException() {
+        testObject.processUploads(service("/wibble"), "dir");
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void unsupportedOperationIsPassedOn() {
+        testObject.processUploads(service("/wibble"), null);
+    }
+
+    private static Service service(String endpoint) {
+        Service service = new Service();
+        service.setId("wibble");
+        service.setEndpoint(endpoint);
+        return service;
+    }
+
+    public interface TestProviderMBean {
+        String prepareDynamicPackages(String techWorkspaceDir, String options, String techs) throws IOException;
+
+        String processUploads(String uploadDirectoryPath) throws IOException;
+
+        byte[] getArtifact(String path) throws IOException;
+    }
+
+    public static class TestProvider implements TestProviderMBean {
+        @Override
+        public String prepareDynamicPackages(String techWorkspaceDir, String options, String techs) {
+            return techWorkspaceDir + ":" + options + ":" + techs;
+        }
+
+        @Override
+        public String processUploads(String uploadDirectoryPath) throws IOException {
+            if (uploadDirectoryPath == null) {
+                throw new UnsupportedOperationException();
+            }
+            throw new IOException("wibble");
+        }
+
+        @Override
+        public byte[] getArtifact(String path) {
+            return "fish.pom".equals(path) ? new byte[] {1, 2, 3} : null;
+        }
+    }
+}
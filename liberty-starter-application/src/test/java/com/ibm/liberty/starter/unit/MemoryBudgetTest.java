@@ -0,0 +1,70 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.ibm.liberty.starter.unit;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.ibm.liberty.starter.MemoryBudget;
+
+public class MemoryBudgetTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void requestCannotReserveMoreThanItsBudget() {
+        MemoryBudget testObject = new MemoryBudget(1000, new MemoryBudget.Pool(10000), folder.getRoot());
+        assertThat(testObject.tryReserve(600), is(true));
+        assertThat(testObject.tryReserve(600), is(false));
+        testObject.release(600);
+        assertThat(testObject.tryReserve(600), is(true));
+    }
+
+    @Test
+    public void requestsShareThePool() {
+        MemoryBudget.Pool pool = new MemoryBudget.Pool(1000);
+        MemoryBudget first = new MemoryBudget(800, pool, folder.getRoot());
+        MemoryBudget second = new MemoryBudget(800, pool, folder.getRoot());
+        assertThat(first.tryReserve(700), is(true));
+        assertThat(second.tryReserve(700), is(false));
+        assertThat(second.getReserved(), is(0L));
+        first.close();
+        assertThat(second.tryReserve(700), is(true));
+        assertThat(pool.getReserved(), is(700L));
+    }
+
+    @Test
+    public void closingDeletesSpillFiles() throws IOException {
+        MemoryBudget.Pool pool = new MemoryBudget.Pool(1000);
+        File spill;
+        try (MemoryBudget testObject = new MemoryBudget(1000, pool, folder.getRoot())) {
+            testObject.reserve(2000);
+            spill = testObject.createSpillFile();
+            assertThat(spill.isFile(), is(true));
+        }
+        assertThat(spill.exists(), is(false));
+        assertThat(pool.getReserved(), is(0L));
+        assertThat(pool.getSpills(), is(1L));
+    }
+}
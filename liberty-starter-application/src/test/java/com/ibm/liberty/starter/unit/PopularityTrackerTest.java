@@ -0,0 +1,111 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.ibm.liberty.starter.unit;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+import com.ibm.liberty.starter.ProjectConstructionInputData;
+import com.ibm.liberty.starter.ProjectConstructor;
+import com.ibm.liberty.starter.api.v1.model.internal.Services;
+import com.ibm.liberty.starter.api.v1.model.registration.Service;
+import com.ibm.liberty.starter.client.PopularityTracker;
+
+public class PopularityTrackerTest {
+
+    @Test
+    public void mostRequestedCombinationsComeFirst() {
+        PopularityTracker testObject = new PopularityTracker(10);
+        record(testObject, 3, "rest");
+        record(testObject, 5, "rest", "web");
+        record(testObject, 1, "swagger");
+        assertThat(techs(testObject.getTop(2, 1)), contains("rest,web", "rest"));
+    }
+
+    @Test
+    public void technologyOrderDoesNotMatter() {
+        PopularityTracker testObject = new PopularityTracker(10);
+        record(testObject, 2, "rest", "web");
+        record(testObject, 2, "web", "rest");
+        assertThat(testObject.getTop(5, 4).size(), is(1));
+    }
+
+    @Test
+    public void projectNamesDoNotSplitTheCount() {
+        PopularityTracker testObject = new PopularityTracker(10);
+        recordNamed(testObject, 2, "first", "rest");
+        recordNamed(testObject, 2, "second", "rest");
+        List<ProjectConstructionInputData> top = testObject.getTop(5, 4);
+        assertThat(top.size(), is(1));
+        assertThat("Expected the names of the latest request", top.get(0).appName, is("second"));
+    }
+
+    @Test
+    public void combinationSeenWhileFullIsAdmittedAfterAgeing() {
+        PopularityTracker testObject = new PopularityTracker(2);
+        record(testObject, 2, "rest");
+        record(testObject, 2, "web");
+        record(testObject, 8, "swagger");
+        assertThat(techs(testObject.getTop(5, 1)), containsInAnyOrder("rest", "web"));
+        testObject.age();
+        record(testObject, 1, "swagger");
+        assertThat(techs(testObject.getTop(1, 1)), contains("swagger"));
+    }
+
+    @Test
+    public void ageingHalvesCounts() {
+        PopularityTracker testObject = new PopularityTracker(10);
+        record(testObject, 4, "rest");
+        testObject.age();
+        assertThat(testObject.getTop(1, 3), is(empty()));
+        assertThat(testObject.getTop(1, 2).size(), is(1));
+    }
+
+    private static void record(PopularityTracker tracker, int times, String... techs) {
+        recordNamed(tracker, times, "TestName", techs);
+    }
+
+    private static void recordNamed(PopularityTracker tracker, int times, String name, String... techs) {
+        List<Service> serviceList = new ArrayList<>();
+        for (String tech : techs) {
+            Service service = new Service();
+            service.setId(tech);
+            serviceList.add(service);
+        }
+        Services services = new Services();
+        services.setServices(serviceList);
+        ProjectConstructionInputData inputData = new ProjectConstructionInputData(services, null, name, ProjectConstructor.DeployType.LOCAL, ProjectConstructor.BuildType.MAVEN,
+                                                                                  "workspaceDir", null, "testArtifactId", "test.group.id", null, false);
+        for (int i = 0; i < times; i++) {
+            tracker.record(inputData);
+        }
+    }
+
+    private static List<String> techs(List<ProjectConstructionInputData> top) {
+        return top.stream()
+                  .map(inputData -> inputData.services.getServices().stream().map(Service::getId).collect(Collectors.joining(",")))
+                  .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,100 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.ibm.liberty.starter.unit;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.ibm.liberty.starter.ProjectConstructionInputData;
+import com.ibm.liberty.starter.ProjectConstructor;
+import com.ibm.liberty.starter.api.v1.model.internal.Services;
+import com.ibm.liberty.starter.api.v1.model.registration.Service;
+import com.ibm.liberty.starter.client.ProjectCache;
+
+public class ProjectCacheTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void keyDoesNotDependOnTechnologyOrder() {
+        String key = ProjectCache.createKey(inputData("rest", "web"), "http://starter");
+        assertThat(ProjectCache.createKey(inputData("web", "rest"), "http://starter"), is(key));
+        assertThat(ProjectCache.createKey(inputData("web", "rest"), "http://other").equals(key), is(false));
+    }
+
+    @Test
+    public void leastRecentlyUsedProjectIsEvicted() {
+        ProjectCache testObject = new ProjectCache(2500, null, 0);
+        testObject.put("a", project(1000));
+        testObject.put("b", project(1000));
+        testObject.get("a");
+        testObject.put("c", project(1000));
+        assertThat(testObject.get("b"), is(nullValue()));
+        assertThat(testObject.get("a").length, is(1000));
+        assertThat(testObject.get("c").length, is(1000));
+        assertThat(testObject.getStats().getEvictions(), is(1L));
+    }
+
+    @Test
+    public void evictedProjectIsReadBackFromDisk() throws Exception {
+        File dir = folder.newFolder();
+        ProjectCache testObject = new ProjectCache(1500, dir, 1024 * 1024);
+        testObject.put("a", project(1000));
+        testObject.put("b", project(1000));
+        assertThat(testObject.get("a").length, is(1000));
+        assertThat(testObject.getStats().getDiskHits(), is(1L));
+        assertThat(new ProjectCache(1500, dir, 1024 * 1024).getStats().getDiskEntries(), is(2));
+    }
+
+    @Test
+    public void statsCountHitsAndMisses() {
+        ProjectCache testObject = new ProjectCache(1024 * 1024, null, 0);
+        testObject.get("a");
+        testObject.put("a", project(10));
+        testObject.get("a");
+        testObject.get("a");
+        ProjectCache.Stats stats = testObject.getStats();
+        assertThat(stats.getHits(), is(2L));
+        assertThat(stats.getMisses(), is(1L));
+        assertThat(stats.getEntries(), is(1));
+    }
+
+    private static byte[] project(int size) {
+        return new byte[size];
+    }
+
+    private static ProjectConstructionInputData inputData(String... techs) {
+        List<Service> serviceList = new ArrayList<>();
+        for (String tech : techs) {
+            Service service = new Service();
+            service.setId(tech);
+            serviceList.add(service);
+        }
+        Services services = new Services();
+        services.setServices(serviceList);
+        return new ProjectConstructionInputData(services, null, "TestName", ProjectConstructor.DeployType.LOCAL, ProjectConstructor.BuildType.MAVEN, "workspaceDir", null, "testArtifactId", "test.group.id", null, false);
+    }
+}
@@ -0,0 +1,108 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.ibm.liberty.starter.unit;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.ibm.liberty.starter.ProjectFile;
+
+public class ProjectFileTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void zipEntriesAreInflatedWhenRead() throws IOException {
+        byte[] deflated = bytes(String.join("", Collections.nCopies(1000, "<dependency/>")));
+        byte[] stored = bytes("stored");
+        ByteArrayOutputStream zip = new ByteArrayOutputStream();
+        try (ZipOutputStream zos = new ZipOutputStream(zip)) {
+            zos.putNextEntry(new ZipEntry("pom.xml"));
+            zos.write(deflated);
+            ZipEntry storedEntry = new ZipEntry("stored.txt");
+            storedEntry.setMethod(ZipEntry.STORED);
+            storedEntry.setSize(stored.length);
+            CRC32 crc = new CRC32();
+            crc.update(stored);
+            storedEntry.setCrc(crc.getValue());
+            zos.putNextEntry(storedEntry);
+            zos.write(stored);
+        }
+        Map<String, ProjectFile> files = ProjectFile.fromZip(zip.toByteArray());
+        assertThat(new ArrayList<>(files.keySet()), contains("pom.xml", "stored.txt"));
+        assertThat(files.get("pom.xml").getSize(), is((long) deflated.length));
+        assertThat(files.get("pom.xml").read(), is(deflated));
+        try (InputStream is = files.get("pom.xml").open()) {
+            assertThat(IOUtils.toByteArray(is), is(deflated));
+        }
+        assertThat(files.get("stored.txt").read(), is(stored));
+    }
+
+    @Test(expected = ZipException.class)
+    public void invalidZipIsRejected() throws IOException {
+        ProjectFile.fromZip(bytes("wibble"));
+    }
+
+    @Test
+    public void fileIsReadWhenWrittenOut() throws IOException {
+        File file = folder.newFile();
+        Files.write(file.toPath(), bytes("before"));
+        ProjectFile testObject = ProjectFile.of(file.toPath());
+        Files.write(file.toPath(), bytes("after!"));
+        assertThat(testObject.getSize(), is(6L));
+        assertThat(testObject.read(), is(bytes("after!")));
+    }
+
+    @Test
+    public void largeFileIsReadWhole() throws IOException {
+        byte[] content = new byte[2 * 1024 * 1024 + 3];
+        new Random(5).nextBytes(content);
+        File file = folder.newFile();
+        Files.write(file.toPath(), content);
+        ProjectFile testObject = ProjectFile.of(file.toPath());
+        assertThat(testObject.getSize(), is((long) content.length));
+        assertThat(testObject.read(), is(content));
+        try (InputStream is = testObject.open()) {
+            assertThat(IOUtils.toByteArray(is), is(content));
+        }
+    }
+
+    private static byte[] bytes(String content) {
+        return content.getBytes(StandardCharsets.UTF_8);
+    }
+}
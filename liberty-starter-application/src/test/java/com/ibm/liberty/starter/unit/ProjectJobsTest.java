@@ -0,0 +1,115 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.ibm.liberty.starter.unit;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+import com.ibm.liberty.starter.DownloadCache;
+import com.ibm.liberty.starter.api.ProjectJob;
+import com.ibm.liberty.starter.api.ProjectJobs;
+
+public class ProjectJobsTest {
+
+    private final AtomicLong clock = new AtomicLong(1000);
+
+    @Test
+    public void eventsAreRecordedForEachStage() {
+        ProjectJob job = new ProjectJob("test", clock::get);
+        job.stage("validation");
+        clock.addAndGet(50);
+        job.stage("codegen");
+        job.succeed(archive(10));
+        List<ProjectJob.Event> events = job.getEventsAfter(0);
+        assertThat(events.stream().map(ProjectJob.Event::getName).collect(Collectors.toList()), contains("validation", "codegen", ProjectJob.COMPLETE_EVENT));
+        assertThat(events.get(1).getData(), is("{\"stage\":\"codegen\",\"elapsed\":50}"));
+        assertThat(events.get(2).toServerSentEvent(), startsWith("id: 3\nevent: complete\ndata: "));
+        assertThat(events.get(2).getData(), containsString("\"size\":10"));
+        assertThat(job.getStatus(), is(ProjectJob.Status.SUCCEEDED));
+    }
+
+    @Test
+    public void eventsCanBeResumedAfterTheLastOneSeen() {
+        ProjectJob job = new ProjectJob("test", clock::get);
+        job.stage("validation");
+        job.stage("prepare");
+        assertThat(job.getEventsAfter(1).stream().map(ProjectJob.Event::getName).collect(Collectors.toList()), contains("prepare"));
+    }
+
+    @Test
+    public void waitingForEventsCompletesWhenTheNextStageStarts() {
+        ProjectJob job = new ProjectJob("test", clock::get);
+        CompletableFuture<Void> waiting = job.whenEventsAfter(0);
+        assertThat(waiting.isDone(), is(false));
+        job.stage("codegen");
+        assertThat(waiting.isDone(), is(true));
+        assertThat(job.whenEventsAfter(0).isDone(), is(true));
+        assertThat(job.whenEventsAfter(1).isDone(), is(false));
+        job.succeed(archive(0));
+        assertThat("A finished job has no more events to wait for", job.whenEventsAfter(2).isDone(), is(true));
+    }
+
+    @Test
+    public void cancelledJobIsNotReportedAsFailed() {
+        ProjectJob job = new ProjectJob("test", clock::get);
+        CompletableFuture<byte[]> work = job.getCancellation().track(new CompletableFuture<>());
+        job.stage("codegen");
+        job.cancel();
+        assertTrue(work.isCancelled());
+        job.fail(new IllegalStateException(), "cancelled");
+        assertThat(job.getStatus(), is(ProjectJob.Status.CANCELLED));
+        assertThat(job.getEventsAfter(1).get(0).getName(), is(ProjectJob.CANCELLED));
+        assertThat(job.getResult(), is(nullValue()));
+    }
+
+    @Test
+    public void finishedJobsAreDroppedAfterTheRetentionPeriod() {
+        ProjectJobs testObject = new ProjectJobs(1000, 10, clock::get);
+        ProjectJob finished = testObject.create("finished");
+        ProjectJob running = testObject.create("running");
+        finished.succeed(archive(0));
+        clock.addAndGet(1000);
+        testObject.create("another");
+        assertThat(testObject.get(finished.getId()), is(nullValue()));
+        assertThat(testObject.get(running.getId()), is(running));
+        assertThat(testObject.size(), is(2));
+    }
+
+    @Test(expected = RejectedExecutionException.class)
+    public void numberOfJobsIsBounded() {
+        ProjectJobs testObject = new ProjectJobs(1000, 1, clock::get);
+        testObject.create("first");
+        testObject.create("second");
+    }
+
+    private static DownloadCache.Archive archive(long length) {
+        return new DownloadCache.Archive(new File("test.zip"), "hash", length);
+    }
+}
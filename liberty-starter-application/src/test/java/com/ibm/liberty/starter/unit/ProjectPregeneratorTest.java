@@ -0,0 +1,91 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.ibm.liberty.starter.unit;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assume.assumeTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+import com.ibm.liberty.starter.ProjectConstructionInputData;
+import com.ibm.liberty.starter.ProjectConstructor;
+import com.ibm.liberty.starter.api.v1.model.internal.Services;
+import com.ibm.liberty.starter.api.v1.model.registration.Service;
+import com.ibm.liberty.starter.client.PopularityTracker;
+import com.ibm.liberty.starter.client.ProjectCache;
+import com.ibm.liberty.starter.client.ProjectPregenerator;
+import com.ibm.liberty.starter.unit.utils.MockBxCodegenClient;
+
+public class ProjectPregeneratorTest {
+
+    private final ProjectCache cache = new ProjectCache(1024 * 1024, null, 0);
+    private final MockBxCodegenClient client = new MockBxCodegenClient(cache);
+    private final PopularityTracker tracker = new PopularityTracker(10);
+    private final AtomicLong now = new AtomicLong();
+    private final ProjectPregenerator testObject = new ProjectPregenerator(tracker, () -> client, 1, 2, 1000, now::get);
+
+    @Test
+    public void popularProjectIsGeneratedOnce() {
+        assumeTrue(client.isConfigured());
+        client.setStatus("FINISHED");
+        ProjectConstructionInputData popular = inputData("rest");
+        tracker.record(popular);
+        tracker.record(popular);
+        tracker.record(inputData("web"));
+        testObject.pregenerate();
+        testObject.pregenerate();
+        assertThat(client.isCached(popular), is(true));
+        assertThat(client.isCached(inputData("web")), is(false));
+        assertThat(client.codegenCount, is(1));
+    }
+
+    @Test
+    public void popularProjectIsRefreshed() {
+        assumeTrue(client.isConfigured());
+        client.setStatus("FINISHED");
+        ProjectConstructionInputData popular = inputData("rest");
+        tracker.record(popular);
+        tracker.record(popular);
+        testObject.pregenerate();
+        now.addAndGet(1000);
+        testObject.pregenerate();
+        assertThat(client.codegenCount, is(2));
+    }
+
+    @Test
+    public void failureDoesNotEscapeTheRun() {
+        // The scheduler would never run the task again if it threw
+        new ProjectPregenerator(tracker, () -> {
+            throw new IllegalStateException("wibble");
+        }, 1, 2, 1000, now::get).pregenerate();
+    }
+
+    private static ProjectConstructionInputData inputData(String tech) {
+        Service service = new Service();
+        service.setId(tech);
+        List<Service> serviceList = new ArrayList<>();
+        serviceList.add(service);
+        Services services = new Services();
+        services.setServices(serviceList);
+        return new ProjectConstructionInputData(services, null, "TestName", ProjectConstructor.DeployType.LOCAL, ProjectConstructor.BuildType.MAVEN,
+                                                "workspaceDir", null, "testArtifactId", "test.group.id", null, false);
+    }
+}
@@ -0,0 +1,108 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.ibm.liberty.starter.unit;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import java.net.URI;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.json.Json;
+import javax.json.JsonObject;
+import javax.ws.rs.ProcessingException;
+
+import org.junit.Test;
+
+import com.ibm.liberty.starter.ProviderCatalog;
+import com.ibm.liberty.starter.ServiceConnector;
+import com.ibm.liberty.starter.api.v1.model.registration.Service;
+import com.ibm.liberty.starter.unit.utils.MockServiceRegistry;
+
+public class ProviderCatalogTest {
+
+    private final MockServiceRegistry registry = new MockServiceRegistry();
+    private final AtomicInteger detailsCalls = new AtomicInteger();
+
+    @Test
+    public void providerDetailsAreMergedWithTheService() {
+        JsonObject catalog = new ProviderCatalog().getCatalog(new CatalogServiceConnector(false)).getJson();
+        JsonObject wibble = catalog.getJsonArray("technologies").getJsonObject(0);
+        assertThat(wibble.getString("id"), is("wibble"));
+        assertThat(wibble.getBoolean("available"), is(true));
+        assertThat(wibble.getJsonObject("provider").getString("description"), is("fish"));
+        assertThat(wibble.getJsonObject("samples").getString("base"), is("http://localhost/wibble/sample"));
+    }
+
+    @Test
+    public void catalogIsCachedUntilTheServicesChange() throws InterruptedException {
+        ProviderCatalog testObject = new ProviderCatalog();
+        ServiceConnector serviceConnector = new CatalogServiceConnector(false);
+        ProviderCatalog.Catalog first = testObject.getCatalog(serviceConnector);
+        assertThat(testObject.getCatalog(serviceConnector), is(sameInstance(first)));
+        assertThat(detailsCalls.get(), is(1));
+
+        registry.refresh();
+        assertThat("Refreshing unchanged services keeps the catalog", testObject.getCatalog(serviceConnector), is(sameInstance(first)));
+
+        registry.version = "2";
+        registry.refresh();
+        // The previous catalog is served while the new one is built
+        assertThat(testObject.getCatalog(serviceConnector), is(sameInstance(first)));
+        ProviderCatalog.Catalog second = first;
+        long deadline = System.currentTimeMillis() + 5000;
+        while (second == first && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+            second = testObject.getCatalog(serviceConnector);
+        }
+        assertThat(second, is(not(sameInstance(first))));
+        assertThat(second.getETag(), is(first.getETag()));
+        assertThat(detailsCalls.get(), is(2));
+    }
+
+    @Test
+    public void unavailableProviderIsMarked() {
+        JsonObject catalog = new ProviderCatalog().getCatalog(new CatalogServiceConnector(true)).getJson();
+        JsonObject wibble = catalog.getJsonArray("technologies").getJsonObject(0);
+        assertThat(wibble.getBoolean("available"), is(false));
+        assertThat(wibble.containsKey("provider"), is(false));
+    }
+
+    private class CatalogServiceConnector extends ServiceConnector {
+        private final boolean fail;
+
+        private CatalogServiceConnector(boolean fail) {
+            super(URI.create("http://localhost/start"), registry);
+            this.fail = fail;
+        }
+
+        @Override
+        public JsonObject getProviderDetails(Service service) {
+            detailsCalls.incrementAndGet();
+            if (fail) {
+                throw new ProcessingException("wibble");
+            }
+            return Json.createObjectBuilder().add("description", "fish").build();
+        }
+
+        @Override
+        public JsonObject getProviderSamples(Service service) {
+            return Json.createObjectBuilder().add("base", "http://localhost/wibble/sample").build();
+        }
+    }
+}
@@ -0,0 +1,88 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.ibm.liberty.starter.unit;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.ibm.liberty.starter.api.RequestCancellation;
+
+public class RequestCancellationTest {
+
+    @Test
+    public void abandonCancelsTrackedFutures() {
+        RequestCancellation testObject = new RequestCancellation();
+        CompletableFuture<String> future = testObject.track(new CompletableFuture<>());
+        long abandoned = getAbandoned("disconnected");
+        testObject.abandon("disconnected");
+        testObject.abandon("disconnected");
+        assertTrue(future.isCancelled());
+        assertTrue(testObject.track(new CompletableFuture<>()).isCancelled());
+        assertThat(getAbandoned("disconnected"), is(abandoned + 1));
+    }
+
+    @Test
+    public void abandonInterruptsRunningStep() throws Exception {
+        RequestCancellation testObject = new RequestCancellation();
+        CountDownLatch started = new CountDownLatch(1);
+        CompletableFuture<Boolean> interrupted = CompletableFuture.supplyAsync(() -> {
+            try {
+                return testObject.runInterruptibly(() -> {
+                    started.countDown();
+                    Thread.sleep(10000);
+                    return false;
+                });
+            } catch (InterruptedException e) {
+                return true;
+            } catch (Exception e) {
+                return false;
+            }
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        testObject.abandon("timedOut");
+        assertTrue(interrupted.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test(expected = CancellationException.class)
+    public void stepIsNotRunOnceAbandoned() throws Exception {
+        RequestCancellation testObject = new RequestCancellation();
+        testObject.abandon("disconnected");
+        testObject.runInterruptibly(() -> "result");
+    }
+
+    @Test
+    public void completedStepDoesNotLeaveThreadInterrupted() throws Exception {
+        RequestCancellation testObject = new RequestCancellation();
+        testObject.runInterruptibly(() -> {
+            testObject.abandon("writeFailed");
+            return null;
+        });
+        assertFalse(Thread.currentThread().isInterrupted());
+    }
+
+    private static long getAbandoned(String stage) {
+        return RequestCancellation.getAbandoned().getOrDefault(stage, 0L);
+    }
+}
@@ -0,0 +1,98 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.ibm.liberty.starter.unit;
+
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+import com.ibm.liberty.starter.ServiceRegistry;
+import com.ibm.liberty.starter.api.v1.model.internal.Services;
+import com.ibm.liberty.starter.api.v1.model.registration.Service;
+import com.ibm.liberty.starter.unit.utils.MockServiceRegistry;
+
+public class ServiceRegistryTest {
+
+    @Test
+    public void servicesAreReadFromServicesJson() {
+        ServiceRegistry testObject = new ServiceRegistry();
+        List<String> ids = testObject.getServices().getServices().stream().map(Service::getId).collect(Collectors.toList());
+        assertThat(ids, hasItem("rest"));
+        assertThat(ids, hasItem("swagger"));
+    }
+
+    @Test
+    public void servicesAreOnlyLoadedOnce() {
+        MockServiceRegistry testObject = new MockServiceRegistry();
+        Services first = testObject.getServices();
+        Services second = testObject.getServices();
+        assertThat(second, is(sameInstance(first)));
+        assertThat(testObject.loadCount, is(1));
+    }
+
+    @Test
+    public void refreshReplacesTheSnapshot() {
+        MockServiceRegistry testObject = new MockServiceRegistry();
+        Services first = testObject.getServices();
+        testObject.version = "2";
+        testObject.refresh();
+        assertThat(testObject.getServices(), is(not(sameInstance(first))));
+        assertThat(testObject.getServices().getServices(), hasSize(1));
+        assertThat(testObject.getVersion(), is("2"));
+    }
+
+    @Test
+    public void refreshKeepsTheSnapshotIfNothingChanged() {
+        MockServiceRegistry testObject = new MockServiceRegistry();
+        Services first = testObject.getServices();
+        testObject.refresh();
+        assertThat(testObject.getServices(), is(sameInstance(first)));
+        assertThat(testObject.loadCount, is(1));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void snapshotCannotBeModified() {
+        new MockServiceRegistry().getServices().getServices().add(new Service());
+    }
+
+    @Test
+    public void serviceCanBeFoundById() {
+        ServiceRegistry testObject = new ServiceRegistry();
+        assertThat(testObject.getService("msbuilder").getEndpoint(), is("/ms-builder"));
+    }
+
+    @Test
+    public void serviceCanBeFoundByAlias() {
+        ServiceRegistry testObject = new ServiceRegistry();
+        assertThat(testObject.getService("ms-builder"), is(sameInstance(testObject.getService("msbuilder"))));
+    }
+
+    @Test
+    public void unknownServiceIsNull() {
+        ServiceRegistry testObject = new ServiceRegistry();
+        assertThat(testObject.getService("wibble"), is(nullValue()));
+        assertThat(testObject.getService(null), is(nullValue()));
+    }
+}
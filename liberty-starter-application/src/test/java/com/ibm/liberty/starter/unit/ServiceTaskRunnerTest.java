@@ -0,0 +1,120 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.ibm.liberty.starter.unit;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.Test;
+
+import com.ibm.liberty.starter.ServiceTaskRunner;
+import com.ibm.liberty.starter.api.v1.model.registration.Service;
+
+public class ServiceTaskRunnerTest {
+
+    @Test
+    public void dependentServiceRunsAfterItsDependency() {
+        List<String> order = new CopyOnWriteArrayList<>();
+        Map<String, Throwable> failures = new ServiceTaskRunner(10000).run(Arrays.asList(service("swagger", "rest"), service("rest", "yes")), service -> {
+            if ("rest".equals(service.getId())) {
+                sleep(200);
+            }
+            order.add(service.getId());
+        });
+        assertTrue(failures.isEmpty());
+        assertThat(order, contains("rest", "swagger"));
+    }
+
+    @Test
+    public void independentServicesRunConcurrently() {
+        CountDownLatch latch = new CountDownLatch(2);
+        Map<String, Throwable> failures = new ServiceTaskRunner(10000).run(Arrays.asList(service("rest", null), service("web", null)), service -> {
+            latch.countDown();
+            try {
+                if (!latch.await(5, TimeUnit.SECONDS)) {
+                    throw new IllegalStateException("Tasks did not overlap");
+                }
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        assertTrue(failures.isEmpty());
+    }
+
+    @Test
+    public void failuresAreCollectedPerService() {
+        List<String> ran = new CopyOnWriteArrayList<>();
+        Map<String, Throwable> failures = new ServiceTaskRunner(10000).run(Arrays.asList(service("rest", null), service("swagger", "rest")), service -> {
+            ran.add(service.getId());
+            if ("rest".equals(service.getId())) {
+                throw new IllegalStateException("wibble");
+            }
+        });
+        assertThat(failures.keySet(), contains("rest"));
+        assertThat(failures.get("rest").getMessage(), is("wibble"));
+        assertTrue(ran.contains("swagger"));
+    }
+
+    @Test
+    public void slowServiceTimesOut() {
+        Map<String, Throwable> failures = new ServiceTaskRunner(100).run(Arrays.asList(service("rest", null), service("web", null)), service -> {
+            if ("rest".equals(service.getId())) {
+                sleep(2000);
+            }
+        });
+        assertThat(failures.keySet(), contains("rest"));
+        assertThat(failures.get("rest"), instanceOf(TimeoutException.class));
+    }
+
+    @Test
+    public void slowServiceIsInterrupted() throws InterruptedException {
+        CountDownLatch interrupted = new CountDownLatch(1);
+        new ServiceTaskRunner(100).run(Arrays.asList(service("rest", null)), service -> {
+            try {
+                Thread.sleep(5000);
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+            }
+        });
+        assertTrue(interrupted.await(1, TimeUnit.SECONDS));
+    }
+
+    private static Service service(String id, String configuration) {
+        Service service = new Service();
+        service.setId(id);
+        service.setConfiguration(configuration);
+        return service;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,73 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.ibm.liberty.starter.unit;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.Test;
+
+import com.ibm.liberty.starter.ServicesDocument;
+
+public class ServicesDocumentTest {
+
+    @Test
+    public void contentIsReadOnce() {
+        ServicesDocument testObject = new ServicesDocument("/services.json", 60000);
+        assertThat(testObject.getContent(), is(sameInstance(testObject.getContent())));
+    }
+
+    @Test
+    public void bytesAreTheSerializedJson() {
+        ServicesDocument.Content content = new ServicesDocument("/services.json", 0).getContent();
+        assertThat(new String(content.getBytes(), StandardCharsets.UTF_8), is(content.getJson().toString()));
+        assertThat(content.getJson().getJsonArray("services").isEmpty(), is(false));
+    }
+
+    @Test
+    public void gzippedBytesHaveTheirOwnETag() throws IOException {
+        ServicesDocument.Content content = new ServicesDocument("/services.json", 0).getContent();
+        assertThat(gunzip(content.getGzippedBytes()), is(content.getBytes()));
+        assertThat(content.getETag().startsWith("\""), is(true));
+        assertThat(content.getGzippedETag(), is(not(content.getETag())));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void missingFileIsAnError() {
+        new ServicesDocument("/wibble.json", 0).getContent();
+    }
+
+    private static byte[] gunzip(byte[] bytes) throws IOException {
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[1024];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return out.toByteArray();
+        }
+    }
+}
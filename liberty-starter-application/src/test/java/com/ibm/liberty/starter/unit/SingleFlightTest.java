@@ -0,0 +1,91 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.ibm.liberty.starter.unit;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.ibm.liberty.starter.client.SingleFlight;
+
+public class SingleFlightTest {
+
+    @Test
+    public void concurrentCallersShareOneCall() {
+        SingleFlight<String> testObject = new SingleFlight<>("test");
+        AtomicInteger calls = new AtomicInteger();
+        CompletableFuture<String> call = new CompletableFuture<>();
+        CompletableFuture<String> first = testObject.call("key", () -> {
+            calls.incrementAndGet();
+            return call;
+        });
+        CompletableFuture<String> second = testObject.call("key", () -> {
+            calls.incrementAndGet();
+            return CompletableFuture.completedFuture("other");
+        });
+        call.complete("result");
+        assertThat(first.join(), is("result"));
+        assertThat(second.join(), is("result"));
+        assertThat(calls.get(), is(1));
+        assertThat(testObject.getInFlight(), is(0));
+    }
+
+    @Test
+    public void finishedCallIsNotShared() {
+        SingleFlight<String> testObject = new SingleFlight<>("test");
+        testObject.call("key", () -> CompletableFuture.completedFuture("first")).join();
+        assertThat(testObject.call("key", () -> CompletableFuture.completedFuture("second")).join(), is("second"));
+    }
+
+    @Test
+    public void cancellingOneCallerDoesNotAffectTheOthers() {
+        SingleFlight<String> testObject = new SingleFlight<>("test");
+        CompletableFuture<String> call = new CompletableFuture<>();
+        CompletableFuture<String> first = testObject.call("key", () -> call);
+        CompletableFuture<String> second = testObject.call("key", () -> call);
+        first.cancel(true);
+        call.complete("result");
+        assertTrue(first.isCancelled());
+        assertThat(second.join(), is("result"));
+    }
+
+    @Test
+    public void callIsCancelledWhenEveryCallerCancels() {
+        SingleFlight<String> testObject = new SingleFlight<>("test");
+        CompletableFuture<String> call = new CompletableFuture<>();
+        CompletableFuture<String> first = testObject.call("key", () -> call);
+        CompletableFuture<String> second = testObject.call("key", () -> call);
+        first.cancel(true);
+        assertFalse(call.isCancelled());
+        second.cancel(true);
+        assertTrue(call.isCancelled());
+        assertThat(testObject.getCancelled(), is(1L));
+        assertThat(testObject.getInFlight(), is(0));
+    }
+
+    @Test
+    public void cancelledCallIsNotShared() {
+        SingleFlight<String> testObject = new SingleFlight<>("test");
+        testObject.call("key", () -> new CompletableFuture<>()).cancel(true);
+        assertThat(testObject.call("key", () -> CompletableFuture.completedFuture("second")).join(), is("second"));
+    }
+}
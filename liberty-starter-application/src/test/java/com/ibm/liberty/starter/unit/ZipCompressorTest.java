@@ -0,0 +1,167 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.ibm.liberty.starter.unit;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.Assert.assertThat;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipEntry;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.ibm.liberty.starter.CompressionPolicy;
+import com.ibm.liberty.starter.MemoryBudget;
+import com.ibm.liberty.starter.ProjectFile;
+import com.ibm.liberty.starter.ZipCompressor;
+
+public class ZipCompressorTest {
+
+    private final CompressionPolicy policy = new CompressionPolicy(CompressionPolicy.Profile.BALANCED, Collections.emptyMap(), Integer.MAX_VALUE);
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void filesAreReturnedInOrder() throws IOException {
+        Map<String, byte[]> files = new LinkedHashMap<>();
+        for (int i = 0; i < 50; i++) {
+            files.put("file" + (50 - i) + ".txt", text(4096, i));
+        }
+        List<ZipCompressor.Compressed> compressed = new ZipCompressor(policy).compress(ProjectFile.fromBytes(files), budget());
+        assertThat(compressed.stream().map(ZipCompressor.Compressed::getName).collect(Collectors.toList()), contains(files.keySet().toArray()));
+        for (ZipCompressor.Compressed file : compressed) {
+            assertCompressed(file, files.get(file.getName()));
+        }
+    }
+
+    @Test
+    public void largeFileIsDeflatedInBlocks() throws IOException {
+        byte[] content = text(1024 * 1024, 7);
+        ZipCompressor.Compressed inBlocks = new ZipCompressor(policy, 64 * 1024).compress(Collections.singletonMap("large.txt", ProjectFile.of(content)), budget()).get(0);
+        ZipCompressor.Compressed inOneGo = new ZipCompressor(policy, Integer.MAX_VALUE).compress(Collections.singletonMap("large.txt", ProjectFile.of(content)), budget()).get(0);
+        assertCompressed(inBlocks, content);
+        // Priming each block with the one before keeps the size close to deflating in one go
+        assertThat((double) inBlocks.getData().length, lessThan(inOneGo.getData().length * 1.02));
+    }
+
+    @Test
+    public void storedFileIsNotDeflated() throws IOException {
+        byte[] content = text(1024, 3);
+        ZipCompressor.Compressed stored = new ZipCompressor(policy).compress(Collections.singletonMap("lib/library.jar", ProjectFile.of(content)), budget()).get(0);
+        assertThat(stored.getMethod(), is(ZipEntry.STORED));
+        assertThat(stored.getData(), is(content));
+        assertThat(stored.getCrc(), is(crc(content)));
+    }
+
+    @Test
+    public void filesOverTheBudgetAreSpilled() throws IOException {
+        Map<String, byte[]> files = new LinkedHashMap<>();
+        files.put("small.txt", text(1000, 1));
+        files.put("large.txt", text(50000, 2));
+        files.put("lib/library.jar", text(20000, 3));
+        MemoryBudget.Pool pool = new MemoryBudget.Pool(Long.MAX_VALUE);
+        try (MemoryBudget budget = new MemoryBudget(10000, pool, folder.getRoot())) {
+            List<ZipCompressor.Compressed> compressed = new ZipCompressor(policy).compress(ProjectFile.fromBytes(files), budget);
+            assertThat(compressed.get(0).isSpilled(), is(false));
+            assertCompressed(compressed.get(0), files.get("small.txt"));
+            assertThat(compressed.get(1).isSpilled(), is(true));
+            assertCompressed(compressed.get(1), files.get("large.txt"));
+            assertThat(compressed.get(2).isSpilled(), is(true));
+            assertThat(compressed.get(2).getMethod(), is(ZipEntry.STORED));
+            assertThat(compressed.get(2).getData(), is(files.get("lib/library.jar")));
+            assertThat(compressed.get(2).getCrc(), is(crc(files.get("lib/library.jar"))));
+            // Only the compressed data of the file held in memory is still reserved
+            assertThat(budget.getReserved(), is(compressed.get(0).getCompressedSize()));
+            assertThat(pool.getSpills(), is(2L));
+            assertThat(folder.getRoot().list().length, is(2));
+        }
+        assertThat(pool.getReserved(), is(0L));
+        assertThat(folder.getRoot().list().length, is(0));
+    }
+
+    @Test
+    public void sharedFileIsDeflatedOnce() throws IOException {
+        byte[] content = text(4096, 9);
+        ProjectFile shared = ProjectFile.shared(content);
+        ZipCompressor.Compressed first = new ZipCompressor(policy).compress(Collections.singletonMap("server.xml", shared), budget()).get(0);
+        ZipCompressor.Compressed second = new ZipCompressor(policy).compress(Collections.singletonMap("src/server.xml", ProjectFile.shared(content.clone())), budget()).get(0);
+        assertCompressed(first, content);
+        assertCompressed(second, content);
+        assertThat(second.getCrc(), is(first.getCrc()));
+        assertThat(shared.readBlob().getDeflated(6, () -> new byte[0]), is(first.getData()));
+    }
+
+    private MemoryBudget budget() {
+        return new MemoryBudget(Long.MAX_VALUE / 2, new MemoryBudget.Pool(Long.MAX_VALUE / 2), folder.getRoot());
+    }
+
+    private static void assertCompressed(ZipCompressor.Compressed file, byte[] content) {
+        assertThat(file.getMethod(), is(ZipEntry.DEFLATED));
+        assertThat(file.getSize(), is((long) content.length));
+        assertThat(file.getCrc(), is(crc(content)));
+        assertThat(inflate(file.getData(), content.length), is(content));
+    }
+
+    private static byte[] inflate(byte[] data, int size) {
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(data);
+            byte[] content = new byte[size];
+            int length = 0;
+            while (length < size && !inflater.finished()) {
+                length += inflater.inflate(content, length, size - length);
+            }
+            assertThat(inflater.finished(), is(true));
+            return content;
+        } catch (DataFormatException e) {
+            throw new AssertionError(e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static int crc(byte[] content) {
+        CRC32 crc = new CRC32();
+        crc.update(content);
+        return (int) crc.getValue();
+    }
+
+    // Source-like text that compresses the way a project does
+    private static byte[] text(int size, long seed) {
+        String[] words = { "public", "class", "private", "return", "import", "static", "final", "void", "String", "{", "}", ";\n    " };
+        Random random = new Random(seed);
+        StringBuilder text = new StringBuilder(size);
+        while (text.length() < size) {
+            text.append(words[random.nextInt(words.length)]).append(' ');
+        }
+        return text.substring(0, size).getBytes(StandardCharsets.UTF_8);
+    }
+}
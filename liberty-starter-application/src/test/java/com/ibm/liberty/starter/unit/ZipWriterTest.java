@@ -0,0 +1,179 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.ibm.liberty.starter.unit;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.ibm.liberty.starter.CompressionPolicy;
+import com.ibm.liberty.starter.ProjectFile;
+import com.ibm.liberty.starter.ZipWriter;
+
+public class ZipWriterTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void codegenEntriesAreCopiedAndAddedFilesSortedIn() throws IOException {
+        byte[] codegen = zip("pom.xml", "src/main/java/App.java");
+        Map<String, byte[]> zip = read(write(new ZipWriter(codegen, ProjectFile.fromBytes(Collections.singletonMap("README.md", bytes("readme"))))));
+        assertThat(new ArrayList<>(zip.keySet()), contains("README.md", "pom.xml", "src/main/java/App.java"));
+        assertThat(new String(zip.get("pom.xml"), StandardCharsets.UTF_8), is("pom.xml"));
+    }
+
+    @Test
+    public void addedFileReplacesCodegenEntry() throws IOException {
+        byte[] codegen = zip("pom.xml", "src/main/java/App.java");
+        Map<String, byte[]> zip = read(write(new ZipWriter(codegen, ProjectFile.fromBytes(Collections.singletonMap("pom.xml", bytes("dynamic"))))));
+        assertThat(new ArrayList<>(zip.keySet()), contains("pom.xml", "src/main/java/App.java"));
+        assertThat(new String(zip.get("pom.xml"), StandardCharsets.UTF_8), is("dynamic"));
+    }
+
+    @Test
+    public void codegenEntriesAreCopiedWithoutRecompressing() throws IOException {
+        ByteArrayOutputStream codegen = new ByteArrayOutputStream();
+        try (ZipOutputStream zos = new ZipOutputStream(codegen)) {
+            zos.putNextEntry(new ZipEntry("pom.xml"));
+            zos.write(bytes(String.join("", Collections.nCopies(100, "<dependency/>"))));
+            byte[] stored = bytes("stored");
+            ZipEntry storedEntry = new ZipEntry("stored.txt");
+            storedEntry.setMethod(ZipEntry.STORED);
+            storedEntry.setSize(stored.length);
+            CRC32 crc = new CRC32();
+            crc.update(stored);
+            storedEntry.setCrc(crc.getValue());
+            zos.putNextEntry(storedEntry);
+            zos.write(stored);
+        }
+        File source = folder.newFile();
+        Files.write(source.toPath(), codegen.toByteArray());
+        File target = folder.newFile();
+        Files.write(target.toPath(), write(new ZipWriter(codegen.toByteArray(), ProjectFile.fromBytes(Collections.singletonMap("README.md", bytes("readme"))))));
+        try (ZipFile sourceZip = new ZipFile(source); ZipFile targetZip = new ZipFile(target)) {
+            assertThat(targetZip.size(), is(3));
+            for (String name : new String[] { "pom.xml", "stored.txt" }) {
+                ZipEntry sourceEntry = sourceZip.getEntry(name);
+                ZipEntry targetEntry = targetZip.getEntry(name);
+                assertThat(targetEntry.getMethod(), is(sourceEntry.getMethod()));
+                assertThat(targetEntry.getCompressedSize(), is(sourceEntry.getCompressedSize()));
+                assertThat(targetEntry.getCrc(), is(sourceEntry.getCrc()));
+                assertThat(IOUtils.toByteArray(targetZip.getInputStream(targetEntry)), is(IOUtils.toByteArray(sourceZip.getInputStream(sourceEntry))));
+            }
+            assertThat(IOUtils.toByteArray(targetZip.getInputStream(targetZip.getEntry("README.md"))), is(bytes("readme")));
+        }
+    }
+
+    @Test
+    public void compressedFilesAreStored() throws IOException {
+        Map<String, byte[]> files = new LinkedHashMap<>();
+        files.put("lib/library.jar", bytes(String.join("", Collections.nCopies(100, "jar"))));
+        files.put("README.md", bytes(String.join("", Collections.nCopies(100, "readme"))));
+        CompressionPolicy policy = new CompressionPolicy(CompressionPolicy.Profile.THROUGHPUT, Collections.emptyMap(), 1024);
+        // Both with and without a codegen zip to copy
+        for (byte[] codegen : new byte[][] { zip("pom.xml"), null }) {
+            File target = folder.newFile();
+            Files.write(target.toPath(), write(new ZipWriter(codegen, ProjectFile.fromBytes(files), policy)));
+            try (ZipFile targetZip = new ZipFile(target)) {
+                ZipEntry jar = targetZip.getEntry("lib/library.jar");
+                assertThat(jar.getMethod(), is(ZipEntry.STORED));
+                assertThat(jar.getCompressedSize(), is(300L));
+                assertThat(IOUtils.toByteArray(targetZip.getInputStream(jar)), is(files.get("lib/library.jar")));
+                ZipEntry readme = targetZip.getEntry("README.md");
+                assertThat(readme.getMethod(), is(ZipEntry.DEFLATED));
+                assertThat(IOUtils.toByteArray(targetZip.getInputStream(readme)), is(files.get("README.md")));
+            }
+        }
+    }
+
+    @Test
+    public void sameProjectGivesSameBytes() throws IOException, InterruptedException {
+        Map<String, byte[]> files = new LinkedHashMap<>();
+        files.put("src/main/java/Dynamic.java", bytes("dynamic"));
+        files.put("README.md", bytes("readme"));
+        byte[] first = write(new ZipWriter(zip("src/main/java/App.java", "pom.xml"), ProjectFile.fromBytes(files)));
+        // Long enough for the time in a zip to change
+        Thread.sleep(2100);
+        Map<String, byte[]> reordered = new LinkedHashMap<>();
+        reordered.put("README.md", bytes("readme"));
+        reordered.put("src/main/java/Dynamic.java", bytes("dynamic"));
+        assertThat(write(new ZipWriter(zip("pom.xml", "src/main/java/App.java"), ProjectFile.fromBytes(reordered))), is(first));
+        File target = folder.newFile();
+        Files.write(target.toPath(), first);
+        try (ZipFile targetZip = new ZipFile(target)) {
+            for (ZipEntry entry : Collections.list(targetZip.entries())) {
+                assertThat(entry.getExtra(), is(nullValue()));
+                assertThat(entry.getTime(), is(targetZip.getEntry("README.md").getTime()));
+            }
+        }
+    }
+
+    // Each entry contains its own name
+    private static byte[] zip(String... names) throws IOException {
+        ByteArrayOutputStream zip = new ByteArrayOutputStream();
+        try (ZipOutputStream zos = new ZipOutputStream(zip)) {
+            for (String name : names) {
+                zos.putNextEntry(new ZipEntry(name));
+                zos.write(bytes(name));
+            }
+        }
+        return zip.toByteArray();
+    }
+
+    private static byte[] write(ZipWriter writer) throws IOException {
+        ByteArrayOutputStream zip = new ByteArrayOutputStream();
+        writer.buildZip(zip);
+        return zip.toByteArray();
+    }
+
+    private static Map<String, byte[]> read(byte[] zip) throws IOException {
+        Map<String, byte[]> files = new LinkedHashMap<>();
+        try (ZipInputStream zis = new ZipInputStream(new ByteArrayInputStream(zip))) {
+            ZipEntry entry;
+            while ((entry = zis.getNextEntry()) != null) {
+                files.put(entry.getName(), IOUtils.toByteArray(zis));
+            }
+        }
+        return files;
+    }
+
+    private static byte[] bytes(String content) {
+        return content.getBytes(StandardCharsets.UTF_8);
+    }
+}
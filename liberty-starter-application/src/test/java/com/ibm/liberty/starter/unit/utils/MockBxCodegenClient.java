@@ -15,15 +15,29 @@
  *******************************************************************************/
 package com.ibm.liberty.starter.unit.utils;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 import com.ibm.liberty.starter.client.BxCodegenClient;
+import com.ibm.liberty.starter.client.ProjectCache;
 
 public class MockBxCodegenClient extends BxCodegenClient {
 
-    private String status;
+    private volatile String status;
     public int statusCount = 0;
+    public volatile int codegenCount = 0;
+    
+    public MockBxCodegenClient() {
+        // Nothing is cached so every test generates its own project
+        this(new ProjectCache(0, null, 0));
+    }
+    
+    public MockBxCodegenClient(ProjectCache cache) {
+        // Poll quickly so a job that never finishes times out within the test
+        super(1, 10, 500, cache);
+    }
     
     public void setStatus(String status) {
         this.status = status;
@@ -37,14 +51,20 @@ public class MockBxCodegenClient extends BxCodegenClient {
     
     @Override
     protected String callBxCodegen(String payload) {
+        codegenCount++;
         return "1234";
     }
     
     @Override
-    protected Map<String, byte[]>getProjectMap(String id) {
-        Map<String, byte[]> map = new HashMap<String, byte[]>();
-        map.put(id, "test".getBytes());
-        return map;
+    protected byte[] getProjectZip(String id) {
+        ByteArrayOutputStream zip = new ByteArrayOutputStream();
+        try (ZipOutputStream zos = new ZipOutputStream(zip)) {
+            zos.putNextEntry(new ZipEntry(id));
+            zos.write("test".getBytes());
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return zip.toByteArray();
     }
     
 }
@@ -16,11 +16,8 @@
 package com.ibm.liberty.starter.unit.utils;
 
 import java.net.URI;
-import java.util.ArrayList;
-import java.util.List;
 
 import com.ibm.liberty.starter.ServiceConnector;
-import com.ibm.liberty.starter.api.v1.model.internal.Services;
 import com.ibm.liberty.starter.api.v1.model.registration.Service;
 
 public class MockServiceConnector extends ServiceConnector {
@@ -30,20 +27,9 @@ public class MockServiceConnector extends ServiceConnector {
     public String[] capturedTechs;
 
     public MockServiceConnector(URI uri) {
-        super(uri);
+        super(uri, new MockServiceRegistry());
     }
     
-    @Override
-    public Services parseServicesJson() {
-        Service wibble  = new Service();
-        wibble.setId("wibble");
-        List<Service> serviceList = new ArrayList<Service>();
-        serviceList.add(wibble);
-        Services services = new Services();
-        services.setServices(serviceList);
-        return services;
-    }
-
     @Override
     public void prepareDynamicPackages(Service service, String techWorkspaceDir, String options, String[] techs) {
         capturedTechWorkspaceDir = techWorkspaceDir;
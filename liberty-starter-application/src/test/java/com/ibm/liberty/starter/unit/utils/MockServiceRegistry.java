@@ -0,0 +1,43 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.ibm.liberty.starter.unit.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.ibm.liberty.starter.ServiceRegistry;
+import com.ibm.liberty.starter.api.v1.model.registration.Service;
+
+public class MockServiceRegistry extends ServiceRegistry {
+
+    public int loadCount = 0;
+    public String version = "1";
+
+    @Override
+    protected String loadVersion() {
+        return version;
+    }
+
+    @Override
+    protected List<Service> loadServices() {
+        loadCount++;
+        Service wibble = new Service();
+        wibble.setId("wibble");
+        List<Service> serviceList = new ArrayList<Service>();
+        serviceList.add(wibble);
+        return serviceList;
+    }
+}
@@ -27,6 +27,7 @@ public class Service {
     private boolean options;
     private String image;
     private String imageSelected;
+    private String[] aliases;
 
     @ApiModelProperty(value="Unique ID for this technology", required=true)
     public String getId() {
@@ -98,4 +99,13 @@ public class Service {
     public void setImageSelected(String image) {
         this.imageSelected = image;
     }
+    
+    @ApiModelProperty(value="Other IDs that this technology can be looked up by, for example the name used for its artifacts in the repository", required=false)
+    public String[] getAliases() {
+        return aliases;
+    }
+    
+    public void setAliases(String[] aliases) {
+        this.aliases = aliases;
+    }
 }
@@ -0,0 +1,73 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.ibm.liberty.starter.service.spi;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import javax.servlet.ServletContext;
+
+/**
+ * Dispatches the calls made through the MBean server to the provider and serves its artifacts from the application.
+ */
+public class LocalProvider implements LocalProviderMBean {
+
+    private final ServletContext context;
+    private final ProviderService service;
+
+    public LocalProvider(ServletContext context, ProviderService service) {
+        this.context = context;
+        this.service = service;
+    }
+
+    @Override
+    public String prepareDynamicPackages(String techWorkspaceDir, String options, String techs) throws IOException {
+        return getService().prepareDynamicPackages(techWorkspaceDir, options, techs);
+    }
+
+    @Override
+    public String processUploads(String uploadDirectoryPath) throws IOException {
+        return getService().processUploads(uploadDirectoryPath);
+    }
+
+    @Override
+    public byte[] getArtifact(String path) throws IOException {
+        if (path.contains("..")) {
+            return null;
+        }
+        try (InputStream in = context.getResourceAsStream("/artifacts/" + path)) {
+            if (in == null) {
+                return null;
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return out.toByteArray();
+        }
+    }
+
+    // Providers that only serve artifacts don't offer the other operations, just as they don't offer the endpoints
+    private ProviderService getService() {
+        if (service == null) {
+            throw new UnsupportedOperationException("The provider at " + context.getContextPath() + " doesn't offer this operation");
+        }
+        return service;
+    }
+}
@@ -0,0 +1,35 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.ibm.liberty.starter.service.spi;
+
+import java.io.IOException;
+
+/**
+ * The management interface a provider registers in the platform MBean server. Only JDK types are passed so the
+ * starter application can invoke it from its own class loader.
+ */
+public interface LocalProviderMBean {
+
+    String prepareDynamicPackages(String techWorkspaceDir, String options, String techs) throws IOException;
+
+    String processUploads(String uploadDirectoryPath) throws IOException;
+
+    /**
+     * Returns the contents of the file under the provider's /artifacts directory, or null if there isn't one.
+     */
+    byte[] getArtifact(String path) throws IOException;
+
+}
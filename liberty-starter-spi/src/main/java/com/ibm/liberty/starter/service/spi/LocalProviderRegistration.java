@@ -0,0 +1,76 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.ibm.liberty.starter.service.spi;
+
+import java.lang.management.ManagementFactory;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
+
+/**
+ * Registers a provider in the platform MBean server while its application is running so that the starter
+ * application can call it in-process, rather than over HTTP, when they run in the same server. A provider
+ * subclasses this as a {@link javax.servlet.annotation.WebListener} and returns its {@link ProviderService}.
+ *
+ * The provider is registered under the name <code>com.ibm.liberty.starter:type=LocalProvider,contextRoot=&lt;context root&gt;</code>,
+ * which is the endpoint of the service in services.json.
+ */
+public abstract class LocalProviderRegistration implements ServletContextListener {
+
+    public static final String OBJECT_NAME_PREFIX = "com.ibm.liberty.starter:type=LocalProvider,contextRoot=";
+
+    private static final Logger log = Logger.getLogger(LocalProviderRegistration.class.getName());
+
+    private ObjectName name;
+
+    /**
+     * Returns the service the provider offers, or null if it only serves artifacts.
+     */
+    protected abstract ProviderService createProviderService();
+
+    @Override
+    public void contextInitialized(ServletContextEvent event) {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            name = new ObjectName(OBJECT_NAME_PREFIX + event.getServletContext().getContextPath());
+            LocalProvider provider = new LocalProvider(event.getServletContext(), createProviderService());
+            server.registerMBean(new StandardMBean(provider, LocalProviderMBean.class), name);
+            log.fine("Registered local provider " + name);
+        } catch (JMException e) {
+            // The provider can still be reached over HTTP
+            log.log(Level.WARNING, "Unable to register local provider " + name, e);
+            name = null;
+        }
+    }
+
+    @Override
+    public void contextDestroyed(ServletContextEvent event) {
+        if (name != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+            } catch (JMException e) {
+                log.log(Level.WARNING, "Unable to unregister local provider " + name, e);
+            }
+            name = null;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.ibm.liberty.starter.service.spi;
+
+import java.io.IOException;
+
+/**
+ * The operations a provider offers to the starter application in addition to its details. A provider implements
+ * this alongside the packages/prepare and uploads/process methods of its ProviderEndpoint so that the starter
+ * can call it directly when both run in the same server, see {@link LocalProviderRegistration}.
+ */
+public interface ProviderService {
+
+    /**
+     * Prepares the packages for the technology in the given workspace directory.
+     *
+     * @param techWorkspaceDir The directory holding the workspace of this technology
+     * @param options The options selected for this technology, comma separated
+     * @param techs All of the technologies selected, comma separated
+     * @return A description of the result, e.g. "success"
+     */
+    String prepareDynamicPackages(String techWorkspaceDir, String options, String techs) throws IOException;
+
+    /**
+     * Processes the files uploaded into the given directory.
+     *
+     * @return "success" or a message describing why the files couldn't be processed
+     */
+    String processUploads(String uploadDirectoryPath) throws IOException;
+
+}
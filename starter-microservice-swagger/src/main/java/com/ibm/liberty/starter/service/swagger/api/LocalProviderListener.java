@@ -0,0 +1,32 @@
+/*******************************************************************************
+ * Copyright (c) 2017 IBM Corp.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *******************************************************************************/
+package com.ibm.liberty.starter.service.swagger.api;
+
+import javax.servlet.annotation.WebListener;
+
+import com.ibm.liberty.starter.service.spi.LocalProviderRegistration;
+import com.ibm.liberty.starter.service.spi.ProviderService;
+import com.ibm.liberty.starter.service.swagger.api.v1.ProviderEndpoint;
+
+@WebListener
+public class LocalProviderListener extends LocalProviderRegistration {
+
+    @Override
+    protected ProviderService createProviderService() {
+        return new ProviderEndpoint();
+    }
+
+}
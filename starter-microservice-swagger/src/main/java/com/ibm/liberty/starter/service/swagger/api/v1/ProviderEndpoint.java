@@ -41,8 +41,10 @@ import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.filefilter.FileFilterUtils;
 import org.apache.commons.io.filefilter.NameFileFilter;
 
+import com.ibm.liberty.starter.service.spi.ProviderService;
+
 @Path("v1/provider")
-public class ProviderEndpoint {
+public class ProviderEndpoint implements ProviderService {
     
     private static final Logger log = Logger.getLogger(ProviderEndpoint.class.getName());
     
@@ -58,6 +60,7 @@ public class ProviderEndpoint {
     @GET
     @Path("packages/prepare")
     @Produces(MediaType.TEXT_PLAIN)
+    @Override
     public String prepareDynamicPackages(@QueryParam("path") String techWorkspaceDir, @QueryParam("options") String options, @QueryParam("techs") String techs) throws IOException {
         if(techWorkspaceDir != null && !techWorkspaceDir.trim().isEmpty()){
             File packageDir = new File(techWorkspaceDir + "/package");
@@ -142,6 +145,7 @@ public class ProviderEndpoint {
     @GET
     @Path("uploads/process")
     @Produces(MediaType.TEXT_PLAIN)
+    @Override
     public String processUploads(@QueryParam("path") String uploadDirectoryPath) throws IOException {
         
         File uploadDirectory;
@@ -37,9 +37,10 @@ import com.ibm.liberty.starter.api.v1.model.provider.Dependency;
 import com.ibm.liberty.starter.api.v1.model.provider.Dependency.Scope;
 import com.ibm.liberty.starter.api.v1.model.provider.Location;
 import com.ibm.liberty.starter.api.v1.model.provider.Provider;
+import com.ibm.liberty.starter.service.spi.ProviderService;
 
 @Path("v1/provider")
-public class ProviderEndpoint {
+public class ProviderEndpoint implements ProviderService {
 
     @GET
     @Path("/")
@@ -117,6 +118,7 @@ public class ProviderEndpoint {
     @GET
     @Path("uploads/process")
     @Produces(MediaType.TEXT_PLAIN)
+    @Override
     public String processUploads(@QueryParam("path") String uploadDirectoryPath) throws IOException {
     	File uploadDirectory;
     	if(uploadDirectoryPath == null || !(uploadDirectory = new File(uploadDirectoryPath)).exists()){
@@ -133,6 +135,7 @@ public class ProviderEndpoint {
     
     @GET
     @Path("packages/prepare")
+    @Override
     public String prepareDynamicPackages(@QueryParam("path") String techWorkspaceDir, @QueryParam("options") String options, @QueryParam("techs") String techs) throws IOException {
         if (techWorkspaceDir != null && !techWorkspaceDir.trim().isEmpty()) {
             FileUtils.deleteQuietly(new File(techWorkspaceDir + "/package"));